@@ -0,0 +1,134 @@
+#!/usr/bin/env bash
+# Prueba de carga del informe de alertas con IA (POST /api/alertas/informe o /informe/stream).
+#
+# Lanza N solicitudes con C en paralelo y, mientras corren, sondea GET /api/alertas/tipos (para ver si
+# el resto de la API sigue respondiendo) y GET /api/admin/informes/estado (saturación del pool de
+# informes y del límite de llamadas al modelo). Al final muestra throughput, p50/p95/p99 y códigos HTTP.
+#
+# Para medir sin salir a Google y con una latencia de modelo realista, levantar la app con el modelo
+# simulado (ver app.ia.simulado.* en application.properties):
+#
+#   ./mvnw spring-boot:run -Dspring-boot.run.arguments="--app.ia.proveedor=simulado --app.ia.simulado.latencia-ms=8000"
+#
+# y desde la raíz del repositorio (la cuenta debe ser SUPER_ADMIN para leer el estado del pool):
+#
+#   EMAIL=admin@ejemplo.cl PASSWORD=secreto N=200 C=40 scripts/benchmark/carga_informe.sh
+#
+# Variables: URL (http://localhost:8082), TOKEN o EMAIL/PASSWORD, N (100), C (20),
+# ENDPOINT (informe | stream), DISTINTOS (1: cada solicitud con otro rango de fechas, para que no se
+# reutilicen trabajos ni la caché del modelo; 0: todas iguales).
+# Requiere bash, curl, awk y date de GNU.
+
+set -euo pipefail
+
+URL=${URL:-http://localhost:8082}
+N=${N:-100}
+C=${C:-20}
+ENDPOINT=${ENDPOINT:-informe}
+DISTINTOS=${DISTINTOS:-1}
+
+if [[ -z "${TOKEN:-}" ]]; then
+    if [[ -z "${EMAIL:-}" || -z "${PASSWORD:-}" ]]; then
+        echo "Defina TOKEN o EMAIL y PASSWORD" >&2
+        exit 1
+    fi
+    TOKEN=$(curl -s -X POST "$URL/api/auth/login" -H "Content-Type: application/json" \
+        -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" \
+        | sed -n 's/.*"accessToken":"\([^"]*\)".*/\1/p')
+    if [[ -z "$TOKEN" ]]; then
+        echo "No se pudo iniciar sesión en $URL" >&2
+        exit 1
+    fi
+fi
+
+SALIDA=$(mktemp -d)
+touch "$SALIDA/tipos.txt" "$SALIDA/estado.txt"
+trap 'kill $(jobs -p) 2>/dev/null || true; rm -rf "$SALIDA"' EXIT
+
+# Una solicitud: imprime "código tiempo_primer_byte tiempo_total"
+solicitud() {
+    local i=$1 desfase=0 fin inicio
+    [[ "$DISTINTOS" == "1" ]] && desfase=$i
+    fin=$(date -d "-$desfase minutes" +%Y-%m-%dT%H:%M:00)
+    inicio=$(date -d "-$desfase minutes -30 days" +%Y-%m-%dT%H:%M:00)
+    local ruta=/api/alertas/informe accept=application/json
+    if [[ "$ENDPOINT" == "stream" ]]; then
+        ruta=/api/alertas/informe/stream
+        accept=text/event-stream
+    fi
+    curl -s -N -o /dev/null -w "%{http_code} %{time_starttransfer} %{time_total}\n" --max-time 300 \
+        -X POST "$URL$ruta" -H "Authorization: Bearer $TOKEN" \
+        -H "Content-Type: application/json" -H "Accept: $accept" \
+        -d "{\"fechaInicio\":\"$inicio\",\"fechaFin\":\"$fin\",\"limite\":100}" || echo "000 0 0"
+}
+export -f solicitud
+export URL TOKEN ENDPOINT DISTINTOS
+
+# Sondeo de la API ligera y del estado del pool mientras dura la carga
+sondear() {
+    while true; do
+        curl -s -o /dev/null -w "%{http_code} %{time_total}\n" --max-time 30 \
+            -H "Authorization: Bearer $TOKEN" "$URL/api/alertas/tipos" >> "$SALIDA/tipos.txt" || true
+        curl -s --max-time 5 -H "Authorization: Bearer $TOKEN" "$URL/api/admin/informes/estado" \
+            >> "$SALIDA/estado.txt" || true
+        echo >> "$SALIDA/estado.txt"
+        sleep 1
+    done
+}
+sondear &
+SONDEO=$!
+
+echo "Carga: $N solicitudes a /$ENDPOINT, $C en paralelo, contra $URL"
+inicio_carga=$(date +%s.%N)
+seq 1 "$N" | xargs -P "$C" -I{} bash -c 'solicitud {}' > "$SALIDA/informe.txt"
+fin_carga=$(date +%s.%N)
+kill "$SONDEO" 2>/dev/null || true
+
+# Percentiles por rango más cercano sobre la columna indicada (segundos)
+percentiles() {
+    local archivo=$1 columna=$2
+    awk -v c="$columna" '$1 != "000" { print $c }' "$archivo" | sort -n | awk '
+        { v[NR] = $1; suma += $1 }
+        END {
+            if (NR == 0) { print "  sin datos"; exit }
+            split("50 95 99", ps, " ")
+            for (k = 1; k <= 3; k++) {
+                i = int((ps[k] / 100) * NR + 0.999999); if (i < 1) i = 1
+                printf "  p%s: %.3f s\n", ps[k], v[i]
+            }
+            printf "  media: %.3f s  máx: %.3f s\n", suma / NR, v[NR]
+        }'
+}
+
+echo
+echo "== Informe =="
+awk -v t0="$inicio_carga" -v t1="$fin_carga" -v n="$N" \
+    'BEGIN { d = t1 - t0; printf "  duración: %.1f s  throughput: %.2f solicitudes/s\n", d, n / d }'
+echo "  códigos HTTP:"
+awk '{ print $1 }' "$SALIDA/informe.txt" | sort | uniq -c | sed 's/^/   /'
+echo "  tiempo total (2xx):"
+awk '$1 ~ /^2/' "$SALIDA/informe.txt" > "$SALIDA/informe_ok.txt"
+percentiles "$SALIDA/informe_ok.txt" 3
+if [[ "$ENDPOINT" == "stream" ]]; then
+    echo "  primer byte (2xx):"
+    percentiles "$SALIDA/informe_ok.txt" 2
+fi
+
+echo
+echo "== GET /api/alertas/tipos durante la carga =="
+echo "  códigos HTTP:"
+awk '{ print $1 }' "$SALIDA/tipos.txt" | sort | uniq -c | sed 's/^/   /'
+percentiles "$SALIDA/tipos.txt" 2
+
+echo
+echo "== Saturación observada (GET /api/admin/informes/estado) =="
+# Máximos de los contadores del pool y de llamadas al modelo en curso durante la carga
+grep -o '"\(activos\|enCola\|enCurso\|rechazados\)":[0-9]*' "$SALIDA/estado.txt" \
+    | awk -F: '{ gsub(/"/, "", $1); if ($2 > max[$1]) max[$1] = $2; visto[$1] = 1 }
+               END { for (k in visto) printf "  máx %s: %d\n", k, max[k] }' \
+    || echo "  sin datos (¿la cuenta es SUPER_ADMIN?)"
+
+echo
+echo "== Estado final =="
+curl -s -H "Authorization: Bearer $TOKEN" "$URL/api/admin/informes/estado"
+echo
@@ -0,0 +1,58 @@
+-- Consultas calientes en SQL equivalente a los métodos de repositorio.
+-- Se ejecuta dos veces desde indices.sql (antes y después de los índices).
+
+SELECT 'AlertaRepository.findAlertasActivas' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta WHERE estado = 'ACTIVA' ORDER BY fecha_hora DESC;
+
+SELECT 'AlertaRepository.findByEstado (página 100, size 20)' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta WHERE estado = 'EN_PROCESO' ORDER BY fecha_hora DESC LIMIT 20 OFFSET 2000;
+
+SELECT 'AlertaRepository.countByEstado' AS consulta;
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM alerta WHERE estado = 'ACTIVA';
+
+SELECT 'AlertaRepository.findDtoBySector (primera página)' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta WHERE sector = 'Sector 3' ORDER BY fecha_hora DESC LIMIT 20;
+
+SELECT 'AlertaRepository.findBySectorAndFechaHoraBetween (30 días)' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta
+WHERE sector = 'Sector 3' AND fecha_hora BETWEEN NOW() - INTERVAL 30 DAY AND NOW();
+
+SELECT 'AlertaRepository.findDtoByUsuarioId' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta WHERE usuario_id = 1234 ORDER BY fecha_hora DESC LIMIT 20;
+
+SELECT 'AlertaRepository.findByTipo' AS consulta;
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta WHERE tipo = 'INCENDIO' ORDER BY fecha_hora DESC LIMIT 20;
+
+SELECT 'AlertaRepository.findDtoKeyset (página profunda)' AS consulta;
+SET @cursor_fecha = (SELECT fecha_hora FROM alerta ORDER BY fecha_hora DESC LIMIT 1 OFFSET 200000);
+EXPLAIN ANALYZE
+SELECT alerta_id FROM alerta
+WHERE fecha_hora <= @cursor_fecha AND (fecha_hora < @cursor_fecha OR alerta_id < 2147483647)
+ORDER BY fecha_hora DESC, alerta_id DESC LIMIT 21;
+
+SELECT 'UsuarioRepository.findByVillaIdAndSector' AS consulta;
+EXPLAIN ANALYZE
+SELECT usuario_id FROM usuario WHERE villa_id = 42 AND sector = 'Sector 2' LIMIT 20;
+
+SELECT 'UsuarioRepository.countByVillaIdAndRole' AS consulta;
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM usuario WHERE villa_id = 42 AND role = 'VECINO';
+
+SELECT 'UsuarioRepository.findDistinctSectoresByVillaId' AS consulta;
+EXPLAIN ANALYZE
+SELECT DISTINCT sector FROM usuario WHERE villa_id = 42 AND sector IS NOT NULL AND sector <> '';
+
+SELECT 'UsuarioRepository.findBySector' AS consulta;
+EXPLAIN ANALYZE
+SELECT usuario_id FROM usuario WHERE sector = 'Sector 5' LIMIT 20;
+
+SELECT 'UsuarioRepository.findByEmail (UNIQUE, referencia)' AS consulta;
+EXPLAIN ANALYZE
+SELECT usuario_id FROM usuario WHERE email = 'vecino4321@example.cl';
@@ -0,0 +1,97 @@
+-- Benchmark de índices compuestos (migración V2__indices_compuestos.sql).
+--
+-- Crea una base desechable, la puebla con datos sintéticos y muestra EXPLAIN ANALYZE de las
+-- consultas calientes de AlertaRepository y UsuarioRepository antes y después de los índices.
+-- Requiere MySQL 8.0.18+ (EXPLAIN ANALYZE). Ejecutar desde la raíz del repositorio:
+--
+--   mysql -u root -p --table < scripts/benchmark/indices.sql > bench_indices.txt
+--
+-- Comparar en la salida: "Table scan" / "Sort" (antes) frente a "Index lookup" / "Index range scan"
+-- sin Sort (después), y los tiempos "actual time" de cada bloque.
+--
+-- RESULTADOS: este script todavía NO se ha ejecutado. Se escribió junto con V2 en un entorno sin
+-- MySQL, así que no hay planes ni tiempos medidos, y los índices de V2 se eligieron leyendo las
+-- consultas (columnas de igualdad + columna de orden), no por una medición. Qué debería verse en
+-- "DESPUÉS" si el análisis es correcto:
+--   findAlertasActivas, findByEstado, countByEstado  -> idx_alerta_estado_fecha, sin Sort
+--   findDtoByUsuarioId                               -> idx_alerta_usuario_fecha, sin Sort
+--   findByTipo                                       -> idx_alerta_tipo_fecha, sin Sort
+--   findDtoKeyset                                    -> idx_alerta_fecha_hora (range scan inverso)
+--   findDtoBySector, findBySectorAndFechaHoraBetween -> idx_alerta_sector_fecha
+--   UsuarioRepository.findByVillaIdAndSector / countByVillaIdAndRole / findBySector
+--                                                    -> idx_usuario_villa_sector / _villa_role / _sector
+--   findByEmail                                      -> sin cambio (UNIQUE), sirve de control
+-- Los bloques por texto de sector miden el estado de V2; V3 los reemplazó por índices sobre sector_id.
+-- Quien lo ejecute debe guardar la salida completa como scripts/benchmark/resultados/indices-<fecha>.txt
+-- y resumir aquí, por consulta, el plan y el "actual time" de antes y después.
+
+DROP DATABASE IF EXISTS seguridad_vecinal_bench;
+CREATE DATABASE seguridad_vecinal_bench;
+USE seguridad_vecinal_bench;
+
+-- Esquema base (solo los índices previos a V2)
+SOURCE src/main/resources/db/migration/V1__esquema_base.sql
+
+-- ==================== DATOS SINTÉTICOS ====================
+-- 500.000 alertas en 2 años, 20.000 usuarios, 200 villas con 10 sectores cada una
+
+CREATE TABLE seq (n INT NOT NULL PRIMARY KEY);
+INSERT INTO seq (n)
+SELECT d0.d + d1.d * 10 + d2.d * 100 + d3.d * 1000 + d4.d * 10000 + d5.d * 100000
+FROM (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d0
+CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d1
+CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d2
+CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d3
+CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4
+      UNION ALL SELECT 5 UNION ALL SELECT 6 UNION ALL SELECT 7 UNION ALL SELECT 8 UNION ALL SELECT 9) d4
+CROSS JOIN (SELECT 0 d UNION ALL SELECT 1 UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4) d5;
+
+INSERT INTO ciudad (ciudad_id, nombre, region, pais, activo) VALUES (1, 'Santiago', 'Metropolitana', 'Chile', 1);
+
+INSERT INTO comuna (comuna_id, nombre, activo, ciudad_id)
+SELECT n + 1, CONCAT('Comuna ', n + 1), 1, 1 FROM seq WHERE n < 20;
+
+INSERT INTO villa (villa_id, nombre, sectores, activo, fecha_creacion, comuna_id)
+SELECT n + 1, CONCAT('Villa ', n + 1),
+       'Sector 0,Sector 1,Sector 2,Sector 3,Sector 4,Sector 5,Sector 6,Sector 7,Sector 8,Sector 9',
+       1, NOW(), (n % 20) + 1
+FROM seq WHERE n < 200;
+
+INSERT INTO usuario (usuario_id, nombre, apellido, email, rut, password, estado_cuenta, fecha_registro,
+                     verificado, role, villa_id, sector)
+SELECT n + 1, CONCAT('Nombre', n), CONCAT('Apellido', n), CONCAT('vecino', n, '@example.cl'),
+       CONCAT(10000000 + n, '-', n % 10), 'x', n % 10 <> 0, CURDATE() - INTERVAL (n % 700) DAY,
+       n % 3 <> 0, ELT(1 + (n % 50 = 0) + (n = 0), 'VECINO', 'ADMIN_VILLA', 'SUPER_ADMIN'),
+       (n % 200) + 1, CONCAT('Sector ', n % 10)
+FROM seq WHERE n < 20000;
+
+INSERT INTO alerta (titulo, descripcion, sector, tipo, estado, fecha_hora, latitud, longitud, celda_geo,
+                    silenciosa, usuario_id)
+SELECT CONCAT('Alerta ', n), 'Generada para benchmark', CONCAT('Sector ', (n * 7) % 10),
+       ELT(1 + n % 9, 'ACCIDENTE', 'EMERGENCIA', 'INCENDIO', 'MASCOTA_PERDIDA', 'OTRO', 'ROBO', 'RUIDO',
+           'SOSPECHOSO', 'VANDALISMO'),
+       -- ~2 % activas, el resto repartido entre los otros estados
+       IF(n % 50 = 0, 'ACTIVA', ELT(1 + n % 3, 'ATENDIDA', 'EN_PROCESO', 'FALSA')),
+       NOW() - INTERVAL (n * 126) SECOND,
+       -33.45 + (n % 1000) / 10000, -70.65 + (n % 997) / 10000, NULL,
+       n % 17 = 0, (n * 31 % 20000) + 1
+FROM seq;
+
+DROP TABLE seq;
+ANALYZE TABLE alerta, usuario;
+
+-- ==================== ANTES ====================
+SELECT 'ANTES DE V2__indices_compuestos' AS fase;
+SOURCE scripts/benchmark/consultas.sql
+
+-- ==================== ÍNDICES ====================
+SOURCE src/main/resources/db/migration/V2__indices_compuestos.sql
+ANALYZE TABLE alerta, usuario;
+
+-- ==================== DESPUÉS ====================
+SELECT 'DESPUÉS DE V2__indices_compuestos' AS fase;
+SOURCE scripts/benchmark/consultas.sql
@@ -0,0 +1,35 @@
+package cl.seguridad.vecinal.configuracion;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * {@link StatementInspector} que cuenta las sentencias SQL que prepara Hibernate en el hilo actual,
+ * entre {@link #iniciar()} y {@link #detener()}. Fuera de ese intervalo no cuenta nada.
+ * <p>
+ * Lo registra {@link ContadorSentenciasSqlConfig} para cada request HTTP; las pruebas lo registran con
+ * {@code hibernate.session_factory.statement_inspector} para verificar cuántas sentencias cuesta un listado.
+ */
+public class ContadorSentenciasSql implements StatementInspector {
+
+    private static final ThreadLocal<int[]> SENTENCIAS = new ThreadLocal<>();
+
+    public static void iniciar() {
+        SENTENCIAS.set(new int[]{0});
+    }
+
+    /** Deja de contar en este hilo y devuelve las sentencias contadas desde {@link #iniciar()}. */
+    public static int detener() {
+        int[] contador = SENTENCIAS.get();
+        SENTENCIAS.remove();
+        return contador != null ? contador[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] contador = SENTENCIAS.get();
+        if (contador != null) {
+            contador[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,62 @@
+package cl.seguridad.vecinal.configuracion;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Cuenta las sentencias SQL que prepara Hibernate durante cada request HTTP y deja un WARN
+ * cuando se supera el umbral, para detectar N+1 en los listados (ej. GET /api/alertas con 20
+ * alertas debe costar un número fijo de sentencias, no una por fila; lo verifica
+ * {@code AlertaRepositorySentenciasTest}).
+ * Se activa con {@code app.sql.contador.habilitado=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql.contador.habilitado", havingValue = "true")
+public class ContadorSentenciasSqlConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContadorSentenciasSqlConfig.class);
+
+    // Solo cuenta en hilos que están atendiendo una request (el filtro inicia el contador)
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentenciasSql() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentenciasSql());
+    }
+
+    @Bean
+    public OncePerRequestFilter contadorSentenciasFilter(@Value("${app.sql.contador.umbral:10}") int umbral) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                            @NonNull HttpServletResponse response,
+                                            @NonNull FilterChain filterChain) throws ServletException, IOException {
+                ContadorSentenciasSql.iniciar();
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    int sentencias = ContadorSentenciasSql.detener();
+                    if (sentencias > umbral) {
+                        ContadorSentenciasSqlConfig.logger.warn("{} {} ejecutó {} sentencias SQL (umbral {})",
+                                request.getMethod(), request.getRequestURI(), sentencias, umbral);
+                    } else {
+                        ContadorSentenciasSqlConfig.logger.debug("{} {} ejecutó {} sentencias SQL",
+                                request.getMethod(), request.getRequestURI(), sentencias);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -1,24 +1,50 @@
 package cl.seguridad.vecinal.configuracion;
 
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class GoogleAiWebClientConfig {
 
+    // Con app.ia.proveedor=simulado no se crea: así no hace falta la API key
     @Bean(name = "googleAiWebClient")
+    @ConditionalOnProperty(name = "app.ia.proveedor", havingValue = "gemini", matchIfMissing = true)
     public WebClient googleAiWebClient(WebClient.Builder builder,
-            @Value("${google.ai.api.key}") String apiKey
+            @Value("${google.ai.api.key}") String apiKey,
+            @Value("${google.ai.max-conexiones:20}") int maxConexiones,
+            @Value("${google.ai.timeout-conexion-ms:5000}") int timeoutConexionMs,
+            @Value("${google.ai.timeout-lectura-segundos:60}") int timeoutLecturaSegundos
     ) {
+        // Pool propio y acotado: sin conexión libre la petición espera a lo más el timeout de conexión
+        ConnectionProvider conexiones = ConnectionProvider.builder("google-ai")
+                .maxConnections(maxConexiones)
+                .pendingAcquireTimeout(Duration.ofMillis(timeoutConexionMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+        // generateContent envía los headers recién al terminar de generar: la lectura cubre la generación completa
+        HttpClient httpClient = HttpClient.create(conexiones)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutConexionMs)
+                .responseTimeout(Duration.ofSeconds(timeoutLecturaSegundos))
+                .doOnConnected(conexion -> conexion.addHandlerLast(
+                        new ReadTimeoutHandler(timeoutLecturaSegundos, TimeUnit.SECONDS)));
+
         return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl("https://generativelanguage.googleapis.com")
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 // Para API Key de Google AI Studio:
@@ -36,4 +62,4 @@ public class GoogleAiWebClientConfig {
                 }))
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package cl.seguridad.vecinal.configuracion;
+
+import cl.seguridad.vecinal.security.UsuarioActualArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final UsuarioActualArgumentResolver usuarioActualArgumentResolver;
+
+    public WebMvcConfig(UsuarioActualArgumentResolver usuarioActualArgumentResolver) {
+        this.usuarioActualArgumentResolver = usuarioActualArgumentResolver;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(usuarioActualArgumentResolver);
+    }
+}
@@ -5,8 +5,15 @@ import cl.seguridad.vecinal.modelo.Usuario;
 import cl.seguridad.vecinal.modelo.dto.UserCreateRequest;
 import cl.seguridad.vecinal.modelo.dto.UserUpdateRequest;
 import cl.seguridad.vecinal.modelo.dto.UserResponseDto;
+import cl.seguridad.vecinal.security.CacheCuentas;
+import cl.seguridad.vecinal.security.UsuarioActual;
+import cl.seguridad.vecinal.security.UsuarioAutenticado;
+import cl.seguridad.vecinal.service.CacheInformesIa;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService;
+import cl.seguridad.vecinal.service.GoogleAiService;
+import cl.seguridad.vecinal.service.ResumenAlertasService;
+import cl.seguridad.vecinal.service.TrabajosInforme;
 import cl.seguridad.vecinal.service.UserService;
-import cl.seguridad.vecinal.dao.UsuarioRepository;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -15,8 +22,6 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -31,21 +36,27 @@ public class AdminController {
     private UserService userService;
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
-
-    // ✅ MÉTODO HELPER: Obtener usuario actual autenticado
-    private Usuario getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        return usuarioRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuario autenticado no encontrado"));
-    }
+    private CacheCuentas cacheCuentas;
+
+    @Autowired
+    private CatalogoGeograficoService catalogoGeografico;
+
+    @Autowired
+    private CacheInformesIa cacheInformesIa;
+
+    @Autowired
+    private TrabajosInforme trabajosInforme;
+
+    @Autowired
+    private GoogleAiService googleAiService;
+
+    @Autowired
+    private ResumenAlertasService resumenAlertasService;
 
     // ========== DASHBOARD STATS ==========
     @GetMapping("/dashboard/stats")
-    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+    public ResponseEntity<Map<String, Object>> getDashboardStats(@UsuarioActual UsuarioAutenticado currentUser) {
         try {
-            Usuario currentUser = getCurrentUser();
             Long villaId = currentUser.getRole() == Role.ADMIN_VILLA ? currentUser.getVillaId() : null;
 
             UserService.UserStats stats = userService.getUserStats(villaId);
@@ -78,10 +89,10 @@ public class AdminController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "fechaRegistro") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @UsuarioActual UsuarioAutenticado currentUser) {
 
         try {
-            Usuario currentUser = getCurrentUser();
             Long villaId = currentUser.getRole() == Role.ADMIN_VILLA ? currentUser.getVillaId() : null;
 
             Sort sort = sortDir.equals("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
@@ -116,10 +127,10 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> searchUsersGlobal(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @UsuarioActual UsuarioAutenticado currentUser) {
 
         try {
-            Usuario currentUser = getCurrentUser();
             Long villaId = currentUser.getRole() == Role.ADMIN_VILLA ? currentUser.getVillaId() : null;
 
             if (query == null || query.trim().isEmpty()) {
@@ -157,9 +168,10 @@ public class AdminController {
 
     // OBTENER USUARIO POR ID
     @GetMapping("/users/{id}")
-    public ResponseEntity<Map<String, Object>> getUserById(@PathVariable Integer id) {
+    public ResponseEntity<Map<String, Object>> getUserById(
+            @PathVariable Integer id,
+            @UsuarioActual UsuarioAutenticado currentUser) {
         try {
-            Usuario currentUser = getCurrentUser();
             Optional<Usuario> usuarioOpt = userService.getUserById(id);
 
             if (usuarioOpt.isPresent()) {
@@ -224,10 +236,10 @@ public class AdminController {
     @PutMapping("/users/{id}")
     public ResponseEntity<Map<String, Object>> updateUser(
             @PathVariable Integer id,
-            @Valid @RequestBody UserUpdateRequest request) {
+            @Valid @RequestBody UserUpdateRequest request,
+            @UsuarioActual UsuarioAutenticado currentUser) {
 
         try {
-            Usuario currentUser = getCurrentUser();
             Usuario updatedUser = userService.updateUser(id, request, currentUser);
 
             Map<String, Object> response = new HashMap<>();
@@ -254,9 +266,9 @@ public class AdminController {
     @PutMapping("/users/{id}/verification")
     public ResponseEntity<Map<String, Object>> toggleVerification(
             @PathVariable Integer id,
-            @RequestBody(required = false) Map<String, String> body) {
+            @RequestBody(required = false) Map<String, String> body,
+            @UsuarioActual UsuarioAutenticado currentUser) {
         try {
-            Usuario currentUser = getCurrentUser();
             String sector = body != null ? body.get("sector") : null;
 
             Usuario user = userService.toggleVerification(id, sector, currentUser);
@@ -301,10 +313,10 @@ public class AdminController {
     @PutMapping("/users/{id}/role")
     public ResponseEntity<Map<String, Object>> updateUserRole(
             @PathVariable Integer id,
-            @RequestBody Map<String, String> request) {
+            @RequestBody Map<String, String> request,
+            @UsuarioActual UsuarioAutenticado currentUser) {
 
         try {
-            Usuario currentUser = getCurrentUser();
             String roleStr = request.get("role");
 
             if (roleStr == null || roleStr.trim().isEmpty()) {
@@ -348,9 +360,10 @@ public class AdminController {
 
     // ✅ ELIMINAR USUARIO (CON VALIDACIÓN)
     @DeleteMapping("/users/{id}")
-    public ResponseEntity<Map<String, Object>> deleteUser(@PathVariable Integer id) {
+    public ResponseEntity<Map<String, Object>> deleteUser(
+            @PathVariable Integer id,
+            @UsuarioActual UsuarioAutenticado currentUser) {
         try {
-            Usuario currentUser = getCurrentUser();
             userService.deleteUser(id, currentUser);
 
             Map<String, Object> response = new HashMap<>();
@@ -369,9 +382,8 @@ public class AdminController {
 
     // ✅ OBTENER SECTORES DE LA VILLA DEL ADMIN
     @GetMapping("/sectores")
-    public ResponseEntity<Map<String, Object>> obtenerSectores() {
+    public ResponseEntity<Map<String, Object>> obtenerSectores(@UsuarioActual UsuarioAutenticado currentUser) {
         try {
-            Usuario currentUser = getCurrentUser();
             Long villaId = currentUser.getRole() == Role.ADMIN_VILLA ? currentUser.getVillaId() : null;
 
             List<String> sectores = userService.getSectoresByVilla(villaId);
@@ -391,6 +403,94 @@ public class AdminController {
         }
     }
 
+    // ✅ ESTADÍSTICAS DE LA CACHÉ DE CUENTAS (SOLO SUPER_ADMIN)
+    @GetMapping("/cache/cuentas")
+    public ResponseEntity<Map<String, Object>> getCacheCuentasStats(@UsuarioActual UsuarioAutenticado currentUser) {
+        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", "Solo SUPER_ADMIN puede ver las estadísticas de caché");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>(cacheCuentas.estadisticas());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    // ✅ ESTADÍSTICAS DE LA CACHÉ DE INFORMES IA (SOLO SUPER_ADMIN)
+    @GetMapping("/cache/informes")
+    public ResponseEntity<Map<String, Object>> getCacheInformesStats(@UsuarioActual UsuarioAutenticado currentUser) {
+        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", "Solo SUPER_ADMIN puede ver las estadísticas de caché");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>(cacheInformesIa.estadisticas());
+        response.put("status", "success");
+        return ResponseEntity.ok(response);
+    }
+
+    // ✅ ESTADO DEL PIPELINE DE INFORMES: POOL, MODELO DE IA Y CACHÉ (SOLO SUPER_ADMIN)
+    @GetMapping("/informes/estado")
+    public ResponseEntity<Map<String, Object>> getEstadoInformes(@UsuarioActual UsuarioAutenticado currentUser) {
+        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", "Solo SUPER_ADMIN puede ver el estado de los informes");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("pool", trabajosInforme.estadisticas());
+        response.put("ia", googleAiService.estado());
+        response.put("cache", cacheInformesIa.estadisticas());
+        return ResponseEntity.ok(response);
+    }
+
+    // ✅ RECALCULAR EL RESUMEN HORARIO DE ALERTAS DESDE LA TABLA ALERTA (SOLO SUPER_ADMIN)
+    @PostMapping("/alertas/resumen/reconstruir")
+    public ResponseEntity<Map<String, Object>> reconstruirResumenAlertas(@UsuarioActual UsuarioAutenticado currentUser) {
+        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", "Solo SUPER_ADMIN puede reconstruir el resumen de alertas");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        }
+
+        int buckets = resumenAlertasService.reconstruir();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("buckets", buckets);
+        response.put("status", "success");
+        response.put("message", "Resumen horario de alertas reconstruido");
+        return ResponseEntity.ok(response);
+    }
+
+    // ✅ RECARGAR CATÁLOGO GEOGRÁFICO TRAS EDITAR CIUDADES/COMUNAS/VILLAS (SOLO SUPER_ADMIN)
+    @PostMapping("/geografia/recargar")
+    public ResponseEntity<Map<String, Object>> recargarCatalogoGeografico(@UsuarioActual UsuarioAutenticado currentUser) {
+        if (currentUser.getRole() != Role.SUPER_ADMIN) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", "Solo SUPER_ADMIN puede recargar el catálogo geográfico");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
+        }
+
+        CatalogoGeograficoService.Catalogo catalogo = catalogoGeografico.recargar();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("cargadoEn", catalogo.cargadoEn().toString());
+        response.put("version", catalogo.version());
+        response.put("etag", catalogo.etag());
+        response.put("status", "success");
+        response.put("message", "Catálogo geográfico recargado");
+        return ResponseEntity.ok(response);
+    }
+
     // TEST ENDPOINT
     @GetMapping("/test")
     public ResponseEntity<Map<String, String>> testConnection() {
@@ -2,13 +2,15 @@
 package cl.seguridad.vecinal.controller;
 
 import cl.seguridad.vecinal.dao.AlertaRepository;
-import cl.seguridad.vecinal.dao.UsuarioRepository;
 import cl.seguridad.vecinal.modelo.*;
 import cl.seguridad.vecinal.modelo.dto.AlertaCreateRequest;
 import cl.seguridad.vecinal.modelo.dto.CambioEstadoRequest;
 import cl.seguridad.vecinal.modelo.dto.DashboardStatsDto;
 import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.modelo.dto.PaginaCursor;
 import cl.seguridad.vecinal.modelo.mapper.AlertaMapper;
+import cl.seguridad.vecinal.security.UsuarioActual;
+import cl.seguridad.vecinal.security.UsuarioAutenticado;
 import cl.seguridad.vecinal.service.AlertaService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -16,12 +18,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 @RestController
@@ -40,19 +43,20 @@ public class AlertaController {
     private static final String KEY_CURRENT_PAGE = "currentPage";
     private static final String VALUE_SUCCESS = "success";
 
+    private static final List<Map<String, String>> TIPOS_ALERTA = List.copyOf(TipoAlertaEnum.asListOfMaps());
+    private static final String TIPOS_ALERTA_ETAG = "\"tipos-" + Integer.toHexString(TIPOS_ALERTA.hashCode()) + "\"";
+    private static final Instant TIPOS_ALERTA_DESDE = Instant.now();
+
     private final AlertaService alertaService;
     private final AlertaRepository alertaRepository;
-    private final UsuarioRepository usuarioRepository;
     private final AlertaMapper alertaMapper;
 
     // Constructor injection for dependencies
     public AlertaController(AlertaService alertaService,
                             AlertaRepository alertaRepository,
-                            UsuarioRepository usuarioRepository,
                             AlertaMapper alertaMapper) {
         this.alertaService = alertaService;
         this.alertaRepository = alertaRepository;
-        this.usuarioRepository = usuarioRepository;
         this.alertaMapper = alertaMapper;
     }
 
@@ -73,7 +77,15 @@ public class AlertaController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = FIELD_FECHA_HORA) String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(defaultValue = "false") boolean conTotal) {
+
+        // Modo cursor: siempre por fechaHora DESC, ignora page/sortBy/sortDir
+        if (keyset || cursor != null) {
+            return respuestaKeyset(alertaService.obtenerAlertasKeyset(null, null, null, cursor, size, conTotal));
+        }
 
         Sort sort = sortDir.equals("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -103,8 +115,7 @@ public class AlertaController {
     // ========== OBTENER ALERTAS ACTIVAS ==========
     @GetMapping("/activas")
     public ResponseEntity<Map<String, Object>> obtenerAlertasActivas() {
-        List<Alerta> alertas = alertaService.obtenerAlertasActivas();
-        List<AlertaResponseDto> alertasDto = alertaMapper.toDtoList(alertas);
+        List<AlertaResponseDto> alertasDto = alertaService.obtenerAlertasActivas();
         Map<String, Object> response = new HashMap<>();
         response.put(KEY_ALERTAS, alertasDto);
         response.put(KEY_TOTAL, alertasDto.size());
@@ -115,8 +126,7 @@ public class AlertaController {
     // ========== OBTENER ALERTAS RECIENTES (ÚLTIMAS 24 HORAS) ==========
     @GetMapping("/recientes")
     public ResponseEntity<Map<String, Object>> obtenerAlertasRecientes() {
-        List<Alerta> alertas = alertaService.obtenerAlertasRecientes();
-        List<AlertaResponseDto> alertasDto = alertaMapper.toDtoList(alertas);
+        List<AlertaResponseDto> alertasDto = alertaService.obtenerAlertasRecientes();
         Map<String, Object> response = new HashMap<>();
         response.put(KEY_ALERTAS, alertasDto);
         response.put(KEY_TOTAL, alertasDto.size());
@@ -129,11 +139,18 @@ public class AlertaController {
     public ResponseEntity<Map<String, Object>> obtenerAlertasPorUsuario(
             @PathVariable Integer usuarioId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(defaultValue = "false") boolean conTotal) {
+
+        if (keyset || cursor != null) {
+            return respuestaKeyset(alertaService.obtenerAlertasKeyset(null, null, usuarioId, cursor, size, conTotal));
+        }
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(FIELD_FECHA_HORA).descending());
-        Page<Alerta> alertaPage = alertaService.obtenerAlertasPorUsuario(usuarioId, pageable);
-        List<AlertaResponseDto> alertas = alertaMapper.toDtoList(alertaPage.getContent());
+        Page<AlertaResponseDto> alertaPage = alertaService.obtenerAlertasPorUsuario(usuarioId, pageable);
+        List<AlertaResponseDto> alertas = alertaPage.getContent();
         Map<String, Object> response = new HashMap<>();
         response.put(KEY_ALERTAS, alertas);
         response.put(KEY_CURRENT_PAGE, alertaPage.getNumber());
@@ -148,10 +165,28 @@ public class AlertaController {
     public ResponseEntity<Map<String, Object>> obtenerAlertasPorEstado(
             @PathVariable String estado,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(defaultValue = "false") boolean conTotal) {
+
+        // El estado se valida antes de elegir el modo: ambos responden "Estado inválido". Un cursor mal
+        // formado sigue llegando al GlobalExceptionHandler con su propio mensaje
+        EstadoAlerta estadoAlerta;
+        try {
+            estadoAlerta = EstadoAlerta.valueOf(estado.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put(KEY_STATUS, "error");
+            error.put(KEY_MESSAGE, "Estado inválido");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+
+        if (keyset || cursor != null) {
+            return respuestaKeyset(alertaService.obtenerAlertasKeyset(estadoAlerta, null, null, cursor, size, conTotal));
+        }
 
         try {
-            EstadoAlerta estadoAlerta = EstadoAlerta.valueOf(estado.toUpperCase());
             Pageable pageable = PageRequest.of(page, size, Sort.by(FIELD_FECHA_HORA).descending());
             Page<Alerta> alertaPage = alertaService.obtenerAlertasPorEstado(estadoAlerta, pageable);
 
@@ -169,9 +204,10 @@ public class AlertaController {
             return ResponseEntity.ok(response);
 
         } catch (IllegalArgumentException e) {
+            // page o size fuera de rango (PageRequest)
             Map<String, Object> error = new HashMap<>();
             error.put(KEY_STATUS, "error");
-            error.put(KEY_MESSAGE, "Estado inválido");
+            error.put(KEY_MESSAGE, e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -186,10 +222,13 @@ public class AlertaController {
     public ResponseEntity<Map<String, Object>> obtenerAlertasCercanas(
             @RequestParam Double latitud,
             @RequestParam Double longitud,
-            @RequestParam(defaultValue = "5.0") Double radio) {
+            @RequestParam(defaultValue = "5.0") Double radio,
+            @RequestParam(defaultValue = "false") boolean soloActivas) {
 
-        List<Alerta> alertas = alertaService.obtenerAlertasCercanas(latitud, longitud, radio);
-        List<AlertaResponseDto> alertasDto = alertaMapper.toDtoList(alertas);
+        // Las alertas activas se responden desde el índice espacial en memoria
+        List<AlertaResponseDto> alertasDto = soloActivas
+                ? alertaService.obtenerAlertasActivasCercanas(latitud, longitud, radio)
+                : alertaMapper.toDtoList(alertaService.obtenerAlertasCercanas(latitud, longitud, radio));
         Map<String, Object> response = new HashMap<>();
         response.put(KEY_ALERTAS, alertasDto);
         response.put(KEY_TOTAL, alertasDto.size());
@@ -238,13 +277,18 @@ public class AlertaController {
     }
 
     // ========== OBTENER TIPOS DE ALERTA DISPONIBLES ==========
+    // Los tipos son un enum: solo cambian con un despliegue, así que el ETag (hash del contenido) y
+    // Last-Modified (arranque) se calculan una vez y Spring responde 304 a los GET condicionales
     @GetMapping("/tipos")
     public ResponseEntity<Map<String, Object>> obtenerTiposAlerta() {
-        List<Map<String, String>> tipos = TipoAlertaEnum.asListOfMaps();
         Map<String, Object> response = new HashMap<>();
-        response.put("tipos", tipos);
+        response.put("tipos", TIPOS_ALERTA);
         response.put(KEY_STATUS, VALUE_SUCCESS);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .eTag(TIPOS_ALERTA_ETAG)
+                .lastModified(TIPOS_ALERTA_DESDE)
+                .cacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePrivate())
+                .body(response);
     }
 
     // OBTENER ALERTAS POR SECTOR
@@ -252,12 +296,19 @@ public class AlertaController {
     public ResponseEntity<Map<String, Object>> obtenerAlertasPorSector(
             @PathVariable String sector,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean keyset,
+            @RequestParam(defaultValue = "false") boolean conTotal) {
+
+        if (keyset || cursor != null) {
+            return respuestaKeyset(alertaService.obtenerAlertasKeyset(null, sector, null, cursor, size, conTotal));
+        }
 
         Sort sort = Sort.by(FIELD_FECHA_HORA).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Alerta> alertaPage = alertaRepository.findBySector(sector, pageable);
-        List<AlertaResponseDto> alertas = alertaMapper.toDtoList(alertaPage.getContent());
+        Page<AlertaResponseDto> alertaPage = alertaService.obtenerAlertasPorSector(sector, pageable);
+        List<AlertaResponseDto> alertas = alertaPage.getContent();
         Map<String, Object> response = new HashMap<>();
         response.put(KEY_ALERTAS, alertas);
         response.put(KEY_CURRENT_PAGE, alertaPage.getNumber());
@@ -268,6 +319,20 @@ public class AlertaController {
         return ResponseEntity.ok(response);
     }
 
+    // Respuesta común de los feeds por cursor: el cliente reenvía nextCursor para la página siguiente
+    private ResponseEntity<Map<String, Object>> respuestaKeyset(PaginaCursor<AlertaResponseDto> pagina) {
+        Map<String, Object> response = new HashMap<>();
+        response.put(KEY_ALERTAS, pagina.contenido());
+        response.put("nextCursor", pagina.siguienteCursor());
+        response.put("hasNext", pagina.hayMas());
+        response.put("size", pagina.contenido().size());
+        if (pagina.total() != null) {
+            response.put(KEY_TOTAL_ELEMENTS, pagina.total());
+        }
+        response.put(KEY_STATUS, VALUE_SUCCESS);
+        return ResponseEntity.ok(response);
+    }
+
     // ========== ESTADÍSTICAS DE ALERTAS (PARA DASHBOARD) ==========
 
     @GetMapping("/stats")
@@ -275,10 +340,9 @@ public class AlertaController {
             @RequestParam(required = false) Long villaId,
             @RequestParam(required = false) String sector,
             @RequestParam(required = false) String fechaInicio,
-            @RequestParam(required = false) String fechaFin) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        DashboardStatsDto dto = alertaService.obtenerDashboardStats(villaId, sector, fechaInicio, fechaFin, email);
+            @RequestParam(required = false) String fechaFin,
+            @UsuarioActual UsuarioAutenticado currentUser) {
+        DashboardStatsDto dto = alertaService.obtenerDashboardStats(villaId, sector, fechaInicio, fechaFin, currentUser);
         return ResponseEntity.ok(dto);
     }
 
@@ -286,12 +350,8 @@ public class AlertaController {
 
     @GetMapping("/recientes-dashboard")
     public ResponseEntity<Map<String, Object>> getAlertasRecientes(
-            @RequestParam(defaultValue = "10") int limit) {
-
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
-        Usuario currentUser = usuarioRepository.findByEmail(email)
-                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
+            @RequestParam(defaultValue = "10") int limit,
+            @UsuarioActual UsuarioAutenticado currentUser) {
 
         PageRequest pageRequest = PageRequest.of(0, limit, Sort.by(FIELD_FECHA_HORA).descending());
 
@@ -3,48 +3,55 @@ package cl.seguridad.vecinal.dao;
 import cl.seguridad.vecinal.modelo.Alerta;
 import cl.seguridad.vecinal.modelo.EstadoAlerta;
 import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
 
-    // Buscar por sector (sin paginación)
-    List<Alerta> findBySector(String sector);
+    // Los listados que terminan en AlertaResponseDto cargan la ubicación del usuario con Alerta.GRAFO_UBICACION
 
-    // ✅ AGREGAR ESTE MÉTODO (con paginación)
-    Page<Alerta> findBySector(String sector, Pageable pageable);
+    @Override
+    @EntityGraph(Alerta.GRAFO_UBICACION)
+    Page<Alerta> findAll(Pageable pageable);
 
-    // Buscar por sector y estado
-    List<Alerta> findBySectorAndEstado(String sector, EstadoAlerta estado);
+    @Override
+    @EntityGraph(Alerta.GRAFO_UBICACION)
+    Optional<Alerta> findById(Integer id);
 
-    // ✅ AGREGAR ESTE MÉTODO (con paginación)
-    Page<Alerta> findBySectorAndEstado(String sector, EstadoAlerta estado, Pageable pageable);
-
-    // Buscar por sector y estado ordenadas por fecha
-    List<Alerta> findBySectorAndEstadoOrderByFechaHoraDesc(String sector, EstadoAlerta estado);
+    // Los filtros por sector usan sector_id (SectorService resuelve el nombre a ids en memoria)
 
     // Buscar por tipo
     List<Alerta> findByTipo(TipoAlertaEnum tipo);
 
     // Buscar por usuario con paginación
+    @EntityGraph(Alerta.GRAFO_UBICACION)
     Page<Alerta> findByUsuario_UsuarioId(Integer usuarioId, Pageable pageable);
 
     // Buscar por estado con paginación
+    @EntityGraph(Alerta.GRAFO_UBICACION)
     Page<Alerta> findByEstado(EstadoAlerta estado, Pageable pageable);
 
     // Buscar alertas recientes
+    @EntityGraph(Alerta.GRAFO_UBICACION)
     @Query("SELECT a FROM Alerta a WHERE a.fechaHora > :fecha ORDER BY a.fechaHora DESC")
     List<Alerta> findAlertasRecientes(@Param("fecha") LocalDateTime fecha);
 
     // Buscar alertas activas
+    @EntityGraph(Alerta.GRAFO_UBICACION)
     @Query("SELECT a FROM Alerta a WHERE a.estado = 'ACTIVA' ORDER BY a.fechaHora DESC")
     List<Alerta> findAlertasActivas();
 
@@ -58,21 +65,93 @@ public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
     @Query("SELECT COUNT(a) FROM Alerta a WHERE DATE(a.fechaHora) = CURRENT_DATE")
     Long countAlertasHoy();
 
-    // Buscar alertas cercanas (dentro de un radio en km)
-    @Query(value = "SELECT * FROM alerta " +
-            "WHERE (6371 * acos(cos(radians(:lat)) * cos(radians(latitud)) * " +
-            "cos(radians(longitud) - radians(:lng)) + sin(radians(:lat)) * " +
-            "sin(radians(latitud)))) < :radioKm " +
-            "ORDER BY fecha_hora DESC",
+    // ✅ BÚSQUEDA POR PROXIMIDAD CON ÍNDICE DE GRILLA
+    // Prefiltro por celdas + bounding box (usa idx_alerta_celda_geo); la distancia exacta se refina en AlertaService
+    @EntityGraph(Alerta.GRAFO_UBICACION)
+    @Query("SELECT a FROM Alerta a WHERE a.celdaGeo IN :celdas " +
+            "AND a.latitud BETWEEN :latMin AND :latMax " +
+            "AND a.longitud BETWEEN :lngMin AND :lngMax " +
+            "ORDER BY a.fechaHora DESC")
+    List<Alerta> findCandidatasEnCeldas(@Param("celdas") Collection<Integer> celdas,
+                                        @Param("latMin") Double latMin,
+                                        @Param("latMax") Double latMax,
+                                        @Param("lngMin") Double lngMin,
+                                        @Param("lngMax") Double lngMax);
+
+    // Radios muy grandes (demasiadas celdas): solo bounding box
+    @EntityGraph(Alerta.GRAFO_UBICACION)
+    @Query("SELECT a FROM Alerta a WHERE a.latitud BETWEEN :latMin AND :latMax " +
+            "AND a.longitud BETWEEN :lngMin AND :lngMax " +
+            "ORDER BY a.fechaHora DESC")
+    List<Alerta> findCandidatasEnBoundingBox(@Param("latMin") Double latMin,
+                                             @Param("latMax") Double latMax,
+                                             @Param("lngMin") Double lngMin,
+                                             @Param("lngMax") Double lngMax);
+
+    // Completa celda_geo en alertas anteriores a la columna (misma fórmula que GeoUtils.celda)
+    @Modifying
+    @Query(value = "UPDATE alerta SET celda_geo = " +
+            "FLOOR((latitud + 90) / 0.05) * 7200 + LEAST(7199, FLOOR((longitud + 180) / 0.05)) " +
+            "WHERE celda_geo IS NULL",
             nativeQuery = true)
-    List<Alerta> findByUbicacion(@Param("lat") Double latitud,
-                                 @Param("lng") Double longitud,
-                                 @Param("radioKm") Double radioKm);
+    int completarCeldasGeo();
 
     // Obtener últimas 5 alertas
     List<Alerta> findTop5ByOrderByFechaHoraDesc();
 
 
+    // ✅ PROYECCIONES DE LECTURA PARA LISTADOS (AlertaResponseDto directo, sin entidades administradas)
+    // La comuna/ciudad de la alerta tiene prioridad; si falta se usa la de la villa del usuario
+
+    String SELECT_ALERTA_DTO = "SELECT new cl.seguridad.vecinal.modelo.dto.AlertaResponseDto(" +
+            "a.id, u.usuarioId, u.nombre, u.apellido, a.tipo, a.descripcion, a.latitud, a.longitud, " +
+            "a.direccion, a.sector, COALESCE(a.comuna, c.nombre), COALESCE(a.ciudad, ci.nombre), v.nombre, " +
+            "a.estado, a.silenciosa, a.fechaHora, a.atendidaPor, a.fechaAtencion, a.notasAtencion) " +
+            "FROM Alerta a JOIN a.usuario u LEFT JOIN u.villa v LEFT JOIN v.comuna c LEFT JOIN c.ciudad ci ";
+
+    @Query(SELECT_ALERTA_DTO + "WHERE a.estado = 'ACTIVA' ORDER BY a.fechaHora DESC")
+    List<AlertaResponseDto> findActivasDto();
+
+    @Query(SELECT_ALERTA_DTO + "WHERE a.fechaHora > :fecha ORDER BY a.fechaHora DESC")
+    List<AlertaResponseDto> findRecientesDto(@Param("fecha") LocalDateTime fecha);
+
+    @Query(value = SELECT_ALERTA_DTO + "WHERE a.sectorId IN :sectorIds",
+            countQuery = "SELECT COUNT(a) FROM Alerta a WHERE a.sectorId IN :sectorIds")
+    Page<AlertaResponseDto> findDtoBySectorIds(@Param("sectorIds") Collection<Integer> sectorIds, Pageable pageable);
+
+    @Query(value = SELECT_ALERTA_DTO + "WHERE u.usuarioId = :usuarioId",
+            countQuery = "SELECT COUNT(a) FROM Alerta a WHERE a.usuario.usuarioId = :usuarioId")
+    Page<AlertaResponseDto> findDtoByUsuarioId(@Param("usuarioId") Integer usuarioId, Pageable pageable);
+
+    // ✅ PAGINACIÓN POR CURSOR (KEYSET) PARA FEEDS
+    // Sigue desde (cursorFecha, cursorId) hacia atrás en el orden fechaHora DESC, id DESC, sin OFFSET ni COUNT
+
+    String KEYSET_DESDE_CURSOR = "a.fechaHora <= :cursorFecha AND (a.fechaHora < :cursorFecha OR a.id < :cursorId) ";
+    String KEYSET_ORDEN = "ORDER BY a.fechaHora DESC, a.id DESC";
+
+    @Query(SELECT_ALERTA_DTO + "WHERE " + KEYSET_DESDE_CURSOR + KEYSET_ORDEN)
+    List<AlertaResponseDto> findDtoKeyset(@Param("cursorFecha") LocalDateTime cursorFecha,
+                                          @Param("cursorId") Integer cursorId, Limit limite);
+
+    @Query(SELECT_ALERTA_DTO + "WHERE a.estado = :estado AND " + KEYSET_DESDE_CURSOR + KEYSET_ORDEN)
+    List<AlertaResponseDto> findDtoKeysetByEstado(@Param("estado") EstadoAlerta estado,
+                                                  @Param("cursorFecha") LocalDateTime cursorFecha,
+                                                  @Param("cursorId") Integer cursorId, Limit limite);
+
+    @Query(SELECT_ALERTA_DTO + "WHERE a.sectorId IN :sectorIds AND " + KEYSET_DESDE_CURSOR + KEYSET_ORDEN)
+    List<AlertaResponseDto> findDtoKeysetBySectorIds(@Param("sectorIds") Collection<Integer> sectorIds,
+                                                  @Param("cursorFecha") LocalDateTime cursorFecha,
+                                                  @Param("cursorId") Integer cursorId, Limit limite);
+
+    @Query(SELECT_ALERTA_DTO + "WHERE u.usuarioId = :usuarioId AND " + KEYSET_DESDE_CURSOR + KEYSET_ORDEN)
+    List<AlertaResponseDto> findDtoKeysetByUsuarioId(@Param("usuarioId") Integer usuarioId,
+                                                     @Param("cursorFecha") LocalDateTime cursorFecha,
+                                                     @Param("cursorId") Integer cursorId, Limit limite);
+
+    long countBySectorIdIn(Collection<Integer> sectorIds);
+
+    long countByUsuario_UsuarioId(Integer usuarioId);
+
     // ✅ MÉTODOS PARA ESTADÍSTICAS
 
     // Buscar por villa y rango de fechas
@@ -84,24 +163,92 @@ public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
             @Param("fin") LocalDateTime fin
     );
 
-    // Buscar por villa, sector y rango de fechas
-    @Query("SELECT a FROM Alerta a WHERE a.usuario.villa.id = :villaId " +
-            "AND a.sector = :sector AND a.fechaHora BETWEEN :inicio AND :fin")
-    List<Alerta> findByVillaIdAndSectorAndFechaHoraBetween(
-            @Param("villaId") Long villaId,
-            @Param("sector") String sector,
-            @Param("inicio") LocalDateTime inicio,
-            @Param("fin") LocalDateTime fin
-    );
+    // ✅ AGREGADOS EN SQL (GROUP BY) PARA DASHBOARD E INFORME
+    // Todos los filtros son opcionales salvo el rango de fechas; el de sector va por id (ver FiltroAlertas)
 
-    // Buscar por sector y rango de fechas
-    List<Alerta> findBySectorAndFechaHoraBetween(
-            String sector,
-            LocalDateTime inicio,
-            LocalDateTime fin
-    );
+    String WHERE_FILTRO_ESTADISTICAS = "WHERE a.fechaHora BETWEEN :inicio AND :fin " +
+            "AND (:villaId IS NULL OR v.id = :villaId) " +
+            "AND (:filtraSector = false OR a.sectorId IN :sectorIds) " +
+            "AND (:tipo IS NULL OR a.tipo = :tipo) " +
+            "AND (:estado IS NULL OR a.estado = :estado) ";
+
+    String FROM_FILTRO_ESTADISTICAS = "FROM Alerta a LEFT JOIN a.usuario u LEFT JOIN u.villa v LEFT JOIN v.comuna c " +
+            WHERE_FILTRO_ESTADISTICAS;
+
+    // Muestra del informe: el mismo filtro por páginas keyset (fechaHora DESC, id DESC) con LIMIT en la
+    // sentencia; quien llama decide cuántas páginas leer
+    @EntityGraph(Alerta.GRAFO_UBICACION)
+    @Query("SELECT a " + FROM_FILTRO_ESTADISTICAS + "AND " + KEYSET_DESDE_CURSOR + KEYSET_ORDEN)
+    List<Alerta> findFiltradasKeyset(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                     @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                     @Param("estado") EstadoAlerta estado,
+                                     @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin,
+                                     @Param("cursorFecha") LocalDateTime cursorFecha,
+                                     @Param("cursorId") Integer cursorId, Limit limite);
+
+    interface ConteoPorClave {
+        Object getClave();
+        Long getCantidad();
+    }
+
+    interface ConteoPorSector {
+        String getSector();
+        String getVilla();
+        String getComuna();
+        String getComunaUsuario();
+        Long getCantidad();
+    }
+
+    interface TotalesAlertas {
+        Long getTotal();
+        Long getSilenciosas();
+    }
+
+    @Query("SELECT COUNT(a) AS total, SUM(CASE WHEN a.silenciosa = true THEN 1 ELSE 0 END) AS silenciosas " +
+            FROM_FILTRO_ESTADISTICAS)
+    TotalesAlertas contarTotales(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                 @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                 @Param("estado") EstadoAlerta estado,
+                                 @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT a.tipo AS clave, COUNT(a) AS cantidad " + FROM_FILTRO_ESTADISTICAS + "GROUP BY a.tipo")
+    List<ConteoPorClave> contarPorTipo(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                       @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                       @Param("estado") EstadoAlerta estado,
+                                       @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT a.estado AS clave, COUNT(a) AS cantidad " + FROM_FILTRO_ESTADISTICAS + "GROUP BY a.estado")
+    List<ConteoPorClave> contarPorEstado(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                         @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                         @Param("estado") EstadoAlerta estado,
+                                         @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT EXTRACT(HOUR FROM a.fechaHora) AS clave, COUNT(a) AS cantidad " + FROM_FILTRO_ESTADISTICAS +
+            "GROUP BY EXTRACT(HOUR FROM a.fechaHora)")
+    List<ConteoPorClave> contarPorHora(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                       @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                       @Param("estado") EstadoAlerta estado,
+                                       @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    // El conteo por día de la semana se deriva de este en memoria (a lo más un registro por día)
+    @Query("SELECT EXTRACT(DATE FROM a.fechaHora) AS clave, COUNT(a) AS cantidad " + FROM_FILTRO_ESTADISTICAS +
+            "GROUP BY EXTRACT(DATE FROM a.fechaHora)")
+    List<ConteoPorClave> contarPorDia(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                      @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                      @Param("estado") EstadoAlerta estado,
+                                      @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
+
+    // Agrupa por ids; el nombre del sector solo desempata las alertas sin sector_id (usuarios sin villa)
+    @Query("SELECT MAX(a.sector) AS sector, MAX(v.nombre) AS villa, a.comuna AS comuna, MAX(c.nombre) AS comunaUsuario, " +
+            "COUNT(a) AS cantidad " + FROM_FILTRO_ESTADISTICAS +
+            "GROUP BY a.sectorId, CASE WHEN a.sectorId IS NULL THEN a.sector END, v.id, a.comuna, c.id")
+    List<ConteoPorSector> contarPorSector(@Param("villaId") Long villaId, @Param("filtraSector") boolean filtraSector,
+                                          @Param("sectorIds") Collection<Integer> sectorIds, @Param("tipo") TipoAlertaEnum tipo,
+                                          @Param("estado") EstadoAlerta estado,
+                                          @Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
     // Buscar por villa con paginación
+    @EntityGraph(Alerta.GRAFO_UBICACION)
     @Query("SELECT a FROM Alerta a WHERE a.usuario.villa.id = :villaId")
     Page<Alerta> findByVillaId(@Param("villaId") Long villaId, Pageable pageable);
 
@@ -0,0 +1,57 @@
+package cl.seguridad.vecinal.dao;
+
+import cl.seguridad.vecinal.modelo.AlertaResumenHora;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AlertaResumenHoraRepository extends JpaRepository<AlertaResumenHora, Long> {
+
+    // Suma "delta" al bucket, creándolo si no existe
+    @Modifying
+    @Query(value = "INSERT INTO alerta_resumen_hora (hora, villa_id, sector_id, sector, tipo, estado, silenciosa, cantidad) " +
+            "VALUES (:hora, :villaId, :sectorId, :sector, :tipo, :estado, :silenciosa, :delta) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + :delta",
+            nativeQuery = true)
+    int incrementar(@Param("hora") LocalDateTime hora,
+                    @Param("villaId") Long villaId,
+                    @Param("sectorId") Integer sectorId,
+                    @Param("sector") String sector,
+                    @Param("tipo") String tipo,
+                    @Param("estado") String estado,
+                    @Param("silenciosa") boolean silenciosa,
+                    @Param("delta") long delta);
+
+    // Buckets del rango, con filtro opcional de villa y de sectores (por id, como FiltroAlertas)
+    @Query("SELECT r FROM AlertaResumenHora r WHERE r.hora BETWEEN :inicio AND :fin " +
+            "AND r.cantidad > 0 " +
+            "AND (:villaId IS NULL OR r.villaId = :villaId) " +
+            "AND (:filtraSector = false OR r.sectorId IN :sectorIds)")
+    List<AlertaResumenHora> findBuckets(@Param("villaId") Long villaId,
+                                        @Param("filtraSector") boolean filtraSector,
+                                        @Param("sectorIds") Collection<Integer> sectorIds,
+                                        @Param("inicio") LocalDateTime inicio,
+                                        @Param("fin") LocalDateTime fin);
+
+    @Modifying
+    @Query(value = "DELETE FROM alerta_resumen_hora", nativeQuery = true)
+    int vaciar();
+
+    // Recalcula todos los buckets desde la tabla alerta
+    @Modifying
+    @Query(value = "INSERT INTO alerta_resumen_hora (hora, villa_id, sector_id, sector, tipo, estado, silenciosa, cantidad) " +
+            "SELECT DATE_FORMAT(a.fecha_hora, '%Y-%m-%d %H:00:00'), COALESCE(u.villa_id, 0), COALESCE(a.sector_id, 0), " +
+            "COALESCE(a.sector, ''), a.tipo, a.estado, a.silenciosa, COUNT(*) " +
+            "FROM alerta a LEFT JOIN usuario u ON u.usuario_id = a.usuario_id " +
+            "GROUP BY DATE_FORMAT(a.fecha_hora, '%Y-%m-%d %H:00:00'), COALESCE(u.villa_id, 0), COALESCE(a.sector_id, 0), " +
+            "COALESCE(a.sector, ''), a.tipo, a.estado, a.silenciosa",
+            nativeQuery = true)
+    int reconstruirDesdeAlertas();
+}
@@ -2,6 +2,7 @@ package cl.seguridad.vecinal.dao;
 
 import cl.seguridad.vecinal.modelo.Ciudad;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +13,12 @@ public interface CiudadRepository extends JpaRepository<Ciudad, Long> {
     Optional<Ciudad> findByNombre(String nombre);
     List<Ciudad> findByActivoTrue();
     boolean existsByNombre(String nombre);
+
+    // ✅ JERARQUÍA COMPLETA EN UNA CONSULTA: filas (ciudad, comuna|null, villa|null, sector|null), activas e inactivas
+    @Query("SELECT ci, co, v, s FROM Ciudad ci " +
+            "LEFT JOIN Comuna co ON co.ciudad = ci " +
+            "LEFT JOIN Villa v ON v.comuna = co " +
+            "LEFT JOIN Sector s ON s.villa = v " +
+            "ORDER BY ci.id, co.id, v.id, s.id")
+    List<Object[]> findJerarquiaCompleta();
 }
\ No newline at end of file
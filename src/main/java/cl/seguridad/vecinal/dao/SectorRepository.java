@@ -0,0 +1,32 @@
+package cl.seguridad.vecinal.dao;
+
+import cl.seguridad.vecinal.modelo.Sector;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SectorRepository extends JpaRepository<Sector, Integer> {
+    // Sectores creados en la transacción en curso (el catálogo en memoria se recarga después del commit)
+    Optional<Sector> findByVilla_IdAndNombre(Long villaId, String nombre);
+
+    // Crea el sector si no existe. Con la fila ya insertada (o insertándose en otra transacción) no falla:
+    // espera a que esa transacción termine y deja la fila como está
+    @Modifying
+    @Query(value = "INSERT INTO sector (nombre, villa_id) VALUES (:nombre, :villaId) " +
+            "ON DUPLICATE KEY UPDATE nombre = nombre",
+            nativeQuery = true)
+    int insertarSiFalta(@Param("villaId") Long villaId, @Param("nombre") String nombre);
+
+    // Lectura con bloqueo (FOR UPDATE): ve la fila confirmada por otra transacción aunque la lectura
+    // consistente de esta transacción se haya tomado antes. El upsert ya bloqueó esa fila, no agrega espera
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Sector s WHERE s.villa.id = :villaId AND s.nombre = :nombre")
+    Optional<Sector> findParaAsignar(@Param("villaId") Long villaId, @Param("nombre") String nombre);
+}
@@ -1,14 +1,15 @@
 package cl.seguridad.vecinal.dao;
 
-import cl.seguridad.vecinal.modelo.Role;
 import cl.seguridad.vecinal.modelo.Usuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,9 @@ import java.util.Optional;
 public interface UsuarioRepository extends JpaRepository<Usuario,Integer> {
     Optional<Usuario> findByRut(String rut);
     Optional<Usuario> findByEmail(String email);
+    // Para la autenticación: trae la villa en el mismo SELECT (se lee fuera de una sesión de Hibernate)
+    @EntityGraph(attributePaths = "villa")
+    Optional<Usuario> findConVillaByEmail(String email);
     boolean existsUsuarioByEmail (String email);
     boolean existsUsuarioByRut (String rut);
 
@@ -23,46 +27,70 @@ public interface UsuarioRepository extends JpaRepository<Usuario,Integer> {
     @Query("SELECT u FROM Usuario u WHERE u.villa.id = :villaId")
     Page<Usuario> findByVillaId(@Param("villaId") Long villaId, Pageable pageable);
 
-    // ✅ FILTRAR POR VILLA Y SECTOR
-    @Query("SELECT u FROM Usuario u WHERE u.villa.id = :villaId AND u.sector = :sector")
-    Page<Usuario> findByVillaIdAndSector(@Param("villaId") Long villaId, @Param("sector") String sector, Pageable pageable);
+    // ✅ FILTRAR POR VILLA Y SECTOR (sector_id; idx_usuario_villa_sector_id)
+    @Query("SELECT u FROM Usuario u WHERE u.villa.id = :villaId AND u.sectorId = :sectorId")
+    Page<Usuario> findByVillaIdAndSectorId(@Param("villaId") Long villaId, @Param("sectorId") Integer sectorId, Pageable pageable);
 
-    // ✅ CONTAR POR VILLA
-    @Query("SELECT COUNT(u) FROM Usuario u WHERE u.villa.id = :villaId")
-    long countByVillaId(@Param("villaId") Long villaId);
+    // ✅ ESTADÍSTICAS (dashboard): todos los conteos en una pasada con agregación condicional.
+    // villaId null = todas las villas. Sobre una tabla vacía los SUM vuelven null
+    interface EstadisticasUsuarios {
+        Long getTotal();
+        Long getActivos();
+        Long getVerificados();
+        Long getAdmins();
+    }
 
-    @Query("SELECT COUNT(u) FROM Usuario u WHERE u.villa.id = :villaId AND u.verificado = true")
-    long countByVillaIdAndVerificadoTrue(@Param("villaId") Long villaId);
+    @Query("SELECT COUNT(u) AS total, " +
+            "SUM(CASE WHEN u.estadoCuenta = true THEN 1 ELSE 0 END) AS activos, " +
+            "SUM(CASE WHEN u.verificado = true THEN 1 ELSE 0 END) AS verificados, " +
+            "SUM(CASE WHEN u.role IN (cl.seguridad.vecinal.modelo.Role.ADMIN_VILLA, " +
+            "cl.seguridad.vecinal.modelo.Role.SUPER_ADMIN) THEN 1 ELSE 0 END) AS admins " +
+            "FROM Usuario u WHERE (:villaId IS NULL OR u.villa.id = :villaId)")
+    EstadisticasUsuarios contarEstadisticas(@Param("villaId") Long villaId);
 
-    @Query("SELECT COUNT(u) FROM Usuario u WHERE u.villa.id = :villaId AND u.estadoCuenta = true")
-    long countByVillaIdAndEstadoCuentaTrue(@Param("villaId") Long villaId);
+    long countByVerificadoTrue();
 
-    @Query("SELECT COUNT(u) FROM Usuario u WHERE u.villa.id = :villaId AND u.role = :role")
-    long countByVillaIdAndRole(@Param("villaId") Long villaId, @Param("role") Role role);
+    // ✅ BÚSQUEDA DE TEXTO CON FILTRO DE VILLA
+    // MATCH usa el índice FULLTEXT ngram de texto_busqueda; la consulta se arma con TextoBusqueda.consultaBooleana.
+    // Nativa (MATCH no existe en JPQL): el orden va fijo aquí y el Pageable debe venir sin Sort
+    String WHERE_BUSQUEDA_TEXTO = "WHERE MATCH(u.texto_busqueda) AGAINST (:consulta IN BOOLEAN MODE) " +
+            "AND (:villaId IS NULL OR u.villa_id = :villaId) ";
 
-    // ✅ BÚSQUEDA CON FILTRO DE VILLA
-    @Query("SELECT u FROM Usuario u WHERE " +
-            "(:villaId IS NULL OR u.villa.id = :villaId) AND (" +
-            "LOWER(u.nombre) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.apellido) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.rut) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.direccion) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "CAST(u.role AS string) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "(LOWER(:query) LIKE '%activ%' AND u.estadoCuenta = true) OR " +
-            "(LOWER(:query) LIKE '%inactiv%' AND u.estadoCuenta = false) OR " +
-            "(LOWER(:query) LIKE '%verificad%' AND u.verificado = true) OR " +
-            "(LOWER(:query) LIKE '%pendiente%' AND u.verificado = false))")
-    Page<Usuario> searchByTextAndVilla(@Param("query") String query, @Param("villaId") Long villaId, Pageable pageable);
+    @Query(value = "SELECT u.* FROM usuario u " + WHERE_BUSQUEDA_TEXTO +
+            "ORDER BY u.fecha_registro DESC, u.usuario_id DESC",
+            countQuery = "SELECT COUNT(*) FROM usuario u " + WHERE_BUSQUEDA_TEXTO,
+            nativeQuery = true)
+    Page<Usuario> buscarPorTexto(@Param("consulta") String consulta, @Param("villaId") Long villaId, Pageable pageable);
 
-    // Buscar usuarios por sector
-    Page<Usuario> findBySector(String sector, Pageable pageable);
+    // Palabras de estado ("activos", "pendientes", ...; ver TextoBusqueda.analizar): filtran por estado o,
+    // como antes, coinciden con quien las tenga en el texto ("Av. Activa", "Pendientes Sur")
+    String CONDICION_ESTADO = "AND (((:estadoCuenta IS NULL OR u.estado_cuenta = :estadoCuenta) " +
+            "AND (:verificado IS NULL OR u.verificado = :verificado)) " +
+            "OR MATCH(u.texto_busqueda) AGAINST (:consultaEstado IN BOOLEAN MODE)) ";
 
-    // Obtener sectores únicos DE UNA VILLA
-    @Query("SELECT DISTINCT u.sector FROM Usuario u WHERE u.villa.id = :villaId AND u.sector IS NOT NULL AND u.sector <> ''")
-    List<String> findDistinctSectoresByVillaId(@Param("villaId") Long villaId);
+    // El resto de los términos sigue siendo obligatorio y usa el índice
+    @Query(value = "SELECT u.* FROM usuario u " + WHERE_BUSQUEDA_TEXTO + CONDICION_ESTADO +
+            "ORDER BY u.fecha_registro DESC, u.usuario_id DESC",
+            countQuery = "SELECT COUNT(*) FROM usuario u " + WHERE_BUSQUEDA_TEXTO + CONDICION_ESTADO,
+            nativeQuery = true)
+    Page<Usuario> buscarPorTextoYEstado(@Param("consulta") String consulta, @Param("consultaEstado") String consultaEstado,
+                                        @Param("estadoCuenta") Boolean estadoCuenta, @Param("verificado") Boolean verificado,
+                                        @Param("villaId") Long villaId, Pageable pageable);
 
-    // Obtener sectores únicos GLOBALES
-    @Query("SELECT DISTINCT u.sector FROM Usuario u WHERE u.sector IS NOT NULL AND u.sector <> ''")
-    List<String> findDistinctSectores();
-}
\ No newline at end of file
+    // Solo palabras de estado
+    @Query(value = "SELECT u.* FROM usuario u WHERE (:villaId IS NULL OR u.villa_id = :villaId) " + CONDICION_ESTADO +
+            "ORDER BY u.fecha_registro DESC, u.usuario_id DESC",
+            countQuery = "SELECT COUNT(*) FROM usuario u WHERE (:villaId IS NULL OR u.villa_id = :villaId) " +
+                    CONDICION_ESTADO,
+            nativeQuery = true)
+    Page<Usuario> buscarPorEstado(@Param("consultaEstado") String consultaEstado, @Param("estadoCuenta") Boolean estadoCuenta,
+                                  @Param("verificado") Boolean verificado, @Param("villaId") Long villaId,
+                                  Pageable pageable);
+
+    // Buscar usuarios por sector (ids del nombre en cada villa, ver SectorService)
+    Page<Usuario> findBySectorIdIn(Collection<Integer> sectorIds, Pageable pageable);
+
+    // Cuentas desactivadas (SUPER_ADMIN nunca se bloquea) para el modo de autenticación stateless
+    @Query("SELECT u.email FROM Usuario u WHERE u.estadoCuenta = false AND u.role <> cl.seguridad.vecinal.modelo.Role.SUPER_ADMIN")
+    List<String> findEmailsCuentasDesactivadas();
+}
@@ -9,9 +9,28 @@ import java.time.LocalDateTime;
 @Setter
 @Getter
 @Entity
-@Table(name = "alerta")
+@Table(name = "alerta", indexes = {
+        @Index(name = "idx_alerta_celda_geo", columnList = "celda_geo, latitud, longitud"),
+        // Orden de los feeds por cursor; InnoDB agrega alerta_id (PK) al final del índice
+        @Index(name = "idx_alerta_fecha_hora", columnList = "fecha_hora"),
+        // Filtro + orden por fecha de cada listado (ver migración V2__indices_compuestos.sql)
+        @Index(name = "idx_alerta_estado_fecha", columnList = "estado, fecha_hora"),
+        @Index(name = "idx_alerta_sector_id_fecha", columnList = "sector_id, fecha_hora"),
+        @Index(name = "idx_alerta_usuario_fecha", columnList = "usuario_id, fecha_hora"),
+        @Index(name = "idx_alerta_tipo_fecha", columnList = "tipo, fecha_hora")
+})
+// Plan de carga para listados: usuario, villa, comuna y ciudad en el mismo SELECT (lo que lee AlertaResponseDto)
+@NamedEntityGraph(name = Alerta.GRAFO_UBICACION,
+        attributeNodes = @NamedAttributeNode(value = "usuario", subgraph = "usuario"),
+        subgraphs = {
+                @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode(value = "villa", subgraph = "villa")),
+                @NamedSubgraph(name = "villa", attributeNodes = @NamedAttributeNode(value = "comuna", subgraph = "comuna")),
+                @NamedSubgraph(name = "comuna", attributeNodes = @NamedAttributeNode("ciudad"))
+        })
 public class Alerta {
 
+    public static final String GRAFO_UBICACION = "Alerta.conUbicacion";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "alerta_id")
@@ -23,6 +42,10 @@ public class Alerta {
     @Column(length = 1000)
     private String descripcion;
 
+    // Sector del usuario al crear la alerta: sector_id para filtros y agregados, el nombre para las respuestas
+    @Column(name = "sector_id")
+    private Integer sectorId;
+
     @Column(nullable = false)
     private String sector;
 
@@ -52,6 +75,10 @@ public class Alerta {
     @Column(nullable = false)
     private Double longitud;
 
+    // Celda de grilla geográfica (ver GeoUtils.celda), se calcula al crear la alerta
+    @Column(name = "celda_geo")
+    private Integer celdaGeo;
+
     @Column
     private String direccion;
 
@@ -0,0 +1,62 @@
+package cl.seguridad.vecinal.modelo;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Conteo pre-agregado de alertas por hora.
+ * Cada fila es un bucket (hora, villa, sector, tipo, estado, silenciosa) que AlertaService
+ * incrementa o decrementa al crear, cambiar de estado o eliminar una alerta.
+ * El sector se identifica por sectorId; el nombre es la copia de alerta.sector y solo separa
+ * buckets cuando sectorId = 0 (alertas sin sector_id, ver V5__resumen_por_sector_id.sql).
+ * villaId = 0, sectorId = 0 y sector = "" representan alertas sin villa o sin sector (MySQL no
+ * considera iguales los NULL en una clave única).
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "alerta_resumen_hora",
+        uniqueConstraints = @UniqueConstraint(name = "uk_alerta_resumen_bucket",
+                columnNames = {"hora", "villa_id", "sector_id", "sector", "tipo", "estado", "silenciosa"}),
+        indexes = {
+                @Index(name = "idx_alerta_resumen_villa_hora", columnList = "villa_id, hora"),
+                @Index(name = "idx_alerta_resumen_sector_hora", columnList = "sector_id, hora")
+        })
+public class AlertaResumenHora {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Inicio de la hora (minutos y segundos en cero)
+    @Column(nullable = false)
+    private LocalDateTime hora;
+
+    @Column(name = "villa_id", nullable = false)
+    private Long villaId;
+
+    @Column(name = "sector_id", nullable = false)
+    private Integer sectorId;
+
+    @Column(nullable = false)
+    private String sector;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoAlertaEnum tipo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoAlerta estado;
+
+    @Column(nullable = false)
+    private Boolean silenciosa;
+
+    @Column(nullable = false)
+    private Long cantidad;
+}
@@ -1,5 +1,6 @@
 package cl.seguridad.vecinal.modelo;
 
+import cl.seguridad.vecinal.service.CatalogoGeograficoListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -10,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(CatalogoGeograficoListener.class) // recarga el catálogo de /api/geografia
 @Table(name = "comuna")
 @Getter
 @Setter
@@ -0,0 +1,39 @@
+package cl.seguridad.vecinal.modelo;
+
+import cl.seguridad.vecinal.service.CatalogoGeograficoListener;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sector dentro de una villa. Usuario y Alerta lo referencian por {@code sector_id}; el nombre se
+ * resuelve en memoria con {@code CatalogoGeograficoService} (ver migración V3__tabla_sector.sql).
+ */
+@Entity
+@EntityListeners(CatalogoGeograficoListener.class) // recarga el catálogo de /api/geografia
+@Table(name = "sector", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sector_villa_nombre", columnNames = {"villa_id", "nombre"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class Sector {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "sector_id")
+    private Integer id;
+
+    @Column(nullable = false, length = 100)
+    private String nombre;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "villa_id", nullable = false)
+    private Villa villa;
+
+    public Sector(Villa villa, String nombre) {
+        this.villa = villa;
+        this.nombre = nombre;
+    }
+}
@@ -1,5 +1,6 @@
 package cl.seguridad.vecinal.modelo;
 
+import cl.seguridad.vecinal.util.TextoBusqueda;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
@@ -11,6 +12,12 @@ import lombok.Setter;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+        // Listados y conteos por villa (ver migraciones V2__indices_compuestos.sql y V3__tabla_sector.sql)
+        @Index(name = "idx_usuario_villa_sector_id", columnList = "villa_id, sector_id"),
+        @Index(name = "idx_usuario_villa_role", columnList = "villa_id, role"),
+        @Index(name = "idx_usuario_sector_id", columnList = "sector_id")
+})
 @Setter
 @Getter
 @AllArgsConstructor
@@ -48,8 +55,27 @@ public class Usuario {
     private Villa villa;
 
     // ✅ SECTOR DENTRO DE LA VILLA
+    // Filtros y conteos usan sector_id (tabla sector); el nombre queda copiado para las respuestas.
+    // Se asignan juntos con SectorService.asignar
+    @Column(name = "sector_id")
+    @JsonIgnore
+    private Integer sectorId;
+
     private String sector;
 
+    // ✅ TEXTO PARA LA BÚSQUEDA DE ADMINISTRACIÓN
+    // Índice FULLTEXT ngram (V4__busqueda_usuarios.sql); se recalcula en cada INSERT/UPDATE
+    @Column(name = "texto_busqueda", length = 1000)
+    @JsonIgnore
+    private String textoBusqueda;
+
+    @PrePersist
+    @PreUpdate
+    void actualizarTextoBusqueda() {
+        textoBusqueda = TextoBusqueda.documento(nombre, apellido, email, rut, direccion,
+                role != null ? role.name() : null);
+    }
+
     // ✅ CAMPO TEMPORAL PARA RECIBIR villaId DEL JSON
     @Transient
     private Long tempVillaId;
@@ -1,5 +1,6 @@
 package cl.seguridad.vecinal.modelo;
 
+import cl.seguridad.vecinal.service.CatalogoGeograficoListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
@@ -13,6 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(CatalogoGeograficoListener.class) // recarga el catálogo de /api/geografia
 @Setter
 @Getter
 @AllArgsConstructor
@@ -56,9 +58,10 @@ public class Villa {
     @JoinColumn(name = "comuna_id", nullable = false)
     private Comuna comuna;
 
-    // ✅ LISTA DE SECTORES (guardados como JSON o texto separado por comas)
-    @Column(name = "sectores", length = 500)
-    private String sectores; // Ej: "Sector A,Sector B,Sector C,Sector Norte,Sector Sur"
+    // ✅ SECTORES DE LA VILLA (tabla sector; antes texto separado por comas)
+    @OneToMany(mappedBy = "villa", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @OrderBy("id")
+    private List<Sector> sectores = new ArrayList<>();
 
     @OneToMany(mappedBy = "villa", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Usuario> usuarios = new ArrayList<>();
@@ -73,20 +76,4 @@ public class Villa {
     public String getCiudadNombre() {
         return comuna != null && comuna.getCiudad() != null ? comuna.getCiudad().getNombre() : null;
     }
-
-    @Transient
-    public List<String> getSectoresList() {
-        if (sectores == null || sectores.trim().isEmpty()) {
-            return new ArrayList<>();
-        }
-        return List.of(sectores.split(","));
-    }
-
-    public void setSectoresList(List<String> sectoresList) {
-        if (sectoresList == null || sectoresList.isEmpty()) {
-            this.sectores = null;
-        } else {
-            this.sectores = String.join(",", sectoresList);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -76,5 +76,41 @@ public class AlertaResponseDto {
         this.fechaAtencion = alerta.getFechaAtencion();
         this.notasAtencion = alerta.getNotasAtencion();
     }
-}
 
+    // CONSTRUCTOR DE COPIA (el índice espacial entrega copias para que nadie modifique las suyas)
+    public AlertaResponseDto(AlertaResponseDto otra) {
+        this(otra.alertaId, otra.usuarioId, otra.nombreUsuario, otra.apellidoUsuario, otra.tipo, otra.tipoTitulo,
+                otra.tipoDescripcion, otra.descripcion, otra.latitud, otra.longitud, otra.direccion, otra.sector,
+                otra.comuna, otra.ciudad, otra.villaNombre, otra.estado, otra.silenciosa, otra.fechaHora,
+                otra.atendidaPor, otra.fechaAtencion, otra.notasAtencion);
+    }
+
+    // CONSTRUCTOR PARA PROYECCIONES JPQL (SELECT new ...), sin pasar por entidades administradas
+    public AlertaResponseDto(Integer alertaId, Integer usuarioId, String nombreUsuario, String apellidoUsuario,
+                             TipoAlertaEnum tipo, String descripcion, Double latitud, Double longitud,
+                             String direccion, String sector, String comuna, String ciudad, String villaNombre,
+                             EstadoAlerta estado, Boolean silenciosa, LocalDateTime fechaHora,
+                             Integer atendidaPor, LocalDateTime fechaAtencion, String notasAtencion) {
+        this.alertaId = alertaId;
+        this.usuarioId = usuarioId;
+        this.nombreUsuario = nombreUsuario;
+        this.apellidoUsuario = apellidoUsuario;
+        this.tipo = tipo;
+        this.tipoTitulo = tipo != null ? tipo.getTitulo() : null;
+        this.tipoDescripcion = tipo != null ? tipo.getDescripcion() : null;
+        this.descripcion = descripcion;
+        this.latitud = latitud;
+        this.longitud = longitud;
+        this.direccion = direccion;
+        this.sector = sector;
+        this.comuna = comuna;
+        this.ciudad = ciudad;
+        this.villaNombre = villaNombre;
+        this.estado = estado;
+        this.silenciosa = silenciosa;
+        this.fechaHora = fechaHora;
+        this.atendidaPor = atendidaPor;
+        this.fechaAtencion = fechaAtencion;
+        this.notasAtencion = notasAtencion;
+    }
+}
@@ -0,0 +1,42 @@
+package cl.seguridad.vecinal.modelo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en un feed de alertas ordenado por fechaHora DESC, alertaId DESC.
+ * Viaja al cliente como token opaco (Base64 URL) y se devuelve tal cual para pedir la página siguiente.
+ */
+public record CursorAlerta(LocalDateTime fechaHora, Integer alertaId) {
+
+    // Cursor de la primera página: posterior a cualquier alerta real
+    public static final CursorAlerta INICIO = new CursorAlerta(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+
+    private static final String SEPARADOR = "|";
+
+    public static CursorAlerta de(AlertaResponseDto alerta) {
+        return new CursorAlerta(alerta.getFechaHora(), alerta.getAlertaId());
+    }
+
+    public String codificar() {
+        String plano = fechaHora + SEPARADOR + alertaId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Token vacío o nulo = primera página. */
+    public static CursorAlerta decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separador = plano.lastIndexOf(SEPARADOR);
+            return new CursorAlerta(LocalDateTime.parse(plano.substring(0, separador)),
+                    Integer.valueOf(plano.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cl.seguridad.vecinal.modelo.dto;
+
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filtros comunes para las consultas agregadas de alertas (dashboard e informe).
+ * Todos son opcionales salvo el rango. El sector llega resuelto a ids (SectorService):
+ * null = sin filtro de sector, vacío = ningún sector coincide.
+ */
+public record FiltroAlertas(Long villaId,
+                            Set<Integer> sectorIds,
+                            TipoAlertaEnum tipo,
+                            EstadoAlerta estado,
+                            LocalDateTime inicio,
+                            LocalDateTime fin) {
+
+    // IN no acepta una colección vacía: se envía un id que no existe y filtraSector decide si aplica
+    private static final Set<Integer> SIN_SECTORES = Set.of(0);
+
+    public boolean filtraSector() {
+        return sectorIds != null;
+    }
+
+    /** Valor del parámetro :sectorIds de las consultas (nunca vacío). */
+    public Set<Integer> sectorIdsConsulta() {
+        return sectorIds == null || sectorIds.isEmpty() ? SIN_SECTORES : sectorIds;
+    }
+}
@@ -0,0 +1,9 @@
+package cl.seguridad.vecinal.modelo.dto;
+
+import java.util.List;
+
+/**
+ * Página de un feed con paginación por cursor (keyset).
+ * {@code total} es null cuando no se pidió el conteo.
+ */
+public record PaginaCursor<T>(List<T> contenido, String siguienteCursor, boolean hayMas, Long total) {}
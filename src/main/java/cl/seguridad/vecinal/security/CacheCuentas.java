@@ -0,0 +1,76 @@
+package cl.seguridad.vecinal.security;
+
+import cl.seguridad.vecinal.modelo.Role;
+import cl.seguridad.vecinal.modelo.Usuario;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caché en proceso (Caffeine, acotada y con TTL) de los datos de cuenta que necesita la autenticación,
+ * indexada por email. Evita ir a MySQL en cada request autenticada.
+ * <p>
+ * Se guarda una copia inmutable de la cuenta y no el {@code UserDetails}: Spring Security borra la
+ * contraseña del principal después de un login, y un objeto compartido quedaría sin ella.
+ * {@code UserService} invalida la entrada cada vez que modifica la cuenta; el TTL acota lo que puede
+ * quedar desfasado si la base se modifica por fuera de la aplicación.
+ */
+@Component
+public class CacheCuentas {
+
+    /** Lo que la autenticación y {@link UsuarioAutenticado} necesitan de {@link Usuario}, sin referencias a la entidad. */
+    public record Cuenta(Integer usuarioId, String email, String passwordHash, String nombre, String apellido,
+                         Role role, Long villaId, String villaNombre, String sector,
+                         boolean estadoCuenta, boolean verificado) {
+
+        static Cuenta de(Usuario usuario) {
+            return new Cuenta(usuario.getUsuarioId(), usuario.getEmail(), usuario.getPassword(),
+                    usuario.getNombre(), usuario.getApellido(), usuario.getRole(), usuario.getVillaId(),
+                    usuario.getVillaNombre(), usuario.getSector(), usuario.isEstadoCuenta(), usuario.isVerificado());
+        }
+    }
+
+    private final Cache<String, Cuenta> cuentas;
+
+    public CacheCuentas(@Value("${app.auth.cache.max-entries:10000}") long maxEntradas,
+                        @Value("${app.auth.cache.ttl-segundos:300}") long ttlSegundos) {
+        this.cuentas = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Devuelve la cuenta desde la caché o la carga con {@code cargar}. Si la carga lanza una excepción
+     * (usuario inexistente) no se guarda nada.
+     */
+    public Cuenta obtener(String email, Function<String, Usuario> cargar) {
+        return cuentas.get(email, e -> Cuenta.de(cargar.apply(e)));
+    }
+
+    public void invalidar(String email) {
+        if (email != null) {
+            cuentas.invalidate(email);
+        }
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cuentas.stats();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("entradas", cuentas.estimatedSize());
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        resultado.put("desalojos", stats.evictionCount());
+        resultado.put("tiempoPromedioCargaMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return resultado;
+    }
+}
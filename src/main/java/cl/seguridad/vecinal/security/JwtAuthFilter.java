@@ -1,8 +1,7 @@
 package cl.seguridad.vecinal.security;
 
-import cl.seguridad.vecinal.dao.UsuarioRepository;
 import cl.seguridad.vecinal.modelo.Role;
-import cl.seguridad.vecinal.modelo.Usuario;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,23 +23,22 @@ import org.springframework.util.StringUtils;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
     private final UserDetailsService userDetailsService;
-    private final UsuarioRepository usuarioRepository;
+    private final RegistroRevocaciones registroRevocaciones;
 
     // Constructor injection es segura y recomendada; evita nulls y facilita testing
     @Autowired
     public JwtAuthFilter(JwtTokenUtil jwtTokenUtil,
                          UserDetailsService userDetailsService,
-                         UsuarioRepository usuarioRepository) {
+                         RegistroRevocaciones registroRevocaciones) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.userDetailsService = userDetailsService;
-        this.usuarioRepository = usuarioRepository;
+        this.registroRevocaciones = registroRevocaciones;
     }
 
     @Override
@@ -53,19 +51,24 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String jwt = getJwtFromRequest(request);
 
             if (StringUtils.hasText(jwt)) {
-                String username = jwtTokenUtil.getUsernameFromToken(jwt);
+                // Firma y expiración se verifican una sola vez; el resto del filtro trabaja sobre los claims
+                Claims claims = jwtTokenUtil.verificarToken(jwt);
+                String username = claims.getSubject();
 
                 if (StringUtils.hasText(username)
                         && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                    DatabaseAuthResult dbResult = authenticateUsingDatabase(jwt, username, request, response);
+                    DatabaseAuthResult dbResult = registroRevocaciones.isStateless()
+                            ? authenticateStateless(claims, username, request, response)
+                            : authenticateUsingDatabase(claims, username, request, response);
 
                     if (dbResult == DatabaseAuthResult.FORBIDDEN) {
                         return; // respuesta ya escrita
                     }
 
-                    if (dbResult == DatabaseAuthResult.NOT_APPLICABLE) {
-                        authenticateFromClaims(jwt, username, request);
+                    // En modo stateless un token revocado no se autentica por claims
+                    if (dbResult == DatabaseAuthResult.NOT_APPLICABLE && !registroRevocaciones.isStateless()) {
+                        authenticateFromClaims(claims, username, request);
                     }
                 }
             }
@@ -88,20 +91,19 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private enum DatabaseAuthResult { AUTHENTICATED, FORBIDDEN, NOT_APPLICABLE }
 
-    private DatabaseAuthResult authenticateUsingDatabase(String jwt,
+    private DatabaseAuthResult authenticateUsingDatabase(Claims claims,
                                                          String username,
                                                          HttpServletRequest request,
                                                          HttpServletResponse response) {
         try {
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
-            if (Boolean.FALSE.equals(jwtTokenUtil.validateToken(jwt, userDetails))) {
+            if (!jwtTokenUtil.validateClaims(claims, userDetails)) {
                 return DatabaseAuthResult.NOT_APPLICABLE;
             }
 
-            // Verificación adicional: estado de cuenta salvo SUPER_ADMIN
-            Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(username);
-            if (usuarioOpt.isPresent() && isAccountAccessBlocked(usuarioOpt.get())) {
+            // Verificación adicional: estado de cuenta salvo SUPER_ADMIN (ya viene en userDetails, sin otra consulta)
+            if (isAccountAccessBlocked(userDetails)) {
                 logger.warn("⚠️ Intento de acceso con cuenta desactivada: " + username);
                 writeForbiddenResponse(response);
                 return DatabaseAuthResult.FORBIDDEN;
@@ -117,8 +119,40 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
     }
 
-    private boolean isAccountAccessBlocked(Usuario usuario) {
-        return !usuario.isEstadoCuenta() && usuario.getRole() != Role.SUPER_ADMIN;
+    /**
+     * Modo stateless: rol y estado de cuenta salen de los claims firmados; los cambios posteriores a
+     * la emisión del token (desactivación, revocación) se consultan en memoria, sin ir a la base.
+     */
+    private DatabaseAuthResult authenticateStateless(Claims claims,
+                                                     String username,
+                                                     HttpServletRequest request,
+                                                     HttpServletResponse response) throws IOException {
+        boolean superAdmin = Role.SUPER_ADMIN.name().equals(claims.get(JwtTokenUtil.CLAIM_ROLE, String.class));
+
+        if (!superAdmin && registroRevocaciones.isCuentaDesactivada(username)) {
+            logger.warn("⚠️ Intento de acceso con cuenta desactivada: " + username);
+            writeForbiddenResponse(response);
+            return DatabaseAuthResult.FORBIDDEN;
+        }
+
+        // Token emitido antes de un cambio en la cuenta: no autentica, el cliente debe renovarlo
+        if (registroRevocaciones.isRevocado(username, claims.getIssuedAt())) {
+            return DatabaseAuthResult.NOT_APPLICABLE;
+        }
+
+        if (!superAdmin && Boolean.FALSE.equals(claims.get(JwtTokenUtil.CLAIM_ESTADO_CUENTA, Boolean.class))) {
+            logger.warn("⚠️ Intento de acceso con cuenta desactivada: " + username);
+            writeForbiddenResponse(response);
+            return DatabaseAuthResult.FORBIDDEN;
+        }
+
+        authenticateFromClaims(claims, username, request);
+        return DatabaseAuthResult.AUTHENTICATED;
+    }
+
+    private boolean isAccountAccessBlocked(UserDetails userDetails) {
+        return !userDetails.isEnabled() && userDetails.getAuthorities().stream()
+                .noneMatch(a -> ("ROLE_" + Role.SUPER_ADMIN.name()).equals(a.getAuthority()));
     }
 
     private void authenticateWithUserDetails(UserDetails userDetails, HttpServletRequest request) {
@@ -132,12 +166,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 
-    private void authenticateFromClaims(String jwt, String username, HttpServletRequest request) {
-        if (Boolean.FALSE.equals(jwtTokenUtil.validateToken(jwt))) {
-            return;
-        }
-
-        String role = jwtTokenUtil.getRoleFromToken(jwt);
+    private void authenticateFromClaims(Claims claims, String username, HttpServletRequest request) {
+        // Los claims ya vienen verificados (firma y expiración) desde doFilterInternal
+        String role = claims.get(JwtTokenUtil.CLAIM_ROLE, String.class);
         List<GrantedAuthority> authorities = (role != null && !role.isBlank())
                 ? List.of(new SimpleGrantedAuthority("ROLE_" + role))
                 : Collections.emptyList();
@@ -1,6 +1,10 @@
 package cl.seguridad.vecinal.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -13,24 +17,62 @@ import java.security.Key;
 import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtTokenUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    // Claims propios del access token
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_VILLA_ID = "villaId";
+    public static final String CLAIM_ESTADO_CUENTA = "estadoCuenta";
 
     // New expirations for access and refresh tokens
-    @Value("${jwt.access.expiration:300}")
-    private long accessExpiration;
-
-    @Value("${jwt.refresh.expiration:604800}")
-    private long refreshExpiration;
+    private final long accessExpiration;
+    private final long refreshExpiration;
+
+    // La clave y el parser son inmutables y thread-safe: se construyen una sola vez
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    // Tokens ya verificados (Caffeine, acotada); cada entrada vence junto con su token
+    private final Cache<String, Claims> tokensVerificados;
+
+    public JwtTokenUtil(@Value("${jwt.secret}") String secret,
+                        @Value("${jwt.access.expiration:300}") long accessExpiration,
+                        @Value("${jwt.refresh.expiration:604800}") long refreshExpiration,
+                        @Value("${jwt.cache.max-entries:10000}") int maxTokensEnCache) {
+        this.accessExpiration = accessExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.tokensVerificados = maxTokensEnCache > 0
+                ? Caffeine.newBuilder()
+                    .maximumSize(maxTokensEnCache)
+                    .expireAfter(new VenceConElToken())
+                    .build()
+                : null;
+    }
 
     private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signingKey;
+    }
+
+    /**
+     * Verifica firma y expiración una sola vez y devuelve los claims, para que el filtro de
+     * autenticación no vuelva a parsear el token en cada consulta.
+     * Un token que ya se verificó y aún no expira se sirve desde la caché sin recalcular el HMAC.
+     *
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o expiró
+     */
+    public Claims verificarToken(String token) {
+        if (tokensVerificados == null) {
+            return getAllClaimsFromToken(token);
+        }
+        // Ausente o ya vencido: el parser vuelve a validar y lanza ExpiredJwtException si corresponde;
+        // un token inválido no se guarda
+        return tokensVerificados.get(token, this::getAllClaimsFromToken);
     }
 
     public String getUsernameFromToken(String token) {
@@ -41,7 +83,7 @@ public class JwtTokenUtil {
      * Obtiene el rol (claim "role") desde el JWT. Puede ser SUPER_ADMIN, ADMIN_VILLA, etc.
      */
     public String getRoleFromToken(String token) {
-        return getClaimFromToken(token, claims -> claims.get("role", String.class));
+        return getClaimFromToken(token, claims -> claims.get(CLAIM_ROLE, String.class));
     }
 
     public String getJti(String token) {
@@ -58,11 +100,7 @@ public class JwtTokenUtil {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     private Boolean isTokenExpired(String token) {
@@ -70,6 +108,11 @@ public class JwtTokenUtil {
         return expirationDate.before(new Date());
     }
 
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
+    }
+
     /**
      * Valida el token únicamente contra la firma y expiración, sin requerir un UserDetails.
      * Útil como fallback cuando el usuario aún no existe en la base de datos pero el JWT es válido.
@@ -116,4 +159,33 @@ public class JwtTokenUtil {
         final String username = getUsernameFromToken(token);
         return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
     }
-}
\ No newline at end of file
+
+    /**
+     * Igual que {@link #validateToken(String, UserDetails)} pero sobre claims ya verificados.
+     */
+    public boolean validateClaims(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isExpired(claims);
+    }
+
+    // Vencimiento por entrada: el exp del token (tokens sin exp duran lo que un access token)
+    private final class VenceConElToken implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            long restanteMs = expiration != null
+                    ? expiration.getTime() - System.currentTimeMillis()
+                    : accessExpiration * 1000;
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, restanteMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package cl.seguridad.vecinal.security;
+
+import cl.seguridad.vecinal.dao.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estado de cuentas en memoria para el modo de autenticación stateless ({@code app.auth.modo=stateless}).
+ * <p>
+ * El filtro JWT ya no consulta la base por request: el rol y el estado de cuenta viajan firmados en el
+ * access token y aquí se guardan solo los cambios posteriores a su emisión:
+ * <ul>
+ *   <li>cuentas desactivadas (se cargan al arrancar y se actualizan desde {@code UserService});</li>
+ *   <li>revocaciones por usuario: los tokens emitidos antes de la revocación dejan de valer
+ *       (cambio de rol, activación/desactivación, eliminación). Se descartan cuando ya no puede
+ *       existir un access token anterior vigente.</li>
+ * </ul>
+ * El registro es local a la instancia: con varias réplicas cada una debe recibir los cambios.
+ */
+@Component
+public class RegistroRevocaciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistroRevocaciones.class);
+
+    private final UsuarioRepository usuarioRepository;
+    private final boolean stateless;
+    private final long accessExpirationMillis;
+
+    private final Set<String> cuentasDesactivadas = ConcurrentHashMap.newKeySet();
+    // email -> instante (ms, truncado al segundo como el claim iat) desde el que valen los tokens
+    private final Map<String, Long> revocadosDesde = new ConcurrentHashMap<>();
+
+    public RegistroRevocaciones(UsuarioRepository usuarioRepository,
+                                @Value("${app.auth.modo:database}") String modo,
+                                @Value("${jwt.access.expiration:300}") long accessExpiration) {
+        this.usuarioRepository = usuarioRepository;
+        this.stateless = "stateless".equalsIgnoreCase(modo);
+        this.accessExpirationMillis = accessExpiration * 1000;
+    }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarCuentasDesactivadas() {
+        if (!stateless) {
+            return;
+        }
+        cuentasDesactivadas.addAll(usuarioRepository.findEmailsCuentasDesactivadas());
+        logger.info("Modo de autenticación stateless: {} cuentas desactivadas en memoria", cuentasDesactivadas.size());
+    }
+
+    public boolean isCuentaDesactivada(String email) {
+        return cuentasDesactivadas.contains(email);
+    }
+
+    /** ¿El token fue emitido antes de una revocación de su usuario? */
+    public boolean isRevocado(String email, Date emitidoEn) {
+        Long desde = revocadosDesde.get(email);
+        return desde != null && (emitidoEn == null || emitidoEn.getTime() < desde);
+    }
+
+    /** Registra el nuevo estado de la cuenta e invalida los tokens emitidos con el estado anterior. */
+    public void cuentaActualizada(String email, boolean activa) {
+        if (activa) {
+            cuentasDesactivadas.remove(email);
+        } else {
+            cuentasDesactivadas.add(email);
+        }
+        revocar(email);
+    }
+
+    public void cuentaEliminada(String email) {
+        cuentasDesactivadas.remove(email);
+        revocar(email);
+    }
+
+    /** Invalida los access tokens ya emitidos para el usuario; deberá renovarlos con su refresh token. */
+    public void revocar(String email) {
+        long ahora = System.currentTimeMillis();
+        revocadosDesde.put(email, ahora - ahora % 1000);
+        // Pasado el tiempo de vida del access token la revocación ya no tiene tokens que invalidar
+        revocadosDesde.values().removeIf(desde -> desde + accessExpirationMillis < ahora);
+    }
+}
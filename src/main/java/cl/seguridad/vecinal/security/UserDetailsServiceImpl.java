@@ -7,7 +7,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -22,43 +21,41 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
 
     private final UsuarioRepository usuarioRepository;
+    private final CacheCuentas cacheCuentas;
 
     @Autowired
-    public UserDetailsServiceImpl(UsuarioRepository usuarioRepository) {
+    public UserDetailsServiceImpl(UsuarioRepository usuarioRepository, CacheCuentas cacheCuentas) {
         this.usuarioRepository = usuarioRepository;
+        this.cacheCuentas = cacheCuentas;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        logger.debug("[UserDetailsService] Looking up user by email: {}", email);
+        // En régimen estable es una búsqueda en la caché; solo un fallo va a la base
+        CacheCuentas.Cuenta cuenta = cacheCuentas.obtener(email, this::buscarUsuario);
 
-        Usuario usuario = usuarioRepository.findByEmail(email)
-                .orElseThrow(() -> {
-                    logger.warn("[UserDetailsService] User not found: {}", email);
-                    return new UsernameNotFoundException("Usuario no encontrado: " + email);
-                });
-
-        logger.info("[UserDetailsService] User found: {}", usuario.getEmail());
-        logger.debug("[UserDetailsService] - Role: {}", usuario.getRole());
-        logger.debug("[UserDetailsService] - Account enabled: {}", usuario.isEstadoCuenta());
+        logger.debug("[UserDetailsService] - Role: {}", cuenta.role());
+        logger.debug("[UserDetailsService] - Account enabled: {}", cuenta.estadoCuenta());
         // Avoid logging password/hash for security reasons
 
         List<GrantedAuthority> authorities = new ArrayList<>();
         // Opción A: usar roles con prefijo ROLE_ para compatibilidad con hasRole/hasAnyRole
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + usuario.getRole().name()));
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + cuenta.role().name()));
 
-        UserDetails userDetails = new User(
-                usuario.getEmail(),
-                usuario.getPassword(),  // ✅ Este es el hash que Spring Security comparará
-                usuario.isEstadoCuenta(), // enabled
-                true,  // accountNonExpired
-                true,  // credentialsNonExpired
-                true,  // accountNonLocked
-                authorities
-        );
+        // Instancia nueva en cada llamada: Spring Security borra la contraseña del principal tras el login
+        return new UsuarioAutenticado(cuenta, authorities);
+    }
 
-        logger.debug("[UserDetailsService] UserDetails created successfully for {}", usuario.getEmail());
+    private Usuario buscarUsuario(String email) {
+        logger.debug("[UserDetailsService] Looking up user by email: {}", email);
+
+        Usuario usuario = usuarioRepository.findConVillaByEmail(email)
+                .orElseThrow(() -> {
+                    logger.warn("[UserDetailsService] User not found: {}", email);
+                    return new UsernameNotFoundException("Usuario no encontrado: " + email);
+                });
 
-        return userDetails;
+        logger.debug("[UserDetailsService] User found: {}", usuario.getEmail());
+        return usuario;
     }
 }
\ No newline at end of file
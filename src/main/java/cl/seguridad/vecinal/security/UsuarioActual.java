@@ -0,0 +1,15 @@
+package cl.seguridad.vecinal.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Inyecta el {@link UsuarioAutenticado} de la request en un parámetro de controlador.
+ * Lo resuelve {@link UsuarioActualArgumentResolver}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UsuarioActual {
+}
@@ -0,0 +1,59 @@
+package cl.seguridad.vecinal.security;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resuelve los parámetros {@code @UsuarioActual UsuarioAutenticado}.
+ * <p>
+ * Normalmente el principal ya es un {@link UsuarioAutenticado} (lo cargó {@code JwtAuthFilter}) y se
+ * devuelve tal cual. Si la request se autenticó solo con los claims del JWT (modo stateless o
+ * fallback), se carga por email desde {@link UserDetailsService}, que responde desde la caché de cuentas.
+ */
+@Component
+public class UsuarioActualArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final UserDetailsService userDetailsService;
+
+    public UsuarioActualArgumentResolver(UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(UsuarioActual.class)
+                && UsuarioAutenticado.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public UsuarioAutenticado resolveArgument(@NonNull MethodParameter parameter,
+                                              ModelAndViewContainer mavContainer,
+                                              @NonNull NativeWebRequest webRequest,
+                                              WebDataBinderFactory binderFactory) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            throw new EntityNotFoundException("Usuario autenticado no encontrado");
+        }
+        if (auth.getPrincipal() instanceof UsuarioAutenticado usuario) {
+            return usuario;
+        }
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(auth.getName());
+            return (UsuarioAutenticado) userDetails;
+        } catch (UsernameNotFoundException ex) {
+            throw new EntityNotFoundException("Usuario autenticado no encontrado");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cl.seguridad.vecinal.security;
+
+import cl.seguridad.vecinal.modelo.Role;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal de las requests autenticadas: además de lo que exige Spring Security trae los datos del
+ * usuario que usan los controladores (id, rol, villa, sector, nombre), así no hace falta volver a
+ * buscarlo en la base. Se inyecta con {@link UsuarioActual}.
+ */
+@Getter
+public class UsuarioAutenticado extends User {
+
+    private final Integer usuarioId;
+    private final String nombre;
+    private final String apellido;
+    private final Role role;
+    private final Long villaId;
+    private final String villaNombre;
+    private final String sector;
+    private final boolean verificado;
+
+    public UsuarioAutenticado(CacheCuentas.Cuenta cuenta, Collection<? extends GrantedAuthority> authorities) {
+        super(cuenta.email(), cuenta.passwordHash(), cuenta.estadoCuenta(), true, true, true, authorities);
+        this.usuarioId = cuenta.usuarioId();
+        this.nombre = cuenta.nombre();
+        this.apellido = cuenta.apellido();
+        this.role = cuenta.role();
+        this.villaId = cuenta.villaId();
+        this.villaNombre = cuenta.villaNombre();
+        this.sector = cuenta.sector();
+        this.verificado = cuenta.verificado();
+    }
+
+    public String getEmail() {
+        return getUsername();
+    }
+}
@@ -0,0 +1,315 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acumula las estadísticas de alertas en una sola pasada.
+ * <p>
+ * Los contadores son arreglos primitivos indexados por ordinal del enum, hora del día, día de la
+ * semana y día del rango; los sectores van en una tabla de direccionamiento abierto. Así recorrer
+ * un rango grande no crea un {@code Long} por alerta: solo se generan mapas al leer el resultado,
+ * con tantas entradas como claves distintas.
+ * <p>
+ * Acepta observaciones con peso (buckets del resumen horario) y conteos por dimensión (filas de un
+ * GROUP BY). No es thread-safe: cada consulta usa su propia instancia.
+ */
+public final class AgregadorAlertas {
+
+    /**
+     * Compone la clave de sector a partir de sector, villa y comuna.
+     * Si devuelve null la observación no cuenta en el conteo por sector.
+     */
+    @FunctionalInterface
+    public interface ClaveSector {
+        String de(String sector, String villa, String comuna);
+    }
+
+    /** Clave = nombre del sector; los sectores vacíos no se cuentan. */
+    public static final ClaveSector SOLO_SECTOR = (sector, villa, comuna) ->
+            sector == null || sector.isBlank() ? null : sector;
+
+    private static final TipoAlertaEnum[] TIPOS = TipoAlertaEnum.values();
+    private static final EstadoAlerta[] ESTADOS = EstadoAlerta.values();
+    private static final DayOfWeek[] DIAS_SEMANA = DayOfWeek.values();
+    private static final int CAPACIDAD_INICIAL_SECTORES = 16;
+
+    private final ClaveSector claveSector;
+
+    private long total;
+    private long silenciosas;
+    private final long[] porTipo = new long[TIPOS.length];
+    private final long[] porEstado = new long[ESTADOS.length];
+    private final long[] porHora = new long[24];
+    private final long[] porDiaSemana = new long[DIAS_SEMANA.length];
+
+    // Conteo diario: posición = epochDay - primerDia; el arreglo crece hacia ambos lados
+    private long primerDia;
+    private long[] porDia = new long[0];
+
+    // Sectores: sondeo lineal sobre arreglos paralelos, capacidad siempre potencia de 2
+    private String[] sectores = new String[CAPACIDAD_INICIAL_SECTORES];
+    private long[] cantidadSector = new long[CAPACIDAD_INICIAL_SECTORES];
+    private int numSectores;
+
+    public AgregadorAlertas() {
+        this(SOLO_SECTOR);
+    }
+
+    public AgregadorAlertas(ClaveSector claveSector) {
+        this.claveSector = claveSector;
+    }
+
+    // ===================== ENTRADA =====================
+
+    /**
+     * Observación con peso: cuenta como {@code cantidad} alertas con los mismos atributos.
+     */
+    public void agregar(LocalDateTime fechaHora, TipoAlertaEnum tipo, EstadoAlerta estado, boolean silenciosa,
+                        String sector, String villa, String comuna, long cantidad) {
+        sumarTotales(cantidad, silenciosa ? cantidad : 0);
+        sumarTipo(tipo, cantidad);
+        sumarEstado(estado, cantidad);
+        if (fechaHora != null) {
+            sumarHora(fechaHora.getHour(), cantidad);
+            sumarDia(fechaHora.toLocalDate(), cantidad);
+        }
+        sumarSector(sector, villa, comuna, cantidad);
+    }
+
+    public void sumarTotales(long cantidad, long silenciosasEnCantidad) {
+        total += cantidad;
+        silenciosas += silenciosasEnCantidad;
+    }
+
+    public void sumarTipo(TipoAlertaEnum tipo, long cantidad) {
+        if (tipo != null) {
+            porTipo[tipo.ordinal()] += cantidad;
+        }
+    }
+
+    public void sumarEstado(EstadoAlerta estado, long cantidad) {
+        if (estado != null) {
+            porEstado[estado.ordinal()] += cantidad;
+        }
+    }
+
+    public void sumarHora(int hora, long cantidad) {
+        if (hora >= 0 && hora < porHora.length) {
+            porHora[hora] += cantidad;
+        }
+    }
+
+    /** Suma al día y también a su día de la semana. */
+    public void sumarDia(LocalDate dia, long cantidad) {
+        if (dia == null) {
+            return;
+        }
+        porDiaSemana[dia.getDayOfWeek().ordinal()] += cantidad;
+        int indice = indiceDia(dia.toEpochDay()); // puede reemplazar el arreglo, se resuelve antes de indexar
+        porDia[indice] += cantidad;
+    }
+
+    public void sumarSector(String sector, String villa, String comuna, long cantidad) {
+        String clave = claveSector.de(sector, villa, comuna);
+        if (clave == null) {
+            return;
+        }
+        int mascara = sectores.length - 1;
+        int i = mezclar(clave.hashCode()) & mascara;
+        while (sectores[i] != null) {
+            if (sectores[i].equals(clave)) {
+                cantidadSector[i] += cantidad;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        sectores[i] = clave;
+        cantidadSector[i] = cantidad;
+        if (++numSectores * 2 > sectores.length) {
+            redimensionarSectores();
+        }
+    }
+
+    // ===================== RESULTADOS =====================
+
+    public long total() {
+        return total;
+    }
+
+    public long silenciosas() {
+        return silenciosas;
+    }
+
+    public Map<TipoAlertaEnum, Long> porTipo() {
+        Map<TipoAlertaEnum, Long> mapa = new EnumMap<>(TipoAlertaEnum.class);
+        for (TipoAlertaEnum tipo : TIPOS) {
+            if (porTipo[tipo.ordinal()] > 0) {
+                mapa.put(tipo, porTipo[tipo.ordinal()]);
+            }
+        }
+        return mapa;
+    }
+
+    public Map<EstadoAlerta, Long> porEstado() {
+        Map<EstadoAlerta, Long> mapa = new EnumMap<>(EstadoAlerta.class);
+        for (EstadoAlerta estado : ESTADOS) {
+            if (porEstado[estado.ordinal()] > 0) {
+                mapa.put(estado, porEstado[estado.ordinal()]);
+            }
+        }
+        return mapa;
+    }
+
+    /** Horas con alertas, de 0 a 23. */
+    public Map<Integer, Long> porHora() {
+        Map<Integer, Long> mapa = new LinkedHashMap<>();
+        for (int hora = 0; hora < porHora.length; hora++) {
+            if (porHora[hora] > 0) {
+                mapa.put(hora, porHora[hora]);
+            }
+        }
+        return mapa;
+    }
+
+    public long porDiaSemana(DayOfWeek dia) {
+        return porDiaSemana[dia.ordinal()];
+    }
+
+    /** Días con alertas en orden cronológico. */
+    public Map<LocalDate, Long> porDia() {
+        return porDia(null);
+    }
+
+    /** Días con alertas desde {@code desde} (inclusive) en orden cronológico. */
+    public Map<LocalDate, Long> porDia(LocalDate desde) {
+        int inicio = desde == null ? 0 : (int) Math.max(0, Math.min(porDia.length, desde.toEpochDay() - primerDia));
+        Map<LocalDate, Long> mapa = new LinkedHashMap<>();
+        for (int i = inicio; i < porDia.length; i++) {
+            if (porDia[i] > 0) {
+                mapa.put(LocalDate.ofEpochDay(primerDia + i), porDia[i]);
+            }
+        }
+        return mapa;
+    }
+
+    public Map<String, Long> porSector() {
+        Map<String, Long> mapa = new HashMap<>(numSectores * 2);
+        for (int i = 0; i < sectores.length; i++) {
+            if (sectores[i] != null) {
+                mapa.put(sectores[i], cantidadSector[i]);
+            }
+        }
+        return mapa;
+    }
+
+    public int numSectores() {
+        return numSectores;
+    }
+
+    /** Los {@code n} sectores con más alertas, de mayor a menor. */
+    public List<Map.Entry<String, Long>> topSectores(int n) {
+        int[] top = new int[Math.max(0, Math.min(n, numSectores))];
+        int llenos = 0;
+        for (int i = 0; i < sectores.length && top.length > 0; i++) {
+            if (sectores[i] == null) {
+                continue;
+            }
+            // Inserción ordenada en el arreglo de candidatos (n es pequeño)
+            int pos = llenos < top.length ? llenos++ : top.length;
+            while (pos > 0 && cantidadSector[top[pos - 1]] < cantidadSector[i]) {
+                if (pos < top.length) {
+                    top[pos] = top[pos - 1];
+                }
+                pos--;
+            }
+            if (pos < top.length) {
+                top[pos] = i;
+            }
+        }
+        List<Map.Entry<String, Long>> resultado = new ArrayList<>(llenos);
+        for (int k = 0; k < llenos; k++) {
+            resultado.add(Map.entry(sectores[top[k]], cantidadSector[top[k]]));
+        }
+        return resultado;
+    }
+
+    /** Media de alertas por día, considerando solo los días con alertas. */
+    public double mediaDiaria() {
+        long suma = 0;
+        int dias = 0;
+        for (long cantidad : porDia) {
+            if (cantidad > 0) {
+                suma += cantidad;
+                dias++;
+            }
+        }
+        return dias == 0 ? 0.0 : (double) suma / dias;
+    }
+
+    /** Mediana de alertas por día, considerando solo los días con alertas. */
+    public double medianaDiaria() {
+        long[] valores = Arrays.stream(porDia).filter(c -> c > 0).sorted().toArray();
+        int n = valores.length;
+        if (n == 0) {
+            return 0.0;
+        }
+        return n % 2 == 1 ? valores[n / 2] : (valores[n / 2 - 1] + valores[n / 2]) / 2.0;
+    }
+
+    // ===================== INTERNOS =====================
+
+    private int indiceDia(long epochDay) {
+        if (porDia.length == 0) {
+            primerDia = epochDay;
+            porDia = new long[32];
+        }
+        long indice = epochDay - primerDia;
+        if (indice < 0) {
+            int faltan = (int) -indice;
+            long[] nuevo = new long[porDia.length + Math.max(faltan, porDia.length / 2)];
+            int desplazamiento = nuevo.length - porDia.length;
+            System.arraycopy(porDia, 0, nuevo, desplazamiento, porDia.length);
+            porDia = nuevo;
+            primerDia -= desplazamiento;
+            indice = epochDay - primerDia;
+        } else if (indice >= porDia.length) {
+            porDia = Arrays.copyOf(porDia, (int) Math.max(indice + 1, porDia.length * 2L));
+        }
+        return (int) indice;
+    }
+
+    private void redimensionarSectores() {
+        String[] claves = sectores;
+        long[] cantidades = cantidadSector;
+        sectores = new String[claves.length * 2];
+        cantidadSector = new long[claves.length * 2];
+        int mascara = sectores.length - 1;
+        for (int j = 0; j < claves.length; j++) {
+            if (claves[j] == null) {
+                continue;
+            }
+            int i = mezclar(claves[j].hashCode()) & mascara;
+            while (sectores[i] != null) {
+                i = (i + 1) & mascara;
+            }
+            sectores[i] = claves[j];
+            cantidadSector[i] = cantidades[j];
+        }
+    }
+
+    private static int mezclar(int h) {
+        return h ^ (h >>> 16);
+    }
+}
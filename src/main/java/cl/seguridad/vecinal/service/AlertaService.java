@@ -4,37 +4,82 @@ package cl.seguridad.vecinal.service;
 import cl.seguridad.vecinal.dao.AlertaRepository;
 import cl.seguridad.vecinal.dao.UsuarioRepository;
 import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.AlertaResumenHora;
 import cl.seguridad.vecinal.modelo.EstadoAlerta;
 import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
 import cl.seguridad.vecinal.modelo.Usuario;
 import cl.seguridad.vecinal.modelo.dto.AlertaCreateRequest;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.modelo.dto.CursorAlerta;
+import cl.seguridad.vecinal.modelo.dto.FiltroAlertas;
 import cl.seguridad.vecinal.modelo.dto.DashboardStatsDto;
+import cl.seguridad.vecinal.modelo.dto.PaginaCursor;
 import cl.seguridad.vecinal.modelo.Role;
+import cl.seguridad.vecinal.security.UsuarioAutenticado;
+import cl.seguridad.vecinal.util.GeoUtils;
+import cl.seguridad.vecinal.util.Transacciones;
 import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 @Service
 @Transactional
 public class AlertaService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AlertaService.class);
+
     private final AlertaRepository alertaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final IndiceEspacialAlertas indiceEspacial;
+    private final ResumenAlertasService resumenAlertasService;
+    private final SectorService sectorService;
+    private final CacheInformesIa cacheInformesIa;
+    private final boolean dashboardDesdeResumen;
+    private final int filasPorPagina;
+    private final int maxFilasMuestra;
+    // Sube con cada alta, cambio de estado o baja confirmados; marca de agua de los informes en caché
+    private final AtomicLong versionDatos = new AtomicLong();
 
     @Autowired
-    public AlertaService(AlertaRepository alertaRepository, UsuarioRepository usuarioRepository) {
+    public AlertaService(AlertaRepository alertaRepository,
+                         UsuarioRepository usuarioRepository,
+                         IndiceEspacialAlertas indiceEspacial,
+                         ResumenAlertasService resumenAlertasService,
+                         SectorService sectorService,
+                         CacheInformesIa cacheInformesIa,
+                         @Value("${app.alertas.resumen.habilitado:true}") boolean dashboardDesdeResumen,
+                         @Value("${app.alertas.lectura.filas-por-pagina:500}") int filasPorPagina,
+                         @Value("${app.alertas.muestra.max-filas:5000}") int maxFilasMuestra) {
         this.alertaRepository = alertaRepository;
         this.usuarioRepository = usuarioRepository;
+        this.indiceEspacial = indiceEspacial;
+        this.resumenAlertasService = resumenAlertasService;
+        this.sectorService = sectorService;
+        this.cacheInformesIa = cacheInformesIa;
+        this.dashboardDesdeResumen = dashboardDesdeResumen;
+        this.filasPorPagina = Math.max(1, filasPorPagina);
+        this.maxFilasMuestra = Math.max(1, maxFilasMuestra);
     }
 
 
@@ -62,15 +107,21 @@ public class AlertaService {
 
         alerta.setLatitud(request.getLatitud());
         alerta.setLongitud(request.getLongitud());
+        alerta.setCeldaGeo(GeoUtils.celda(request.getLatitud(), request.getLongitud()));
         alerta.setDireccion(request.getDireccion());
-        alerta.setSector(usuario.getSector());          // ← Del usuario en BD
+        sectorService.asignar(alerta, usuario);         // ← Sector (id y nombre) del usuario en BD
         alerta.setComuna(usuario.getComunaNombre());    // ← "San Bernardo"
         alerta.setCiudad(usuario.getCiudadNombre());    // ← "Santiago"
         alerta.setSilenciosa(Boolean.TRUE.equals(request.getSilenciosa()));
         alerta.setEstado(EstadoAlerta.ACTIVA);
         alerta.setFechaHora(LocalDateTime.now());
 
-        return alertaRepository.save(alerta);
+        Alerta guardada = alertaRepository.save(alerta);
+        resumenAlertasService.registrarAlta(guardada);
+        AlertaResponseDto snapshot = new AlertaResponseDto(guardada);
+        Transacciones.despuesDelCommit(() -> indiceEspacial.registrar(snapshot));
+        registrarModificacion(guardada.getFechaHora());
+        return guardada;
     }
 
     // Obtener todas las alertas con paginación
@@ -83,15 +134,17 @@ public class AlertaService {
         return alertaRepository.findById(id);
     }
 
-    // Obtener alertas activas
-    public List<Alerta> obtenerAlertasActivas() {
-        return alertaRepository.findAlertasActivas();
+    // Obtener alertas activas (proyección de lectura)
+    @Transactional(readOnly = true)
+    public List<AlertaResponseDto> obtenerAlertasActivas() {
+        return alertaRepository.findActivasDto();
     }
 
-    // Obtener alertas recientes (últimas 24 horas)
-    public List<Alerta> obtenerAlertasRecientes() {
+    // Obtener alertas recientes (últimas 24 horas, proyección de lectura)
+    @Transactional(readOnly = true)
+    public List<AlertaResponseDto> obtenerAlertasRecientes() {
         LocalDateTime hace24Horas = LocalDateTime.now().minusHours(24);
-        return alertaRepository.findAlertasRecientes(hace24Horas);
+        return alertaRepository.findRecientesDto(hace24Horas);
     }
     // Obtener alertas ultimo Mes
     public List<Alerta> obtenerAlertasMes() {
@@ -105,9 +158,21 @@ public class AlertaService {
         return alertaRepository.findAlertasRecientes(dosMeses);
     }
 
-    // Obtener alertas por usuario
-    public Page<Alerta> obtenerAlertasPorUsuario(Integer usuarioId, Pageable pageable) {
-        return alertaRepository.findByUsuario_UsuarioId(usuarioId, pageable);
+    // Obtener alertas por usuario (proyección de lectura)
+    @Transactional(readOnly = true)
+    public Page<AlertaResponseDto> obtenerAlertasPorUsuario(Integer usuarioId, Pageable pageable) {
+        return alertaRepository.findDtoByUsuarioId(usuarioId, pageable);
+    }
+
+    // Obtener alertas por sector (proyección de lectura)
+    @Transactional(readOnly = true)
+    public Page<AlertaResponseDto> obtenerAlertasPorSector(String sector, Pageable pageable) {
+        // El nombre puede repetirse en varias villas: se buscan todos sus ids
+        Set<Integer> sectorIds = sectorService.idsPorNombre(null, sector);
+        if (sectorIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return alertaRepository.findDtoBySectorIds(sectorIds, pageable);
     }
 
     // Obtener alertas por estado
@@ -115,14 +180,99 @@ public class AlertaService {
         return alertaRepository.findByEstado(estado, pageable);
     }
 
+    /**
+     * Feed de alertas paginado por cursor (keyset), de la más reciente a la más antigua.
+     * Acepta a lo más un filtro (estado, sector o usuario); el costo por página no depende
+     * de la profundidad. El conteo total solo se calcula si se pide.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<AlertaResponseDto> obtenerAlertasKeyset(EstadoAlerta estado, String sector, Integer usuarioId,
+                                                                String cursor, int size, boolean conTotal) {
+        CursorAlerta desde = CursorAlerta.decodificar(cursor);
+        int tamano = Math.max(1, Math.min(size, 100));
+        // Se pide una fila extra para saber si hay página siguiente sin contar
+        Limit limite = Limit.of(tamano + 1);
+
+        List<AlertaResponseDto> filas;
+        Long total = null;
+        if (estado != null) {
+            filas = alertaRepository.findDtoKeysetByEstado(estado, desde.fechaHora(), desde.alertaId(), limite);
+            if (conTotal) total = alertaRepository.countByEstado(estado);
+        } else if (sector != null) {
+            Set<Integer> sectorIds = sectorService.idsPorNombre(null, sector);
+            filas = sectorIds.isEmpty() ? List.of()
+                    : alertaRepository.findDtoKeysetBySectorIds(sectorIds, desde.fechaHora(), desde.alertaId(), limite);
+            if (conTotal) total = sectorIds.isEmpty() ? 0L : alertaRepository.countBySectorIdIn(sectorIds);
+        } else if (usuarioId != null) {
+            filas = alertaRepository.findDtoKeysetByUsuarioId(usuarioId, desde.fechaHora(), desde.alertaId(), limite);
+            if (conTotal) total = alertaRepository.countByUsuario_UsuarioId(usuarioId);
+        } else {
+            filas = alertaRepository.findDtoKeyset(desde.fechaHora(), desde.alertaId(), limite);
+            if (conTotal) total = alertaRepository.count();
+        }
+
+        boolean hayMas = filas.size() > tamano;
+        List<AlertaResponseDto> contenido = hayMas ? filas.subList(0, tamano) : filas;
+        String siguiente = hayMas ? CursorAlerta.de(contenido.get(contenido.size() - 1)).codificar() : null;
+        return new PaginaCursor<>(contenido, siguiente, hayMas, total);
+    }
+
     // Obtener alertas por tipo
     public List<Alerta> obtenerAlertasPorTipo(TipoAlertaEnum tipo) {
         return alertaRepository.findByTipo(tipo);
     }
 
     // Obtener alertas cercanas a una ubicación
+    // Prefiltro indexado por celdas de grilla + bounding box, distancia exacta solo sobre candidatas
     public List<Alerta> obtenerAlertasCercanas(Double latitud, Double longitud, Double radioKm) {
-        return alertaRepository.findByUbicacion(latitud, longitud, radioKm);
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(latitud, longitud, radioKm);
+        List<Integer> celdas = GeoUtils.celdasEnBoundingBox(box);
+
+        List<Alerta> candidatas = celdas.isEmpty()
+                ? alertaRepository.findCandidatasEnBoundingBox(box.latMin(), box.latMax(), box.lngMin(), box.lngMax())
+                : alertaRepository.findCandidatasEnCeldas(celdas, box.latMin(), box.latMax(), box.lngMin(), box.lngMax());
+
+        return candidatas.stream()
+                .filter(a -> GeoUtils.distanciaKm(latitud, longitud, a.getLatitud(), a.getLongitud()) < radioKm)
+                .toList();
+    }
+
+    // Obtener alertas ACTIVAS cercanas desde el índice en memoria (sin consultar la BD)
+    public List<AlertaResponseDto> obtenerAlertasActivasCercanas(Double latitud, Double longitud, Double radioKm) {
+        return indiceEspacial.buscarCercanas(latitud, longitud, radioKm);
+    }
+
+    // Al iniciar, carga las alertas activas en el índice espacial en memoria (páginas keyset de DTOs,
+    // sin entidades en el contexto de persistencia)
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void reconstruirIndiceEspacial() {
+        indiceEspacial.reconstruir(this::cargarActivasDto);
+        logger.info("Índice espacial de alertas activas cargado con {} alertas", indiceEspacial.size());
+    }
+
+    private List<AlertaResponseDto> cargarActivasDto() {
+        List<AlertaResponseDto> activas = new ArrayList<>();
+        CursorAlerta desde = CursorAlerta.INICIO;
+        List<AlertaResponseDto> pagina;
+        do {
+            pagina = alertaRepository.findDtoKeysetByEstado(EstadoAlerta.ACTIVA, desde.fechaHora(), desde.alertaId(),
+                    Limit.of(filasPorPagina));
+            activas.addAll(pagina);
+            if (!pagina.isEmpty()) {
+                desde = CursorAlerta.de(pagina.get(pagina.size() - 1));
+            }
+        } while (pagina.size() == filasPorPagina);
+        return activas;
+    }
+
+    // Al iniciar, asigna celda_geo a las alertas creadas antes de existir la columna
+    @EventListener(ApplicationReadyEvent.class)
+    public void completarCeldasGeoPendientes() {
+        int actualizadas = alertaRepository.completarCeldasGeo();
+        if (actualizadas > 0) {
+            logger.info("Celda geográfica asignada a {} alertas existentes", actualizadas);
+        }
     }
 
     // Cambiar estado de alerta
@@ -130,6 +280,7 @@ public class AlertaService {
         Alerta alerta = alertaRepository.findById(alertaId)
                 .orElseThrow(() -> new RuntimeException("Alerta no encontrada"));
 
+        EstadoAlerta estadoAnterior = alerta.getEstado();
         alerta.setEstado(nuevoEstado);
 
         if (EstadoAlerta.ATENDIDA.equals(nuevoEstado)) {
@@ -140,7 +291,16 @@ public class AlertaService {
             }
         }
 
-        return alertaRepository.save(alerta);
+        Alerta guardada = alertaRepository.save(alerta);
+        resumenAlertasService.registrarCambioEstado(guardada, estadoAnterior);
+        if (EstadoAlerta.ACTIVA.equals(nuevoEstado)) {
+            AlertaResponseDto snapshot = new AlertaResponseDto(guardada);
+            Transacciones.despuesDelCommit(() -> indiceEspacial.registrar(snapshot));
+        } else {
+            Transacciones.despuesDelCommit(() -> indiceEspacial.quitar(alertaId));
+        }
+        registrarModificacion(guardada.getFechaHora());
+        return guardada;
     }
 
     // Obtener estadísticas de alertas
@@ -161,10 +321,25 @@ public class AlertaService {
 
     // Eliminar alerta (soft delete o real delete según necesites)
     public void eliminarAlerta(Integer alertaId) {
-        if (!alertaRepository.existsById(alertaId)) {
-            throw new EntityNotFoundException("Alerta no encontrada");
-        }
-        alertaRepository.deleteById(alertaId);
+        Alerta alerta = alertaRepository.findById(alertaId)
+                .orElseThrow(() -> new EntityNotFoundException("Alerta no encontrada"));
+        resumenAlertasService.registrarBaja(alerta);
+        alertaRepository.delete(alerta);
+        Transacciones.despuesDelCommit(() -> indiceEspacial.quitar(alertaId));
+        registrarModificacion(alerta.getFechaHora());
+    }
+
+    /** Versión de los datos de alertas en esta instancia: cambia con cualquier alta, cambio de estado o baja. */
+    public long versionDatos() {
+        return versionDatos.get();
+    }
+
+    // Tras el commit: nueva versión de datos para los informes y descarte de los análisis que cubrían la alerta
+    private void registrarModificacion(LocalDateTime fechaAlerta) {
+        Transacciones.despuesDelCommit(() -> {
+            versionDatos.incrementAndGet();
+            cacheInformesIa.invalidarFecha(fechaAlerta);
+        });
     }
 
     // Clase interna para estadísticas
@@ -216,11 +391,7 @@ public class AlertaService {
                                                    String sector,
                                                    String fechaInicio,
                                                    String fechaFin,
-                                                   String emailUsuario) {
-        // Obtener usuario y rol
-        Usuario currentUser = usuarioRepository.findByEmail(emailUsuario)
-                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado"));
-
+                                                   UsuarioAutenticado currentUser) {
         // Determinar villa objetivo
         Long targetVillaId = null;
         if (currentUser.getRole() == Role.ADMIN_VILLA) {
@@ -233,65 +404,138 @@ public class AlertaService {
         LocalDateTime startDate = fechaInicio != null ? LocalDateTime.parse(fechaInicio + "T00:00:00") : LocalDateTime.now().minusMonths(1);
         LocalDateTime endDate = fechaFin != null ? LocalDateTime.parse(fechaFin + "T23:59:59") : LocalDateTime.now();
 
-        // Obtener alertas filtradas
-        List<cl.seguridad.vecinal.modelo.Alerta> alertas;
-        if (targetVillaId != null && sector != null) {
-            alertas = alertaRepository.findByVillaIdAndSectorAndFechaHoraBetween(targetVillaId, sector, startDate, endDate);
-        } else if (targetVillaId != null) {
-            alertas = alertaRepository.findByVillaIdAndFechaHoraBetween(targetVillaId, startDate, endDate);
-        } else if (sector != null) {
-            alertas = alertaRepository.findBySectorAndFechaHoraBetween(sector, startDate, endDate);
+        Set<Integer> sectorIds = sector != null ? sectorService.idsPorNombre(targetVillaId, sector) : null;
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        if (dashboardDesdeResumen) {
+            // Los buckets cubren horas completas: los minutos previos a la primera se cuentan en la tabla alerta
+            LocalDateTime primeraHora = ResumenAlertasService.primeraHoraCompleta(startDate);
+            if (primeraHora.isAfter(startDate)) {
+                LocalDateTime finTramo = primeraHora.minus(1, ChronoUnit.MICROS);
+                obtenerConteos(new FiltroAlertas(targetVillaId, sectorIds, null, null, startDate,
+                        endDate.isBefore(finTramo) ? endDate : finTramo), agregador);
+            }
+            // Costo proporcional al número de buckets horarios, no al número de alertas
+            for (AlertaResumenHora bucket : resumenAlertasService.obtenerBuckets(targetVillaId, sectorIds, startDate, endDate)) {
+                agregador.agregar(bucket.getHora(), bucket.getTipo(), bucket.getEstado(),
+                        Boolean.TRUE.equals(bucket.getSilenciosa()), bucket.getSector(), null, null, bucket.getCantidad());
+            }
         } else {
-            alertas = alertaRepository.findByFechaHoraBetween(startDate, endDate);
+            // Sin resumen: conteos agrupados directamente en la base de datos
+            obtenerConteos(new FiltroAlertas(targetVillaId, sectorIds, null, null, startDate, endDate), agregador);
         }
 
+        return construirDashboard(agregador);
+    }
+
+    /**
+     * Conteos por tipo, estado, hora, día y sector calculados con GROUP BY en la base de datos,
+     * sin materializar entidades Alerta. Las filas se vuelcan en {@code destino}, que define
+     * cómo se arma la clave de sector.
+     */
+    @Transactional(readOnly = true)
+    public AgregadorAlertas obtenerConteos(FiltroAlertas f, AgregadorAlertas destino) {
+        AlertaRepository.TotalesAlertas totales = alertaRepository.contarTotales(
+                f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin());
+        destino.sumarTotales(totales.getTotal() != null ? totales.getTotal() : 0,
+                totales.getSilenciosas() != null ? totales.getSilenciosas() : 0);
+
+        alertaRepository.contarPorTipo(f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin())
+                .forEach(c -> destino.sumarTipo((TipoAlertaEnum) c.getClave(), c.getCantidad()));
+
+        alertaRepository.contarPorEstado(f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin())
+                .forEach(c -> destino.sumarEstado((EstadoAlerta) c.getClave(), c.getCantidad()));
+
+        alertaRepository.contarPorHora(f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin())
+                .forEach(c -> destino.sumarHora(((Number) c.getClave()).intValue(), c.getCantidad()));
+
+        alertaRepository.contarPorDia(f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin())
+                .forEach(c -> destino.sumarDia(aLocalDate(c.getClave()), c.getCantidad()));
+
+        alertaRepository.contarPorSector(f.villaId(), f.filtraSector(), f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin())
+                .forEach(c -> destino.sumarSector(
+                        c.getSector(),
+                        c.getVilla(),
+                        c.getComuna() != null && !c.getComuna().isBlank() ? c.getComuna() : c.getComunaUsuario(),
+                        c.getCantidad()));
+
+        return destino;
+    }
+
+    /**
+     * Recorre las alertas del filtro de la más reciente a la más antigua y devuelve hasta
+     * {@code limite} que cumplan {@code criterio}. Cada página es una sentencia con LIMIT: se deja de
+     * leer apenas se completa la muestra, y a lo más se revisan {@code app.alertas.muestra.max-filas}
+     * filas aunque quede incompleta.
+     */
+    @Transactional(readOnly = true)
+    public List<Alerta> muestrearAlertasRecientes(FiltroAlertas f, Predicate<Alerta> criterio, int limite) {
+        List<Alerta> muestra = new ArrayList<>();
+        // Lo normal es que casi todas cumplan el criterio: páginas del orden de la muestra
+        int porPagina = Math.min(filasPorPagina, Math.max(limite * 2, 50));
+        CursorAlerta desde = CursorAlerta.INICIO;
+        int revisadas = 0;
+        while (muestra.size() < limite && revisadas < maxFilasMuestra) {
+            List<Alerta> pagina = alertaRepository.findFiltradasKeyset(f.villaId(), f.filtraSector(),
+                    f.sectorIdsConsulta(), f.tipo(), f.estado(), f.inicio(), f.fin(),
+                    desde.fechaHora(), desde.alertaId(), Limit.of(Math.min(porPagina, maxFilasMuestra - revisadas)));
+            for (Alerta alerta : pagina) {
+                if (muestra.size() < limite && criterio.test(alerta)) {
+                    muestra.add(alerta);
+                }
+            }
+            revisadas += pagina.size();
+            if (pagina.size() < porPagina) {
+                break;
+            }
+            Alerta ultima = pagina.get(pagina.size() - 1);
+            desde = new CursorAlerta(ultima.getFechaHora(), ultima.getId());
+        }
+        return muestra;
+    }
+
+    private LocalDate aLocalDate(Object clave) {
+        if (clave instanceof LocalDate fecha) {
+            return fecha;
+        }
+        if (clave instanceof java.sql.Date fechaSql) {
+            return fechaSql.toLocalDate();
+        }
+        return LocalDate.parse(String.valueOf(clave));
+    }
+
+    private DashboardStatsDto construirDashboard(AgregadorAlertas agregador) {
         DashboardStatsDto dto = new DashboardStatsDto();
-        dto.setTotalAlertas(alertas.size());
+        dto.setTotalAlertas(agregador.total());
 
-        // Por tipo
-        Map<String, Long> porTipo = alertas.stream()
-                .collect(Collectors.groupingBy(a -> a.getTipo().name(), Collectors.counting()));
+        Map<String, Long> porTipo = new HashMap<>();
+        agregador.porTipo().forEach((tipo, cantidad) -> porTipo.put(tipo.name(), cantidad));
         dto.setAlertasPorTipo(porTipo);
 
-        // Por estado
-        Map<String, Long> porEstado = alertas.stream()
-                .collect(Collectors.groupingBy(a -> a.getEstado().name(), Collectors.counting()));
+        Map<String, Long> porEstado = new HashMap<>();
+        agregador.porEstado().forEach((estado, cantidad) -> porEstado.put(estado.name(), cantidad));
         dto.setAlertasPorEstado(porEstado);
 
         // Por día (últimos 7 días)
-        Map<String, Long> porDia = alertas.stream()
-                .filter(a -> a.getFechaHora() != null && a.getFechaHora().isAfter(LocalDateTime.now().minusDays(7)))
-                .collect(Collectors.groupingBy(a -> a.getFechaHora().toLocalDate().toString(), Collectors.counting()));
+        Map<String, Long> porDia = new HashMap<>();
+        agregador.porDia(LocalDate.now().minusDays(7)).forEach((dia, cantidad) -> porDia.put(dia.toString(), cantidad));
         dto.setAlertasPorDia(porDia);
 
-        // Top sectores
-        Map<String, Long> porSector = alertas.stream()
-                .filter(a -> a.getSector() != null)
-                .collect(Collectors.groupingBy(cl.seguridad.vecinal.modelo.Alerta::getSector, Collectors.counting()));
-        List<Map<String, Object>> topSectores = porSector.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
+        dto.setAlertasPorHora(agregador.porHora());
+        dto.setTopSectores(agregador.topSectores(5).stream()
                 .map(entry -> {
                     Map<String, Object> item = new HashMap<>();
                     item.put("sector", entry.getKey());
                     item.put("cantidad", entry.getValue());
                     return item;
                 })
-                .toList();
-        dto.setTopSectores(topSectores);
-
-        // Por hora
-        Map<Integer, Long> porHora = alertas.stream()
-                .filter(a -> a.getFechaHora() != null)
-                .collect(Collectors.groupingBy(a -> a.getFechaHora().getHour(), Collectors.counting()));
-        dto.setAlertasPorHora(porHora);
-
-        // Porcentaje silenciosas
-        long silenciosas = alertas.stream().filter(Alerta::getSilenciosa).count();
-        double porcentajeSilenciosas = alertas.isEmpty() ? 0 : (silenciosas * 100.0) / alertas.size();
-        dto.setPorcentajeSilenciosas(Math.round(porcentajeSilenciosas * 100.0) / 100.0);
-
+                .toList());
+        dto.setPorcentajeSilenciosas(porcentaje(agregador.silenciosas(), agregador.total()));
         return dto;
     }
 
+    private double porcentaje(long parte, long total) {
+        double valor = total == 0 ? 0 : (parte * 100.0) / total;
+        return Math.round(valor * 100.0) / 100.0;
+    }
+
 }
\ No newline at end of file
@@ -32,6 +32,10 @@ public class AuthService {
     }
     @Autowired
     private VillaRepository villaRepository;
+    @Autowired
+    private SectorService sectorService;
+    @Autowired
+    private CacheEstadisticasUsuarios cacheEstadisticas;
 
     public String authenticateLegacy(String email, String password) {
         Optional<Usuario> optUsuario = usuarioRepository.findByEmail(email);
@@ -68,6 +72,8 @@ public class AuthService {
                     .orElseThrow(() -> new RuntimeException("Villa no encontrada con ID: " + villaId));
             usuario.setVilla(villa);
         }
+        // El sector que venga en el registro se guarda con su sector_id
+        sectorService.asignar(usuario, usuario.getSector());
 
         // 3. ✅ ASEGURAR QUE fechaRegistro esté presente
         if (usuario.getFechaRegistro() == null) {
@@ -82,6 +88,7 @@ public class AuthService {
 
         // 5. Guardar
         usuarioRepository.save(usuario);
+        cacheEstadisticas.invalidar();
     }
 
     public boolean existUser(Usuario usuario){
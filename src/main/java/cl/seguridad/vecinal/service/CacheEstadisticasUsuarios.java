@@ -0,0 +1,46 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.service.UserService.UserStats;
+import cl.seguridad.vecinal.util.Transacciones;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Caché de las estadísticas de usuarios del dashboard, una entrada por villa más una global.
+ * <p>
+ * {@code UserService} y {@code AuthService} la vacían completa en cada alta, modificación o baja de un
+ * usuario (un cambio en una villa también cambia el total global). El vaciado espera al commit: antes,
+ * un dashboard concurrente volvería a calcular con los datos previos y los dejaría en caché todo el TTL.
+ * El TTL acota lo que puede quedar desfasado por escrituras que no pasan por los servicios. Con {@code app.usuarios.estadisticas.cache-segundos=0}
+ * cada llamada va directo a la consulta.
+ */
+@Component
+public class CacheEstadisticasUsuarios {
+
+    // Caffeine no admite claves null: las estadísticas globales van bajo una villa inexistente
+    private static final Long GLOBAL = 0L;
+
+    private final Cache<Long, UserStats> estadisticas;
+
+    public CacheEstadisticasUsuarios(@Value("${app.usuarios.estadisticas.cache-segundos:60}") long ttlSegundos) {
+        this.estadisticas = Caffeine.newBuilder()
+                .maximumSize(ttlSegundos > 0 ? 10_000 : 0)
+                .expireAfterWrite(Duration.ofSeconds(ttlSegundos))
+                .build();
+    }
+
+    public UserStats obtener(Long villaId, Function<Long, UserStats> calcular) {
+        return estadisticas.get(villaId != null ? villaId : GLOBAL,
+                clave -> calcular.apply(GLOBAL.equals(clave) ? null : clave));
+    }
+
+    // Sin transacción activa vacía de inmediato
+    public void invalidar() {
+        Transacciones.despuesDelCommit(estadisticas::invalidateAll);
+    }
+}
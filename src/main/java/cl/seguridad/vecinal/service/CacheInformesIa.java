@@ -0,0 +1,74 @@
+package cl.seguridad.vecinal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché (Caffeine, acotada y con TTL) del texto que devuelve el modelo para un informe, indexada por
+ * el hash del JSON agregado que se le envía y no por los filtros de la petición: dos solicitudes
+ * distintas que resumen los mismos datos reutilizan el mismo análisis.
+ * <p>
+ * Como el JSON incluye los conteos y la muestra, una alerta nueva en el rango ya produce otra clave;
+ * {@code AlertaService} además descarta las entradas cuyo rango contiene la alerta modificada, para
+ * no retener análisis que ya no se pueden pedir.
+ */
+@Component
+public class CacheInformesIa {
+
+    private record Entrada(String informe, LocalDateTime inicio, LocalDateTime fin) {}
+
+    private final Cache<String, Entrada> informes;
+
+    public CacheInformesIa(@Value("${app.informe.ia.cache-max-entradas:200}") long maxEntradas,
+                           @Value("${app.informe.ia.cache-minutos:30}") long ttlMinutos) {
+        this.informes = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutos))
+                .recordStats()
+                .build();
+    }
+
+    /** Clave de caché del JSON agregado que se envía al modelo. */
+    public static String clave(String payloadJson) {
+        return DigestUtils.md5DigestAsHex(payloadJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Texto del informe ya generado para esta clave, o null. */
+    public String obtener(String clave) {
+        Entrada entrada = informes.getIfPresent(clave);
+        return entrada != null ? entrada.informe() : null;
+    }
+
+    public void guardar(String clave, String informe, LocalDateTime inicio, LocalDateTime fin) {
+        informes.put(clave, new Entrada(informe, inicio, fin));
+    }
+
+    // Descarta los informes cuyo rango incluye una alerta creada, modificada o eliminada
+    public void invalidarFecha(LocalDateTime fechaAlerta) {
+        if (fechaAlerta == null) {
+            return;
+        }
+        informes.asMap().values().removeIf(e -> !fechaAlerta.isBefore(e.inicio()) && !fechaAlerta.isAfter(e.fin()));
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = informes.stats();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("entradas", informes.estimatedSize());
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        resultado.put("desalojos", stats.evictionCount());
+        return resultado;
+    }
+}
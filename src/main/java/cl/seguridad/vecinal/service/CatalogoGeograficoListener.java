@@ -0,0 +1,27 @@
+package cl.seguridad.vecinal.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Listener JPA de Ciudad, Comuna y Villa: avisa a {@link CatalogoGeograficoService} que el catálogo
+ * cambió. Lo instancia Hibernate a través del contenedor de beans de Spring; depende solo del
+ * publicador de eventos para no crear un ciclo con el EntityManagerFactory.
+ */
+public class CatalogoGeograficoListener {
+
+    private final ApplicationEventPublisher eventos;
+
+    public CatalogoGeograficoListener(ApplicationEventPublisher eventos) {
+        this.eventos = eventos;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entidadModificada(Object entidad) {
+        eventos.publishEvent(new CatalogoGeograficoService.CatalogoModificado());
+    }
+}
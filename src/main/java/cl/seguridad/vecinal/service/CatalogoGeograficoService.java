@@ -0,0 +1,488 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.CiudadRepository;
+import cl.seguridad.vecinal.modelo.Ciudad;
+import cl.seguridad.vecinal.modelo.Comuna;
+import cl.seguridad.vecinal.modelo.Sector;
+import cl.seguridad.vecinal.modelo.Villa;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Catálogo en memoria de ciudades, comunas, villas y sectores para /api/geografia.
+ * <p>
+ * Se carga con una sola consulta (ciudad LEFT JOIN comuna LEFT JOIN villa LEFT JOIN sector) en un árbol inmutable,
+ * y las respuestas que no dependen de parámetros (jerarquía, listados completos, registro) quedan
+ * serializadas a JSON. También resuelve nombre de sector ↔ sector_id sin ir a la base, para que los
+ * filtros por sector lleguen a SQL como ids. Cada carga tiene una versión (ETag / Last-Modified para las peticiones
+ * condicionales) que solo cambia si cambió el contenido.
+ * <p>
+ * Son datos de referencia que casi no cambian. El catálogo se recarga después del commit de cualquier
+ * escritura de Ciudad, Comuna, Villa o Sector ({@link CatalogoGeograficoListener}), cuando vence
+ * {@code app.geografia.recarga-segundos} (cambios hechos directo en la base) o con {@link #recargar()}.
+ */
+@Service
+public class CatalogoGeograficoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogoGeograficoService.class);
+
+    public record SectorGeo(Integer id, Long villaId, String nombre) {
+    }
+
+    public record VillaGeo(Long id, String nombre, String direccion, String codigoPostal, String telefonoContacto,
+                           String emailContacto, List<SectorGeo> sectores, boolean activo,
+                           Long comunaId, String comunaNombre, String ciudadNombre) {
+
+        /** Nombres de los sectores, como se exponen en la API. */
+        public List<String> nombresSectores() {
+            return sectores.stream().map(SectorGeo::nombre).toList();
+        }
+    }
+
+    public record ComunaGeo(Long id, String nombre, String codigoPostal, boolean activo,
+                            Long ciudadId, String ciudadNombre, List<VillaGeo> villas) {
+    }
+
+    public record CiudadGeo(Long id, String nombre, String region, String pais, boolean activo,
+                            List<ComunaGeo> comunas) {
+    }
+
+    /** Foto inmutable del catálogo; se reemplaza completa en cada recarga. */
+    public static final class Catalogo {
+        private final List<CiudadGeo> ciudades;
+        private final Map<Long, ComunaGeo> comunasPorId;
+        private final Map<Long, VillaGeo> villasPorId;
+        private final Map<Integer, SectorGeo> sectoresPorId;
+        // nombre normalizado -> ids del sector con ese nombre en cada villa
+        private final Map<String, Set<Integer>> sectorIdsPorNombre;
+        private final Instant cargadoEn;
+        private final String hashContenido;
+        private final long version;
+        private final Instant modificadoEn;
+        private final byte[] jerarquia;
+        private final byte[] ciudadesJson;
+        private final byte[] comunasJson;
+        private final byte[] villasJson;
+        private final byte[] registroJson;
+
+        private Catalogo(List<CiudadGeo> ciudades, Catalogo anterior, ObjectMapper objectMapper) {
+            this.ciudades = ciudades;
+            Map<Long, ComunaGeo> comunas = new LinkedHashMap<>();
+            Map<Long, VillaGeo> villas = new LinkedHashMap<>();
+            Map<Integer, SectorGeo> sectores = new LinkedHashMap<>();
+            Map<String, Set<Integer>> sectoresPorNombre = new LinkedHashMap<>();
+            for (CiudadGeo ciudad : ciudades) {
+                for (ComunaGeo comuna : ciudad.comunas()) {
+                    comunas.put(comuna.id(), comuna);
+                    for (VillaGeo villa : comuna.villas()) {
+                        villas.put(villa.id(), villa);
+                        for (SectorGeo sector : villa.sectores()) {
+                            sectores.put(sector.id(), sector);
+                            sectoresPorNombre.merge(normalizar(sector.nombre()), Set.of(sector.id()), (a, b) -> {
+                                Set<Integer> union = new LinkedHashSet<>(a);
+                                union.addAll(b);
+                                return Set.copyOf(union);
+                            });
+                        }
+                    }
+                }
+            }
+            this.comunasPorId = Collections.unmodifiableMap(comunas);
+            this.villasPorId = Collections.unmodifiableMap(villas);
+            this.sectoresPorId = Collections.unmodifiableMap(sectores);
+            this.sectorIdsPorNombre = Collections.unmodifiableMap(sectoresPorNombre);
+            this.cargadoEn = Instant.now();
+
+            // La versión solo avanza si cambió el contenido; recargar datos iguales no invalida las cachés de los clientes
+            this.hashContenido = DigestUtils.md5DigestAsHex(serializar(objectMapper, ciudades));
+            if (anterior != null && anterior.hashContenido.equals(hashContenido)) {
+                this.version = anterior.version;
+                this.modificadoEn = anterior.modificadoEn;
+            } else {
+                this.version = anterior != null ? anterior.version + 1 : 1;
+                this.modificadoEn = cargadoEn;
+            }
+
+            this.jerarquia = serializar(objectMapper, respuestaJerarquia());
+            this.ciudadesJson = serializar(objectMapper, respuestaLista("ciudades",
+                    ciudadesActivas().stream().map(CatalogoGeograficoService::ciudadDto).toList()));
+            this.comunasJson = serializar(objectMapper, respuestaLista("comunas",
+                    comunasActivas(null).stream().map(CatalogoGeograficoService::comunaDto).toList()));
+            this.villasJson = serializar(objectMapper, respuestaLista("villas",
+                    villasActivas(null).stream().map(CatalogoGeograficoService::villaDto).toList()));
+            this.registroJson = serializar(objectMapper, respuestaRegistro());
+        }
+
+        public List<CiudadGeo> ciudadesActivas() {
+            return ciudades.stream().filter(CiudadGeo::activo).toList();
+        }
+
+        /** Comunas activas, opcionalmente de una ciudad. */
+        public List<ComunaGeo> comunasActivas(Long ciudadId) {
+            return comunasPorId.values().stream()
+                    .filter(ComunaGeo::activo)
+                    .filter(c -> ciudadId == null || ciudadId.equals(c.ciudadId()))
+                    .toList();
+        }
+
+        /** Villas activas, opcionalmente de una comuna. */
+        public List<VillaGeo> villasActivas(Long comunaId) {
+            return villasPorId.values().stream()
+                    .filter(VillaGeo::activo)
+                    .filter(v -> comunaId == null || comunaId.equals(v.comunaId()))
+                    .toList();
+        }
+
+        public ComunaGeo comuna(Long id) {
+            return comunasPorId.get(id);
+        }
+
+        public VillaGeo villa(Long id) {
+            return villasPorId.get(id);
+        }
+
+        public SectorGeo sector(Integer id) {
+            return id != null ? sectoresPorId.get(id) : null;
+        }
+
+        /** El sector de la villa con ese nombre (sin distinguir mayúsculas ni espacios al borde), o null. */
+        public SectorGeo sector(Long villaId, String nombre) {
+            VillaGeo villa = villaId != null ? villasPorId.get(villaId) : null;
+            if (villa == null || nombre == null) {
+                return null;
+            }
+            String clave = normalizar(nombre);
+            return villa.sectores().stream()
+                    .filter(s -> normalizar(s.nombre()).equals(clave))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        /** Ids de los sectores con ese nombre: el de la villa indicada o, sin villa, los de todas. */
+        public Set<Integer> sectorIds(Long villaId, String nombre) {
+            if (villaId != null) {
+                SectorGeo sector = sector(villaId, nombre);
+                return sector != null ? Set.of(sector.id()) : Set.of();
+            }
+            return nombre != null ? sectorIdsPorNombre.getOrDefault(normalizar(nombre), Set.of()) : Set.of();
+        }
+
+        /** Ids de los sectores cuyo nombre contiene el texto (reemplaza al LIKE '%texto%' sobre alerta.sector). */
+        public Set<Integer> sectorIdsQueContienen(String texto) {
+            String buscado = normalizar(texto);
+            Set<Integer> ids = new LinkedHashSet<>();
+            sectorIdsPorNombre.forEach((nombre, idsNombre) -> {
+                if (nombre.contains(buscado)) {
+                    ids.addAll(idsNombre);
+                }
+            });
+            return ids;
+        }
+
+        public Instant cargadoEn() {
+            return cargadoEn;
+        }
+
+        /** Contador de versiones del catálogo en esta instancia; sube cada vez que cambia el contenido. */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * ETag común a todas las respuestas de /api/geografia. Sale del hash del contenido y no del
+         * contador, para que siga siendo válido después de reiniciar la aplicación.
+         */
+        public String etag() {
+            return "\"geo-" + hashContenido + "\"";
+        }
+
+        /** Momento en que se cargó esta versión del contenido (header Last-Modified). */
+        public Instant modificadoEn() {
+            return modificadoEn;
+        }
+
+        public byte[] jerarquia() {
+            return jerarquia;
+        }
+
+        public byte[] ciudades() {
+            return ciudadesJson;
+        }
+
+        public byte[] comunas() {
+            return comunasJson;
+        }
+
+        public byte[] villas() {
+            return villasJson;
+        }
+
+        public byte[] registro() {
+            return registroJson;
+        }
+
+        private Map<String, Object> respuestaJerarquia() {
+            List<Map<String, Object>> jerarquiaDto = ciudadesActivas().stream().map(ciudad -> {
+                Map<String, Object> ciudadDto = new LinkedHashMap<>();
+                ciudadDto.put("id", ciudad.id());
+                ciudadDto.put("nombre", ciudad.nombre());
+                ciudadDto.put("region", ciudad.region());
+                ciudadDto.put("comunas", ciudad.comunas().stream().filter(ComunaGeo::activo).map(comuna -> {
+                    Map<String, Object> comunaDto = new LinkedHashMap<>();
+                    comunaDto.put("id", comuna.id());
+                    comunaDto.put("nombre", comuna.nombre());
+                    comunaDto.put("villas", comuna.villas().stream().filter(VillaGeo::activo).map(villa -> {
+                        Map<String, Object> villaDto = new LinkedHashMap<>();
+                        villaDto.put("id", villa.id());
+                        villaDto.put("nombre", villa.nombre());
+                        villaDto.put("sectores", villa.nombresSectores());
+                        return villaDto;
+                    }).toList());
+                    return comunaDto;
+                }).toList());
+                return ciudadDto;
+            }).toList();
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("jerarquia", jerarquiaDto);
+            response.put("status", "success");
+            return response;
+        }
+
+        private Map<String, Object> respuestaRegistro() {
+            Map<String, Object> registroData = new LinkedHashMap<>();
+            registroData.put("ciudades", ciudadesActivas().stream().map(ciudad -> {
+                Map<String, Object> ciudadDto = new LinkedHashMap<>();
+                ciudadDto.put("id", ciudad.id());
+                ciudadDto.put("nombre", ciudad.nombre());
+                return ciudadDto;
+            }).toList());
+            registroData.put("status", "success");
+            registroData.put("message", "Seleccione una ciudad para continuar");
+            return registroData;
+        }
+    }
+
+    private final CiudadRepository ciudadRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration vigencia;
+    private final ReentrantLock recargando = new ReentrantLock();
+    // Marca, en los recursos de la transacción en curso, que ya tiene una recarga programada
+    private final Object recargaProgramada = new Object();
+
+    private volatile Catalogo actual;
+
+    public CatalogoGeograficoService(CiudadRepository ciudadRepository,
+                                     ObjectMapper objectMapper,
+                                     @Value("${app.geografia.recarga-segundos:600}") long recargaSegundos) {
+        this.ciudadRepository = ciudadRepository;
+        this.objectMapper = objectMapper;
+        this.vigencia = Duration.ofSeconds(recargaSegundos);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        recargar();
+    }
+
+    /**
+     * Catálogo vigente. Si venció, el primer hilo lo recarga y el resto sigue usando la versión
+     * anterior mientras tanto (solo espera quien no tiene ninguna versión cargada).
+     */
+    public Catalogo catalogo() {
+        Catalogo catalogo = actual;
+        if (catalogo != null && catalogo.cargadoEn().plus(vigencia).isAfter(Instant.now())) {
+            return catalogo;
+        }
+        if (catalogo == null) {
+            recargando.lock();
+        } else if (!recargando.tryLock()) {
+            return catalogo;
+        }
+        try {
+            // Otro hilo pudo recargarlo mientras se esperaba el lock
+            if (actual != catalogo) {
+                return actual;
+            }
+            return cargar();
+        } finally {
+            recargando.unlock();
+        }
+    }
+
+    /** Se publica (vía {@link CatalogoGeograficoListener}) cuando se escribe una Ciudad, Comuna o Villa. */
+    public record CatalogoModificado() {
+    }
+
+    /**
+     * Programa una recarga para cuando confirme la transacción que modificó el catálogo: una por
+     * transacción, aunque escriba varias entidades, y cada transacción la suya, para que ninguna quede
+     * sin reflejar hasta que venza {@code app.geografia.recarga-segundos}. Sin transacción, recarga ya.
+     */
+    @EventListener
+    public void marcarModificado(CatalogoModificado evento) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recargar();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(recargaProgramada)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(recargaProgramada, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recargar();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(recargaProgramada);
+            }
+        });
+    }
+
+    /** Fuerza la recarga desde la base (después de modificar ciudades, comunas o villas). */
+    public Catalogo recargar() {
+        recargando.lock();
+        try {
+            return cargar();
+        } finally {
+            recargando.unlock();
+        }
+    }
+
+    private Catalogo cargar() {
+        List<CiudadGeo> ciudades = construirArbol(ciudadRepository.findJerarquiaCompleta());
+        Catalogo catalogo = new Catalogo(ciudades, actual, objectMapper);
+        actual = catalogo;
+        logger.info("Catálogo geográfico cargado (versión {}): {} ciudades, {} comunas, {} villas, {} sectores",
+                catalogo.version(), ciudades.size(), catalogo.comunasPorId.size(), catalogo.villasPorId.size(),
+                catalogo.sectoresPorId.size());
+        return catalogo;
+    }
+
+    /** Filas (ciudad, comuna|null, villa|null, sector|null) ordenadas por ciudad, comuna y villa → árbol inmutable. */
+    private static List<CiudadGeo> construirArbol(List<Object[]> filas) {
+        Map<Long, Ciudad> ciudades = new LinkedHashMap<>();
+        Map<Long, List<Comuna>> comunasPorCiudad = new LinkedHashMap<>();
+        Map<Long, List<Villa>> villasPorComuna = new LinkedHashMap<>();
+        Map<Long, List<SectorGeo>> sectoresPorVilla = new LinkedHashMap<>();
+        for (Object[] fila : filas) {
+            Ciudad ciudad = (Ciudad) fila[0];
+            Comuna comuna = (Comuna) fila[1];
+            Villa villa = (Villa) fila[2];
+            Sector sector = (Sector) fila[3];
+            ciudades.putIfAbsent(ciudad.getId(), ciudad);
+            List<Comuna> comunas = comunasPorCiudad.computeIfAbsent(ciudad.getId(), id -> new ArrayList<>());
+            if (comuna != null) {
+                if (!villasPorComuna.containsKey(comuna.getId())) {
+                    comunas.add(comuna);
+                    villasPorComuna.put(comuna.getId(), new ArrayList<>());
+                }
+                if (villa != null && !sectoresPorVilla.containsKey(villa.getId())) {
+                    villasPorComuna.get(comuna.getId()).add(villa);
+                    sectoresPorVilla.put(villa.getId(), new ArrayList<>());
+                }
+                if (sector != null) {
+                    sectoresPorVilla.get(villa.getId()).add(new SectorGeo(sector.getId(), villa.getId(), sector.getNombre()));
+                }
+            }
+        }
+
+        List<CiudadGeo> arbol = new ArrayList<>(ciudades.size());
+        for (Ciudad ciudad : ciudades.values()) {
+            List<ComunaGeo> comunasGeo = new ArrayList<>();
+            for (Comuna comuna : comunasPorCiudad.get(ciudad.getId())) {
+                List<VillaGeo> villasGeo = villasPorComuna.get(comuna.getId()).stream()
+                        .map(villa -> new VillaGeo(villa.getId(), villa.getNombre(), villa.getDireccion(),
+                                villa.getCodigoPostal(), villa.getTelefonoContacto(), villa.getEmailContacto(),
+                                List.copyOf(sectoresPorVilla.get(villa.getId())), Boolean.TRUE.equals(villa.getActivo()),
+                                comuna.getId(), comuna.getNombre(), ciudad.getNombre()))
+                        .toList();
+                comunasGeo.add(new ComunaGeo(comuna.getId(), comuna.getNombre(), comuna.getCodigoPostal(),
+                        Boolean.TRUE.equals(comuna.getActivo()), ciudad.getId(), ciudad.getNombre(), villasGeo));
+            }
+            arbol.add(new CiudadGeo(ciudad.getId(), ciudad.getNombre(), ciudad.getRegion(), ciudad.getPais(),
+                    Boolean.TRUE.equals(ciudad.getActivo()), List.copyOf(comunasGeo)));
+        }
+        return List.copyOf(arbol);
+    }
+
+    // ===================== DTOs de respuesta (mismas claves que antes del catálogo) =====================
+
+    public static Map<String, Object> ciudadDto(CiudadGeo ciudad) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", ciudad.id());
+        dto.put("nombre", ciudad.nombre());
+        dto.put("region", ciudad.region());
+        dto.put("pais", ciudad.pais());
+        return dto;
+    }
+
+    public static Map<String, Object> comunaDto(ComunaGeo comuna) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", comuna.id());
+        dto.put("nombre", comuna.nombre());
+        dto.put("ciudadId", comuna.ciudadId());
+        dto.put("ciudadNombre", comuna.ciudadNombre());
+        dto.put("codigoPostal", comuna.codigoPostal());
+        return dto;
+    }
+
+    public static Map<String, Object> villaDto(VillaGeo villa) {
+        Map<String, Object> dto = new LinkedHashMap<>();
+        dto.put("id", villa.id());
+        dto.put("nombre", villa.nombre());
+        dto.put("direccion", villa.direccion());
+        dto.put("comunaId", villa.comunaId());
+        dto.put("comunaNombre", villa.comunaNombre());
+        dto.put("ciudadNombre", villa.ciudadNombre());
+        dto.put("sectores", villa.nombresSectores());
+        dto.put("telefonoContacto", villa.telefonoContacto());
+        dto.put("emailContacto", villa.emailContacto());
+        return dto;
+    }
+
+    private static Map<String, Object> respuestaLista(String clave, List<Map<String, Object>> elementos) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put(clave, elementos);
+        response.put("total", elementos.size());
+        response.put("status", "success");
+        return response;
+    }
+
+    /** Clave de comparación de nombres de sector (la columna en MySQL compara sin distinguir mayúsculas). */
+    public static String normalizar(String nombre) {
+        return nombre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static byte[] serializar(ObjectMapper objectMapper, Object respuesta) {
+        try {
+            return objectMapper.writeValueAsBytes(respuesta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo geográfico", e);
+        }
+    }
+}
@@ -1,27 +1,165 @@
 package cl.seguridad.vecinal.service;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Cliente del modelo de IA ({@link ProveedorIa}: Gemini o el simulado) con protección frente a un upstream degradado:
+ * <ul>
+ *   <li>a lo más {@code google.ai.max-en-curso} llamadas simultáneas; las demás fallan de inmediato,</li>
+ *   <li>un tiempo total por llamada, o por fragmento en streaming ({@code google.ai.timeout-total-segundos}),</li>
+ *   <li>un circuito que, tras {@code google.ai.circuito.fallos} fallos seguidos, rechaza las llamadas
+ *       durante {@code google.ai.circuito.pausa-segundos} y luego deja pasar una de prueba.</li>
+ * </ul>
+ * Los rechazos se emiten como error del Mono sin contactar al proveedor; quien llama decide el respaldo.
+ */
 @Service
 public class GoogleAiService {
 
-    private final WebClient googleAiWebClient;
+    private static final Logger logger = LoggerFactory.getLogger(GoogleAiService.class);
 
-    public GoogleAiService(@Qualifier("googleAiWebClient") WebClient googleAiWebClient) {
-        this.googleAiWebClient = googleAiWebClient;
+    private final ProveedorIa proveedor;
+    private final int maxEnCurso;
+    private final Semaphore enCurso;
+    private final Duration timeoutTotal;
+    private final Circuito circuito;
+
+    public GoogleAiService(ProveedorIa proveedor,
+                           @Value("${google.ai.max-en-curso:4}") int maxEnCurso,
+                           @Value("${google.ai.timeout-total-segundos:60}") long timeoutTotalSegundos,
+                           @Value("${google.ai.circuito.fallos:5}") int fallosParaAbrir,
+                           @Value("${google.ai.circuito.pausa-segundos:30}") long pausaSegundos) {
+        this.proveedor = proveedor;
+        this.maxEnCurso = maxEnCurso;
+        this.enCurso = new Semaphore(maxEnCurso);
+        this.timeoutTotal = Duration.ofSeconds(timeoutTotalSegundos);
+        this.circuito = new Circuito(fallosParaAbrir, Duration.ofSeconds(pausaSegundos));
+    }
+
+    public String modelo() {
+        return proveedor.modelo();
     }
 
     public Mono<String> generarContenido(Map<String, Object> requestBody) {
-        return googleAiWebClient
-                .post()
-                .uri("/v1beta/models/gemini-2.0-flash:generateContent")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class);
+        // Un solo elemento: el timeout cubre la llamada completa
+        return protegido(proveedor.generarContenido(requestBody).flux()).singleOrEmpty();
+    }
+
+    /**
+     * Igual que {@link #generarContenido} pero con la respuesta en streaming (streamGenerateContent, SSE):
+     * emite el JSON de cada fragmento a medida que el modelo lo genera. El timeout total se aplica a la
+     * espera de cada fragmento.
+     */
+    public Flux<String> generarContenidoStream(Map<String, Object> requestBody) {
+        return protegido(proveedor.generarContenidoStream(requestBody));
+    }
+
+    // Para el monitoreo: llamadas en curso contra el límite y estado del circuito
+    public Map<String, Object> estado() {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("modelo", proveedor.modelo());
+        resultado.put("maxEnCurso", maxEnCurso);
+        resultado.put("enCurso", maxEnCurso - enCurso.availablePermits());
+        resultado.put("circuito", circuito.estado());
+        return resultado;
+    }
+
+    // La llamada real se crea recién al suscribirse y solo si el circuito y el límite lo permiten
+    private Flux<String> protegido(Flux<String> llamada) {
+        return Flux.defer(() -> {
+            Permiso permiso = circuito.autorizar();
+            if (permiso == Permiso.RECHAZADA) {
+                return Flux.error(new RuntimeException("Modelo de IA no disponible temporalmente (circuito abierto)"));
+            }
+            boolean prueba = permiso == Permiso.PRUEBA;
+            if (!enCurso.tryAcquire()) {
+                if (prueba) {
+                    circuito.liberarPrueba();
+                }
+                return Flux.error(new RuntimeException("Demasiadas solicitudes en curso al modelo de IA"));
+            }
+            return llamada
+                    .timeout(timeoutTotal)
+                    .doOnComplete(circuito::exito)
+                    .doOnError(e -> circuito.fallo())
+                    .doFinally(senal -> {
+                        enCurso.release();
+                        if (prueba && senal == SignalType.CANCEL) {
+                            circuito.liberarPrueba();
+                        }
+                    });
+        });
+    }
+
+    private enum Permiso { RECHAZADA, NORMAL, PRUEBA }
+
+    // Fallos consecutivos → abierto durante la pausa → una llamada de prueba decide si se cierra
+    private static final class Circuito {
+        private final int fallosParaAbrir;
+        private final Duration pausa;
+        private int fallosSeguidos;
+        private Instant abiertoHasta;
+        private boolean pruebaEnCurso;
+
+        Circuito(int fallosParaAbrir, Duration pausa) {
+            this.fallosParaAbrir = fallosParaAbrir;
+            this.pausa = pausa;
+        }
+
+        synchronized Permiso autorizar() {
+            if (abiertoHasta == null) {
+                return Permiso.NORMAL;
+            }
+            if (pruebaEnCurso || Instant.now().isBefore(abiertoHasta)) {
+                return Permiso.RECHAZADA;
+            }
+            pruebaEnCurso = true;
+            return Permiso.PRUEBA;
+        }
+
+        synchronized void exito() {
+            if (abiertoHasta != null) {
+                logger.info("Circuito de Google AI cerrado");
+            }
+            fallosSeguidos = 0;
+            abiertoHasta = null;
+            pruebaEnCurso = false;
+        }
+
+        synchronized void fallo() {
+            fallosSeguidos++;
+            // Con el circuito ya abierto, el fallo de la llamada de prueba reinicia la pausa
+            if (abiertoHasta != null || fallosSeguidos >= fallosParaAbrir) {
+                if (abiertoHasta == null) {
+                    logger.warn("Circuito de Google AI abierto tras {} fallos seguidos", fallosSeguidos);
+                }
+                abiertoHasta = Instant.now().plus(pausa);
+            }
+            pruebaEnCurso = false;
+        }
+
+        synchronized String estado() {
+            if (abiertoHasta == null) {
+                return "CERRADO";
+            }
+            // Pasada la pausa, o con la llamada de prueba en curso
+            return !pruebaEnCurso && Instant.now().isBefore(abiertoHasta) ? "ABIERTO" : "SEMIABIERTO";
+        }
+
+        // La llamada de prueba no llegó a completarse (cancelada o rechazada por el límite)
+        synchronized void liberarPrueba() {
+            pruebaEnCurso = false;
+        }
     }
 }
@@ -0,0 +1,138 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.util.GeoUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Índice espacial en memoria de las alertas ACTIVAS.
+ * <p>
+ * Grilla uniforme con las mismas celdas que {@link GeoUtils#celda(double, double)}: cada celda
+ * guarda sus alertas ({@link AlertaResponseDto}), de modo que una consulta por radio solo recorre las
+ * celdas que cubren el bounding box, sin ir a la base de datos. Las consultas devuelven copias: quien
+ * llama puede modificarlas sin alterar el índice.
+ * AlertaService lo mantiene al crear, cambiar de estado o eliminar alertas y lo reconstruye al iniciar.
+ */
+@Component
+public class IndiceEspacialAlertas {
+
+    // celda -> (alertaId -> alerta)
+    private volatile Map<Integer, Map<Integer, AlertaResponseDto>> alertasPorCelda = new ConcurrentHashMap<>();
+
+    // alertaId -> celda, para poder quitar sin conocer la ubicación
+    private volatile Map<Integer, Integer> celdaPorAlerta = new ConcurrentHashMap<>();
+
+    // Una reconstrucción a la vez
+    private final Object reconstruccion = new Object();
+
+    // Cambios que llegan mientras se lee la base (alertaId -> alerta, null = quitada); null fuera de una reconstrucción
+    private Map<Integer, AlertaResponseDto> cambiosDuranteReconstruccion;
+
+    /**
+     * Reemplaza el contenido por las alertas que entrega {@code cargarActivas}. La carga corre sin
+     * bloquear a registrar/quitar; los cambios que llegan mientras tanto se anotan y se aplican sobre
+     * la carga antes de publicarla, así ninguno se pierde aunque la lectura no los haya visto.
+     */
+    public void reconstruir(Supplier<? extends Collection<AlertaResponseDto>> cargarActivas) {
+        synchronized (reconstruccion) {
+            synchronized (this) {
+                cambiosDuranteReconstruccion = new HashMap<>();
+            }
+            try {
+                Map<Integer, Map<Integer, AlertaResponseDto>> nuevasCeldas = new ConcurrentHashMap<>();
+                Map<Integer, Integer> nuevoIndice = new ConcurrentHashMap<>();
+                for (AlertaResponseDto alerta : cargarActivas.get()) {
+                    poner(nuevasCeldas, nuevoIndice, alerta);
+                }
+                synchronized (this) {
+                    cambiosDuranteReconstruccion.forEach((alertaId, alerta) -> {
+                        sacar(nuevasCeldas, nuevoIndice, alertaId);
+                        if (alerta != null) {
+                            poner(nuevasCeldas, nuevoIndice, alerta);
+                        }
+                    });
+                    this.alertasPorCelda = nuevasCeldas;
+                    this.celdaPorAlerta = nuevoIndice;
+                }
+            } finally {
+                synchronized (this) {
+                    cambiosDuranteReconstruccion = null;
+                }
+            }
+        }
+    }
+
+    public synchronized void registrar(AlertaResponseDto alerta) {
+        sacar(alertasPorCelda, celdaPorAlerta, alerta.getAlertaId());
+        poner(alertasPorCelda, celdaPorAlerta, alerta);
+        if (cambiosDuranteReconstruccion != null) {
+            cambiosDuranteReconstruccion.put(alerta.getAlertaId(), alerta);
+        }
+    }
+
+    public synchronized void quitar(Integer alertaId) {
+        sacar(alertasPorCelda, celdaPorAlerta, alertaId);
+        if (cambiosDuranteReconstruccion != null) {
+            cambiosDuranteReconstruccion.put(alertaId, null);
+        }
+    }
+
+    /**
+     * Alertas activas a menos de {@code radioKm} del punto, ordenadas de la más reciente a la más antigua.
+     */
+    public List<AlertaResponseDto> buscarCercanas(double latitud, double longitud, double radioKm) {
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(latitud, longitud, radioKm);
+        List<Integer> celdas = GeoUtils.celdasEnBoundingBox(box);
+
+        Map<Integer, Map<Integer, AlertaResponseDto>> celdasActuales = alertasPorCelda;
+        Collection<Map<Integer, AlertaResponseDto>> grupos = celdas.isEmpty()
+                ? celdasActuales.values()
+                : celdas.stream().map(celdasActuales::get).filter(m -> m != null).toList();
+
+        List<AlertaResponseDto> resultado = new ArrayList<>();
+        for (Map<Integer, AlertaResponseDto> grupo : grupos) {
+            for (AlertaResponseDto alerta : grupo.values()) {
+                if (GeoUtils.distanciaKm(latitud, longitud, alerta.getLatitud(), alerta.getLongitud()) < radioKm) {
+                    resultado.add(new AlertaResponseDto(alerta));
+                }
+            }
+        }
+        resultado.sort(Comparator.comparing(AlertaResponseDto::getFechaHora).reversed());
+        return resultado;
+    }
+
+    public int size() {
+        return celdaPorAlerta.size();
+    }
+
+    private static void poner(Map<Integer, Map<Integer, AlertaResponseDto>> celdas, Map<Integer, Integer> indice,
+                              AlertaResponseDto alerta) {
+        int celda = GeoUtils.celda(alerta.getLatitud(), alerta.getLongitud());
+        celdas.computeIfAbsent(celda, c -> new ConcurrentHashMap<>()).put(alerta.getAlertaId(), alerta);
+        indice.put(alerta.getAlertaId(), celda);
+    }
+
+    private static void sacar(Map<Integer, Map<Integer, AlertaResponseDto>> celdas, Map<Integer, Integer> indice,
+                              Integer alertaId) {
+        Integer celda = indice.remove(alertaId);
+        if (celda == null) {
+            return;
+        }
+        Map<Integer, AlertaResponseDto> enCelda = celdas.get(celda);
+        if (enCelda != null) {
+            enCelda.remove(alertaId);
+            if (enCelda.isEmpty()) {
+                celdas.remove(celda);
+            }
+        }
+    }
+}
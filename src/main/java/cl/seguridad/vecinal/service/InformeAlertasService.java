@@ -0,0 +1,580 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.modelo.dto.FiltroAlertas;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Informe de alertas con IA: conteos agregados en la base, una muestra de alertas recientes de los
+ * sectores con más actividad y el análisis narrativo de Gemini.
+ * <p>
+ * La generación tiene dos etapas: {@link #prepararDatos} (JPA, bloqueante) y {@link #completarConIa}
+ * (WebClient, no bloqueante). {@link TrabajosInforme} corre la primera en un pool acotado y encadena la segunda.
+ */
+@Service
+public class InformeAlertasService {
+    private static final Logger logger = LoggerFactory.getLogger(InformeAlertasService.class);
+
+    private static final String KEY_SECTOR = "sector";
+    private static final String KEY_ESTADO = "estado";
+
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_LIMITE = "limite";
+
+    private static final String KEY_POR_TIPO = "porTipo";
+    private static final String KEY_POR_ESTADO = "porEstado";
+
+    private static final String KEY_INFORME_AI = "informeAi";
+    private static final String KEY_MODO = "modo";
+    private static final String MODO_SIN_IA = "agregado-sin-ia";
+
+    private final AlertaService alertaService;
+    private final GoogleAiService googleAiService;
+    private final SectorService sectorService;
+    private final CacheInformesIa cacheInformesIa;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public InformeAlertasService(AlertaService alertaService, GoogleAiService googleAiService,
+                                 SectorService sectorService, CacheInformesIa cacheInformesIa) {
+        this.alertaService = alertaService;
+        this.googleAiService = googleAiService;
+        this.sectorService = sectorService;
+        this.cacheInformesIa = cacheInformesIa;
+    }
+
+    /**
+     * Filtros del informe ya validados y normalizados. Sirven de clave de caché: dos cuerpos que piden
+     * lo mismo (mayúsculas, espacios, límite fuera de rango) producen la misma solicitud.
+     * Sin fechas (ambas null) el informe cubre los últimos 60 días al momento de generarse.
+     */
+    public record SolicitudInforme(LocalDateTime fechaInicio, LocalDateTime fechaFin, TipoAlertaEnum tipoFiltro,
+                                   EstadoAlerta estadoFiltro, String sectorFiltro, int limiteSeguro) {}
+
+    /**
+     * Valida el cuerpo de la petición. Lanza IllegalArgumentException si las fechas no son ISO-8601.
+     */
+    public SolicitudInforme parsearSolicitud(Map<String, Object> body) {
+        String fechaInicioStr = asString(body.get("fechaInicio"));
+        String fechaFinStr = asString(body.get("fechaFin"));
+        String tipoStr = asString(body.get("tipo"));
+        String estadoStr = asString(body.get(KEY_ESTADO));
+        String sector = asString(body.get(KEY_SECTOR));
+        int limite = body.get(KEY_LIMITE) instanceof Number number ? number.intValue() : 100;
+
+        LocalDateTime inicio = null;
+        LocalDateTime fin = null;
+        if (fechaInicioStr != null && fechaFinStr != null) {
+            LocalDateTime[] rango = parseFechasOrThrow(fechaInicioStr, fechaFinStr);
+            inicio = rango[0];
+            fin = rango[1];
+        }
+
+        TipoAlertaEnum tipoFiltro = parseTipo(tipoStr);
+        EstadoAlerta estadoFiltro = parseEstado(estadoStr);
+        int limiteSeguro = Math.max(1, Math.min(limite, 500));
+        String sectorFiltro = sector == null || sector.isBlank() ? null : sector.trim().toLowerCase();
+
+        return new SolicitudInforme(inicio, fin, tipoFiltro, estadoFiltro, sectorFiltro, limiteSeguro);
+    }
+
+    /**
+     * Resultado de la etapa de base de datos: agregados, muestra y la petición al modelo ya armada.
+     * No guarda referencias a la sesión JPA (la muestra viene con sus relaciones cargadas).
+     */
+    public static final class DatosInforme {
+        private final SolicitudInforme solicitud;
+        private final RangoFechas rango;
+        private final int totalEncontradas;
+        private final DatosAgregados agregados;
+        private final List<Alerta> muestra;
+        private final String claveIa;
+        private final Map<String, Object> aiRequest;
+
+        private DatosInforme(SolicitudInforme solicitud, RangoFechas rango, int totalEncontradas,
+                             DatosAgregados agregados, List<Alerta> muestra, String claveIa,
+                             Map<String, Object> aiRequest) {
+            this.solicitud = solicitud;
+            this.rango = rango;
+            this.totalEncontradas = totalEncontradas;
+            this.agregados = agregados;
+            this.muestra = muestra;
+            this.claveIa = claveIa;
+            this.aiRequest = aiRequest;
+        }
+    }
+
+    /**
+     * Etapa bloqueante: consultas de conteo y muestra. Debe correr fuera de los hilos de Tomcat
+     * (ver {@link TrabajosInforme}).
+     */
+    public DatosInforme prepararDatos(SolicitudInforme filtros) throws JsonProcessingException {
+        RangoFechas rango = resolverRangoFechas(filtros);
+        // "sector contiene" se resuelve a ids en memoria; la consulta filtra por sector_id
+        Set<Integer> sectorIds = filtros.sectorFiltro() != null ? sectorService.idsQueContienen(filtros.sectorFiltro()) : null;
+        FiltroAlertas filtro = new FiltroAlertas(null, sectorIds, filtros.tipoFiltro(),
+                filtros.estadoFiltro(), rango.inicio(), rango.fin());
+        AgregadorAlertas agregador = alertaService.obtenerConteos(filtro, new AgregadorAlertas(this::sectorVillaComuna));
+        int totalEncontradas = (int) agregador.total();
+        DatosAgregados agregados = calcularAgregados(agregador);
+        List<Alerta> muestra = seleccionarMuestra(filtro, totalEncontradas, agregados.topSectores(), filtros.limiteSeguro());
+        String payloadJson = objectMapper.writeValueAsString(construirPayloadAi(rango, totalEncontradas, agregados, muestra));
+        Map<String, Object> aiRequest = construirRequestAi(construirPromptAi(payloadJson));
+        return new DatosInforme(filtros, rango, totalEncontradas, agregados, muestra,
+                CacheInformesIa.clave(payloadJson), aiRequest);
+    }
+
+    /**
+     * Etapa no bloqueante: pide el análisis al modelo y arma la respuesta. Ningún hilo queda esperando;
+     * el Mono se completa desde el cliente HTTP reactivo. Si el mismo JSON agregado ya se analizó, el
+     * texto sale de {@link CacheInformesIa} sin llamar al modelo.
+     */
+    public Mono<Map<String, Object>> completarConIa(DatosInforme datos) {
+        String enCache = cacheInformesIa.obtener(datos.claveIa);
+        if (enCache != null) {
+            return Mono.just(construirRespuesta(datos, enCache));
+        }
+        // GoogleAiService aplica el tiempo máximo, el límite de llamadas y el circuito
+        return googleAiService.generarContenido(datos.aiRequest)
+                .defaultIfEmpty("")
+                .map(respuestaRaw -> {
+                    String texto = textoGemini(respuestaRaw);
+                    if (texto == null) {
+                        // Respuesta sin texto: se informa el problema y no se guarda
+                        return construirRespuesta(datos, extraerTextoGemini(respuestaRaw));
+                    }
+                    cacheInformesIa.guardar(datos.claveIa, texto, datos.rango.inicio(), datos.rango.fin());
+                    return construirRespuesta(datos, texto);
+                })
+                .onErrorResume(e -> Mono.just(respuestaSinIa(datos, e)));
+    }
+
+    /** Todo el informe salvo el texto del modelo; en streaming se envía antes que los fragmentos. */
+    public Map<String, Object> agregados(DatosInforme datos) {
+        Map<String, Object> respuesta = construirRespuesta(datos, null);
+        respuesta.remove(KEY_INFORME_AI);
+        return respuesta;
+    }
+
+    /**
+     * Texto del modelo en fragmentos de markdown a medida que se genera (streamGenerateContent).
+     * Si el análisis ya está en {@link CacheInformesIa} sale completo en un solo fragmento; un streaming
+     * que termina bien deja el texto completo en la caché.
+     */
+    public Flux<String> fragmentosIa(DatosInforme datos) {
+        String enCache = cacheInformesIa.obtener(datos.claveIa);
+        if (enCache != null) {
+            return Flux.just(enCache);
+        }
+        return Flux.defer(() -> {
+            StringBuilder completo = new StringBuilder();
+            return googleAiService.generarContenidoStream(datos.aiRequest)
+                    .mapNotNull(this::textoGemini)
+                    .doOnNext(completo::append)
+                    .doOnComplete(() -> {
+                        if (!completo.isEmpty()) {
+                            cacheInformesIa.guardar(datos.claveIa, completo.toString(),
+                                    datos.rango.inicio(), datos.rango.fin());
+                        }
+                    });
+        });
+    }
+
+    /** true si la respuesta salió sin análisis del modelo (respaldo); no debe reutilizarse como definitiva. */
+    public static boolean esRespuestaSinIa(Map<String, Object> respuesta) {
+        return MODO_SIN_IA.equals(respuesta.get(KEY_MODO));
+    }
+
+    // Respaldo cuando el modelo falla, está saturado o con el circuito abierto: los agregados sin narrativa
+    private Map<String, Object> respuestaSinIa(DatosInforme datos, Throwable error) {
+        logger.warn("Informe sin análisis de IA: {}", error.getMessage());
+        Map<String, Object> respuesta = construirRespuesta(datos, null);
+        respuesta.put(KEY_MODO, MODO_SIN_IA);
+        respuesta.put("message", "El análisis de IA no está disponible en este momento: " + error.getMessage());
+        return respuesta;
+    }
+
+    private Map<String, Object> construirRespuesta(DatosInforme datos, String informe) {
+        return construirRespuesta(datos.solicitud, datos.rango, datos.totalEncontradas,
+                datos.muestra, datos.agregados, informe);
+    }
+
+    private RangoFechas resolverRangoFechas(SolicitudInforme filtros) {
+        LocalDateTime inicio;
+        LocalDateTime fin;
+
+        if (filtros.fechaInicio() != null && filtros.fechaFin() != null) {
+            inicio = filtros.fechaInicio();
+            fin = filtros.fechaFin();
+        } else {
+            // Rango por defecto alineado a la hora: hasta el cierre de la hora actual, así las solicitudes
+            // de la misma hora envían el mismo JSON al modelo y comparten la entrada de CacheInformesIa
+            fin = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            inicio = fin.minusDays(60);
+        }
+
+        return new RangoFechas(inicio, fin);
+    }
+
+    // Los conteos ya vienen acumulados en el agregador; aquí solo se derivan métricas sobre pocas claves
+    private DatosAgregados calcularAgregados(AgregadorAlertas agregador) {
+        Map<TipoAlertaEnum, Long> porTipo = agregador.porTipo();
+        Map<EstadoAlerta, Long> porEstado = agregador.porEstado();
+        Map<Integer, Long> porHora = agregador.porHora();
+        Map<LocalDate, Long> porDia = agregador.porDia();
+        Map<String, Long> porSector = agregador.porSector();
+
+        Map<String, Long> porDiaSemana = new HashMap<>();
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            long cantidad = agregador.porDiaSemana(dow);
+            if (cantidad > 0) {
+                porDiaSemana.put(diaCorto(dow), cantidad);
+            }
+        }
+
+        List<Map.Entry<String, Long>> topSectores = agregador.topSectores(10);
+        int numSectores = agregador.numSectores();
+        double mediaDiaria = agregador.mediaDiaria();
+        double medianaDiaria = agregador.medianaDiaria();
+
+        List<List<Object>> diasPico = calcularDiasPico(porDia);
+        List<List<Object>> horasPico = porHora.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(5)
+                .map(e -> toPair(e.getKey(), e.getValue()))
+                .toList();
+        List<List<Object>> sectoresZ = calcularZscore(porSector);
+
+        return new DatosAgregados(porTipo, porEstado, porSector, porHora, porDia, porDiaSemana,
+                topSectores, numSectores, mediaDiaria, medianaDiaria, diasPico, horasPico, sectoresZ);
+    }
+
+    // Toma las alertas más recientes de los sectores top; el rango se lee por páginas y se corta al completar la muestra
+    private List<Alerta> seleccionarMuestra(FiltroAlertas filtro, int totalEncontradas,
+                                            List<Map.Entry<String, Long>> topSectores, int limiteSeguro) {
+        int limiteMuestraHeur = Math.min(200, Math.max(50, (int) Math.sqrt(Math.max(totalEncontradas, 1)) * 5));
+        int limiteMuestra = Math.min(limiteSeguro, limiteMuestraHeur);
+
+        Set<String> sectoresTopSet = topSectores.stream()
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+
+        return alertaService.muestrearAlertasRecientes(filtro,
+                a -> sectoresTopSet.contains(sectorVillaComuna(a)), limiteMuestra);
+    }
+
+    private Map<String, Object> construirPayloadAi(RangoFechas rango, int totalEncontradas, DatosAgregados agregados, List<Alerta> muestra) {
+        Map<String, Object> aiData = new LinkedHashMap<>();
+        aiData.put("rango", Map.of("inicio", rango.inicio().toString(), "fin", rango.fin().toString()));
+        aiData.put("totales", Map.of("encontradas", totalEncontradas, "sectores", agregados.numSectores(),
+                "mediaDiaria", agregados.mediaDiaria(), "medianaDiaria", agregados.medianaDiaria()));
+        aiData.put(KEY_POR_TIPO, toPairs(agregados.porTipo()));
+        aiData.put(KEY_POR_ESTADO, toPairs(agregados.porEstado()));
+        aiData.put("porHora", toPairsIntLong(agregados.porHora()));
+        aiData.put("porDiaSemana", toPairsStrLong(agregados.porDiaSemana()));
+        aiData.put("topSectores", agregados.topSectores().stream()
+                .map(e -> toPair(e.getKey(), e.getValue())).toList());
+
+        Map<String, Object> tendencias = new LinkedHashMap<>();
+        tendencias.put("diaria", agregados.porDia().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> toPair(e.getKey().toString(), e.getValue()))
+                .toList());
+        aiData.put("tendencias", tendencias);
+
+        Map<String, Object> anom = new LinkedHashMap<>();
+        anom.put("diasPico", agregados.diasPico());
+        anom.put("horasPico", agregados.horasPico());
+        anom.put("sectoresZscore", agregados.sectoresZ());
+        aiData.put("anomalias", anom);
+
+        aiData.put("muestra", muestra.stream().limit(20).map(a -> {
+            Map<String, Object> item = new HashMap<>();
+            item.put("fecha", a.getFechaHora() != null ? a.getFechaHora().toString() : "N/A");
+            item.put("tipo", a.getTipo() != null ? a.getTipo().name() : "DESCONOCIDO");
+            item.put(KEY_ESTADO, a.getEstado() != null ? a.getEstado().name() : "DESCONOCIDO");
+            item.put(KEY_SECTOR, sectorVillaComuna(a));
+            item.put("detalle", Optional.ofNullable(a.getDescripcion()).orElse(""));
+            return item;
+        }).toList());
+
+        return aiData;
+    }
+
+    private String construirPromptAi(String payloadJson) {
+        return "Eres analista de seguridad. Con base en el siguiente JSON agregado, entrega:\n" +
+                "- Patrones por tipo, sector, hora y día.\n" +
+                "- Tendencias y posibles causas.\n" +
+                "- Sectores/horas con anomalías y recomendaciones accionables.\n" +
+                "- Resumen ejecutivo (máx 8 viñetas) y 3 prioridades tácticas para la próxima semana.\n" +
+                "Responde en minimo 350–400 palabras. El resultado dalo en formato markdown que se vea profesional, que sea facil de leer" +
+                payloadJson;
+    }
+
+    private Map<String, Object> construirRequestAi(String prompt) {
+        Map<String, Object> aiRequest = new HashMap<>();
+        aiRequest.put("contents", List.of(Map.of(
+                "role", "user",
+                "parts", List.of(Map.of("text", prompt))
+        )));
+
+        Map<String, Object> generationConfig = new HashMap<>();
+        generationConfig.put("temperature", 0.2);
+        generationConfig.put("topK", 40);
+        generationConfig.put("topP", 0.9);
+        generationConfig.put("maxOutputTokens", 2500);
+        aiRequest.put("generationConfig", generationConfig);
+
+        return aiRequest;
+    }
+
+    private Map<String, Object> construirRespuesta(SolicitudInforme filtros, RangoFechas rango, int totalEncontradas,
+                                                    List<Alerta> muestra, DatosAgregados agregados, String informe) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put(KEY_STATUS, "success");
+        resultado.put("filtros", filtrosMap(rango.inicio(), rango.fin(), filtros.tipoFiltro(),
+                filtros.estadoFiltro(), filtros.sectorFiltro(), muestra.size()));
+        resultado.put("totalEncontradas", totalEncontradas);
+        resultado.put("totalUsadas", muestra.size());
+
+        Map<String, Object> agregadosMap = new LinkedHashMap<>();
+        agregadosMap.put(KEY_POR_TIPO, agregados.porTipo());
+        agregadosMap.put(KEY_POR_ESTADO, agregados.porEstado());
+        agregadosMap.put("porSectorTop10", agregados.topSectores());
+        agregadosMap.put("porHora", agregados.porHora());
+        agregadosMap.put("porDiaSemana", agregados.porDiaSemana());
+        agregadosMap.put("mediaDiaria", agregados.mediaDiaria());
+        agregadosMap.put("medianaDiaria", agregados.medianaDiaria());
+
+        Map<String, Object> anom = new LinkedHashMap<>();
+        anom.put("diasPico", agregados.diasPico());
+        anom.put("horasPico", agregados.horasPico());
+        anom.put("sectoresZscore", agregados.sectoresZ());
+        agregadosMap.put("anomalias", anom);
+
+        resultado.put("agregados", agregadosMap);
+        resultado.put(KEY_INFORME_AI, informe);
+        resultado.put("modelo", googleAiService.modelo());
+        resultado.put(KEY_MODO, "agregado");
+        resultado.put("muestra", muestra.stream().limit(10).map(AlertaResponseDto::new).toList());
+
+        return resultado;
+    }
+
+    private record RangoFechas(LocalDateTime inicio, LocalDateTime fin) {}
+
+    private record DatosAgregados(Map<TipoAlertaEnum, Long> porTipo, Map<EstadoAlerta, Long> porEstado,
+                                  Map<String, Long> porSector, Map<Integer, Long> porHora,
+                                  Map<LocalDate, Long> porDia, Map<String, Long> porDiaSemana,
+                                  List<Map.Entry<String, Long>> topSectores, int numSectores,
+                                  double mediaDiaria, double medianaDiaria,
+                                  List<List<Object>> diasPico, List<List<Object>> horasPico,
+                                  List<List<Object>> sectoresZ) {}
+
+    private LocalDateTime[] parseFechasOrThrow(String fechaInicioStr, String fechaFinStr) {
+        try {
+            LocalDateTime inicio = LocalDateTime.parse(fechaInicioStr);
+            LocalDateTime fin = LocalDateTime.parse(fechaFinStr);
+            return new LocalDateTime[]{inicio, fin};
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Formato de fecha inválido. Use ISO-8601, ej: 2025-11-29T13:45:00");
+        }
+    }
+
+    private String asString(Object o) {
+        return o == null ? null : String.valueOf(o).trim();
+    }
+
+    private TipoAlertaEnum parseTipo(String tipoStr) {
+        if (tipoStr == null || tipoStr.isBlank()) return null;
+        try {
+            return TipoAlertaEnum.valueOf(tipoStr.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private EstadoAlerta parseEstado(String estadoStr) {
+        if (estadoStr == null || estadoStr.isBlank()) return null;
+        try {
+            return EstadoAlerta.valueOf(estadoStr.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    // Texto del primer candidato, o null si la respuesta no lo trae
+    private String textoGemini(String rawJson) {
+        if (rawJson == null || rawJson.isBlank()) return null;
+        try {
+            JsonNode text = objectMapper.readTree(rawJson)
+                    .path("candidates").path(0).path("content").path("parts").path(0).path("text");
+            return text.isMissingNode() ? null : text.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String extraerTextoGemini(String rawJson) {
+        if (rawJson == null || rawJson.isBlank()) return "No hubo respuesta del modelo.";
+        try {
+            JsonNode root = objectMapper.readTree(rawJson);
+            JsonNode candidates = root.path("candidates");
+            if (candidates.isArray() && !candidates.isEmpty()) {
+                JsonNode parts = candidates.get(0).path("content").path("parts");
+                if (parts.isArray() && !parts.isEmpty()) {
+                    JsonNode text = parts.get(0).path("text");
+                    if (!text.isMissingNode()) return text.asText();
+                }
+            }
+            return "No se pudo extraer el texto de la respuesta del modelo.";
+        } catch (Exception e) {
+            return "Error al parsear respuesta del modelo: " + e.getMessage();
+        }
+    }
+
+    private Map<String, Object> filtrosMap(LocalDateTime inicio,
+                                           LocalDateTime fin,
+                                           TipoAlertaEnum tipo,
+                                           EstadoAlerta estado,
+                                           String sector,
+                                           Integer limite) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("fechaInicio", inicio);
+        m.put("fechaFin", fin);
+        m.put("tipo", tipo);
+        m.put(KEY_ESTADO, estado);
+        m.put(KEY_SECTOR, sector);
+        m.put(KEY_LIMITE, limite);
+        return m;
+    }
+
+
+    // Helper: compone "Sector (Villa X, Comuna Y)" con valores de respaldo si faltan
+    private String sectorVillaComuna(Alerta a) {
+        String villa = null;
+        String comuna = Optional.ofNullable(a.getComuna()).filter(s -> !s.isBlank()).orElse(null);
+
+        try {
+            if (a.getUsuario() != null) {
+                // Nombre de la villa desde la relación del usuario si existe
+                villa = a.getUsuario().getVillaNombre();
+                if (comuna == null) {
+                    comuna = a.getUsuario().getComunaNombre();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Error al obtener datos de villa/comuna para alerta {}: {}", 
+                    a.getId(), e.getMessage());
+        }
+
+        return sectorVillaComuna(a.getSector(), villa, comuna);
+    }
+
+    private String sectorVillaComuna(String sectorRaw, String villaRaw, String comunaRaw) {
+        String sector = Optional.ofNullable(sectorRaw).filter(s -> !s.isBlank()).orElse("(sin sector)");
+        String villa = Optional.ofNullable(villaRaw).filter(s -> !s.isBlank()).orElse(null);
+        String comuna = Optional.ofNullable(comunaRaw).filter(s -> !s.isBlank()).orElse(null);
+
+        StringBuilder sb = new StringBuilder(sector);
+        List<String> detalles = new ArrayList<>();
+        if (villa != null) detalles.add("Villa " + villa);
+        if (comuna != null) detalles.add("Comuna " + comuna);
+        if (!detalles.isEmpty()) {
+            sb.append(" (").append(String.join(", ", detalles)).append(")");
+        }
+        return sb.toString();
+    }
+
+    // ==== Utilidades de agregación compacta ====
+    private String diaCorto(DayOfWeek dow) {
+        return switch (dow) {
+            case MONDAY -> "L";
+            case TUESDAY -> "M";
+            case WEDNESDAY -> "X";
+            case THURSDAY -> "J";
+            case FRIDAY -> "V";
+            case SATURDAY -> "S";
+            case SUNDAY -> "D";
+            default -> dow.name();
+        };
+    }
+
+    private List<List<Object>> calcularDiasPico(Map<LocalDate, Long> porDia) {
+        if (porDia == null || porDia.isEmpty()) return Collections.emptyList();
+        List<Long> valores = new ArrayList<>(porDia.values());
+        double media = valores.stream().mapToLong(v -> v).average().orElse(0.0);
+        double varMedia = valores.stream().mapToDouble(v -> Math.pow(v - media, 2)).average().orElse(0.0);
+        double sd = Math.sqrt(varMedia);
+        double umbral = media + 2 * sd;
+        return porDia.entrySet().stream()
+                .filter(e -> e.getValue() > umbral)
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> toPair(e.getKey().toString(), e.getValue()))
+                .toList();
+    }
+
+    private List<List<Object>> calcularZscore(Map<String, Long> porSector) {
+        if (porSector == null || porSector.isEmpty()) return Collections.emptyList();
+        List<Long> valores = new ArrayList<>(porSector.values());
+        double media = valores.stream().mapToLong(v -> v).average().orElse(0.0);
+        double varia = valores.stream().mapToDouble(v -> Math.pow(v - media, 2)).average().orElse(0.0);
+        double sd = Math.sqrt(varia);
+        final double sdSafe = (sd == 0.0) ? 1.0 : sd; // evitar división por cero cuando todos son iguales
+        // Orden dentro del stream: toList() devuelve una lista inmutable
+        return porSector.entrySet().stream()
+                .map(e -> toPair(e.getKey(), round2((e.getValue() - media) / sdSafe)))
+                .sorted((a, b) -> Double.compare(((Number) b.get(1)).doubleValue(), ((Number) a.get(1)).doubleValue()))
+                .limit(10)
+                .toList();
+    }
+
+    private double round2(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    private <K> List<List<Object>> toPairs(Map<K, Long> map) {
+        return map.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed())
+                .map(e -> toPair(String.valueOf(e.getKey()), e.getValue()))
+                .toList();
+    }
+
+    private List<List<Object>> toPairsIntLong(Map<Integer, Long> map) {
+        return map.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByKey())
+                .map(e -> toPair(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    private List<List<Object>> toPairsStrLong(Map<String, Long> map) {
+        return map.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByKey())
+                .map(e -> toPair(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    private List<Object> toPair(Object a, Object b) {
+        List<Object> list = new ArrayList<>(2);
+        list.add(a);
+        list.add(b);
+        return list;
+    }
+}
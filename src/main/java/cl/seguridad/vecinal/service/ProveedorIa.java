@@ -0,0 +1,24 @@
+package cl.seguridad.vecinal.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Backend que genera el texto de los informes. Recibe y devuelve el formato de la API de Gemini
+ * (generateContent / streamGenerateContent con alt=sse), así {@link GoogleAiService} y el informe no
+ * dependen de cuál está activo. Se elige con {@code app.ia.proveedor}: {@code gemini} (por defecto) o
+ * {@code simulado} para pruebas de carga sin salir a Google.
+ */
+public interface ProveedorIa {
+
+    /** Nombre del modelo, tal como se informa en la respuesta del informe. */
+    String modelo();
+
+    /** JSON completo de la respuesta. */
+    Mono<String> generarContenido(Map<String, Object> requestBody);
+
+    /** JSON de cada fragmento a medida que se genera. */
+    Flux<String> generarContenidoStream(Map<String, Object> requestBody);
+}
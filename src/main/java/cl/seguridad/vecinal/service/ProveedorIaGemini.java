@@ -0,0 +1,54 @@
+package cl.seguridad.vecinal.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/** Gemini real, a través del {@code googleAiWebClient} de {@code GoogleAiWebClientConfig}. */
+@Component
+@ConditionalOnProperty(name = "app.ia.proveedor", havingValue = "gemini", matchIfMissing = true)
+public class ProveedorIaGemini implements ProveedorIa {
+
+    private static final String MODELO = "gemini-2.0-flash";
+
+    private final WebClient googleAiWebClient;
+
+    public ProveedorIaGemini(@Qualifier("googleAiWebClient") WebClient googleAiWebClient) {
+        this.googleAiWebClient = googleAiWebClient;
+    }
+
+    @Override
+    public String modelo() {
+        return MODELO;
+    }
+
+    @Override
+    public Mono<String> generarContenido(Map<String, Object> requestBody) {
+        return googleAiWebClient
+                .post()
+                .uri("/v1beta/models/" + MODELO + ":generateContent")
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class);
+    }
+
+    @Override
+    public Flux<String> generarContenidoStream(Map<String, Object> requestBody) {
+        return googleAiWebClient
+                .post()
+                .uri("/v1beta/models/" + MODELO + ":streamGenerateContent?alt=sse")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data);
+    }
+}
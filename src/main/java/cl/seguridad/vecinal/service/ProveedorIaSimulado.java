@@ -0,0 +1,122 @@
+package cl.seguridad.vecinal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Modelo local para pruebas de carga y desarrollo sin API key: responde en el formato de Gemini tras
+ * una latencia configurable ({@code app.ia.simulado.latencia-ms} ± {@code jitter-ms}) y falla con
+ * probabilidad {@code tasa-fallos}. La espera usa los temporizadores de Reactor, como una llamada HTTP
+ * real: no ocupa hilos mientras "genera".
+ */
+@Component
+@ConditionalOnProperty(name = "app.ia.proveedor", havingValue = "simulado")
+public class ProveedorIaSimulado implements ProveedorIa {
+
+    private static final String TEXTO = """
+            ## Resumen ejecutivo (informe simulado)
+
+            - Este texto lo genera el proveedor de IA simulado (app.ia.proveedor=simulado).
+            - Los agregados numéricos del informe son reales; solo la narrativa es de relleno.
+            - Datos recibidos: %d caracteres de prompt.
+
+            ## Prioridades tácticas
+
+            1. Revisar los sectores con mayor z-score.
+            2. Reforzar la vigilancia en las horas pico.
+            3. Dar seguimiento a las alertas aún activas.
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long latenciaMs;
+    private final long jitterMs;
+    private final double tasaFallos;
+    private final int fragmentos;
+
+    public ProveedorIaSimulado(@Value("${app.ia.simulado.latencia-ms:8000}") long latenciaMs,
+                               @Value("${app.ia.simulado.jitter-ms:2000}") long jitterMs,
+                               @Value("${app.ia.simulado.tasa-fallos:0.0}") double tasaFallos,
+                               @Value("${app.ia.simulado.fragmentos:20}") int fragmentos) {
+        this.latenciaMs = latenciaMs;
+        this.jitterMs = jitterMs;
+        this.tasaFallos = tasaFallos;
+        this.fragmentos = Math.max(1, fragmentos);
+    }
+
+    @Override
+    public String modelo() {
+        return "simulado";
+    }
+
+    @Override
+    public Mono<String> generarContenido(Map<String, Object> requestBody) {
+        return Mono.defer(() -> {
+            Duration latencia = sortearLatencia();
+            if (sortearFallo()) {
+                return Mono.delay(latencia).then(Mono.error(new RuntimeException("Error simulado del modelo")));
+            }
+            return Mono.delay(latencia).thenReturn(respuesta(texto(requestBody)));
+        });
+    }
+
+    // La latencia sorteada se reparte entre los fragmentos; un fallo corta el stream a la mitad
+    @Override
+    public Flux<String> generarContenidoStream(Map<String, Object> requestBody) {
+        return Flux.defer(() -> {
+            Duration porFragmento = sortearLatencia().dividedBy(fragmentos);
+            List<String> partes = partir(texto(requestBody));
+            Flux<String> stream = Flux.interval(porFragmento)
+                    .take(partes.size())
+                    .map(i -> respuesta(partes.get(i.intValue())));
+            if (sortearFallo()) {
+                return stream.take(partes.size() / 2)
+                        .concatWith(Mono.error(new RuntimeException("Error simulado del modelo")));
+            }
+            return stream;
+        });
+    }
+
+    private Duration sortearLatencia() {
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1) : 0;
+        return Duration.ofMillis(Math.max(0, latenciaMs + jitter));
+    }
+
+    private boolean sortearFallo() {
+        return tasaFallos > 0 && ThreadLocalRandom.current().nextDouble() < tasaFallos;
+    }
+
+    private String texto(Map<String, Object> requestBody) {
+        String prompt = objectMapper.valueToTree(requestBody)
+                .path("contents").path(0).path("parts").path(0).path("text").asText("");
+        return TEXTO.formatted(prompt.length());
+    }
+
+    private List<String> partir(String texto) {
+        int largo = (texto.length() + fragmentos - 1) / fragmentos;
+        return IntStream.range(0, fragmentos)
+                .mapToObj(i -> texto.substring(Math.min(i * largo, texto.length()),
+                        Math.min((i + 1) * largo, texto.length())))
+                .filter(parte -> !parte.isEmpty())
+                .toList();
+    }
+
+    // Mismo formato que candidates[0].content.parts[0].text de Gemini
+    private String respuesta(String texto) {
+        try {
+            return objectMapper.writeValueAsString(Map.of("candidates", List.of(
+                    Map.of("content", Map.of("parts", List.of(Map.of("text", texto)))))));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.util.DigestUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -28,18 +29,26 @@ public class RefreshTokenService {
         return DigestUtils.md5DigestAsHex(token.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Claims firmados del access token. Con {@code app.auth.modo=stateless} el filtro JWT autentica
+     * solo con ellos (rol, villa y estado de cuenta), sin consultar la base.
+     */
+    private Map<String, Object> claimsDeAcceso(Usuario user) {
+        // HashMap: villaId puede ser null (Map.of no admite nulls)
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtTokenUtil.CLAIM_ROLE, user.getRole() != null ? user.getRole().name() : null);
+        claims.put("isAdmin", user.getRole() != null && "ADMIN".equals(user.getRole().name()));
+        claims.put(JwtTokenUtil.CLAIM_VILLA_ID, user.getVillaId());
+        claims.put(JwtTokenUtil.CLAIM_ESTADO_CUENTA, user.isEstadoCuenta());
+        return claims;
+    }
+
     public record Pair(String accessToken, String refreshToken, String jti, String username, String role, Boolean isAdmin) {}
 
     public Pair issuePair(Usuario user, String userAgent, String ip) {
         String jti = jwt.newJti();
         String refreshToken = jwt.generateRefreshToken(user.getEmail(), jti);
-        String accessToken = jwt.generateAccessToken(
-                user.getEmail(),
-                Map.of(
-                        "role", user.getRole() != null ? user.getRole().name() : null,
-                        "isAdmin", user.getRole() != null && "ADMIN".equals(user.getRole().name())
-                )
-        );
+        String accessToken = jwt.generateAccessToken(user.getEmail(), claimsDeAcceso(user));
 
         RefreshToken rt = new RefreshToken();
         rt.setUsuario(user);
@@ -73,13 +82,7 @@ public class RefreshTokenService {
 
         Usuario user = usuarios.findByEmail(username).orElseThrow();
         String newRefresh = jwt.generateRefreshToken(username, newJti);
-        String newAccess = jwt.generateAccessToken(
-                username,
-                Map.of(
-                        "role", user.getRole() != null ? user.getRole().name() : null,
-                        "isAdmin", user.getRole() != null && "ADMIN".equals(user.getRole().name())
-                )
-        );
+        String newAccess = jwt.generateAccessToken(username, claimsDeAcceso(user));
 
         RefreshToken next = new RefreshToken();
         next.setUsuario(user);
@@ -0,0 +1,119 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.AlertaRepository;
+import cl.seguridad.vecinal.dao.AlertaResumenHoraRepository;
+import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.AlertaResumenHora;
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mantiene la tabla alerta_resumen_hora (conteos por hora, villa, sector, tipo, estado y silenciosa).
+ * Los ajustes corren dentro de la transacción de AlertaService, así el resumen no diverge de la tabla alerta.
+ */
+@Service
+@Transactional
+public class ResumenAlertasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenAlertasService.class);
+
+    private static final long SIN_VILLA = 0L;
+    private static final int SIN_SECTOR_ID = 0;
+    private static final String SIN_SECTOR = "";
+
+    private final AlertaResumenHoraRepository resumenRepository;
+    private final AlertaRepository alertaRepository;
+
+    public ResumenAlertasService(AlertaResumenHoraRepository resumenRepository, AlertaRepository alertaRepository) {
+        this.resumenRepository = resumenRepository;
+        this.alertaRepository = alertaRepository;
+    }
+
+    public void registrarAlta(Alerta alerta) {
+        ajustar(alerta, alerta.getEstado(), 1);
+    }
+
+    public void registrarCambioEstado(Alerta alerta, EstadoAlerta estadoAnterior) {
+        if (estadoAnterior == alerta.getEstado()) {
+            return;
+        }
+        ajustar(alerta, estadoAnterior, -1);
+        ajustar(alerta, alerta.getEstado(), 1);
+    }
+
+    public void registrarBaja(Alerta alerta) {
+        ajustar(alerta, alerta.getEstado(), -1);
+    }
+
+    /**
+     * Buckets con al menos una alerta en el rango. villaId y sectorIds son filtros opcionales
+     * (sectorIds con la convención de FiltroAlertas: null = sin filtro, vacío = ningún sector).
+     * Solo devuelve horas completas desde {@link #primeraHoraCompleta}: los minutos anteriores quedan
+     * fuera y quien llama los cuenta en la tabla alerta. La última hora se incluye entera, lo que es
+     * exacto cuando fin es el final de una hora o el momento actual.
+     */
+    @Transactional(readOnly = true)
+    public List<AlertaResumenHora> obtenerBuckets(Long villaId, Set<Integer> sectorIds, LocalDateTime inicio, LocalDateTime fin) {
+        if (sectorIds != null && sectorIds.isEmpty()) {
+            return List.of();
+        }
+        return resumenRepository.findBuckets(villaId, sectorIds != null, sectorIds != null ? sectorIds : Set.of(0),
+                primeraHoraCompleta(inicio), fin);
+    }
+
+    /** Inicio de la primera hora que queda entera dentro de un rango que comienza en {@code inicio}. */
+    public static LocalDateTime primeraHoraCompleta(LocalDateTime inicio) {
+        LocalDateTime hora = inicio.truncatedTo(ChronoUnit.HOURS);
+        return hora.equals(inicio) ? hora : hora.plusHours(1);
+    }
+
+    /**
+     * Recalcula el resumen completo desde la tabla alerta. Corrige cualquier diferencia acumulada
+     * (ajustes perdidos, cambios hechos directo en la base); se ejecuta al iniciar con el resumen
+     * vacío y a pedido desde /api/admin/alertas/resumen/reconstruir.
+     */
+    public int reconstruir() {
+        resumenRepository.vaciar();
+        int buckets = resumenRepository.reconstruirDesdeAlertas();
+        logger.info("Resumen horario de alertas reconstruido: {} buckets", buckets);
+        return buckets;
+    }
+
+    // Primera ejecución con datos existentes: el resumen aún no tiene filas
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializarSiVacio() {
+        if (resumenRepository.count() == 0 && alertaRepository.count() > 0) {
+            reconstruir();
+        }
+    }
+
+    private void ajustar(Alerta alerta, EstadoAlerta estado, long delta) {
+        if (alerta.getFechaHora() == null || alerta.getTipo() == null || estado == null) {
+            return;
+        }
+        Long villaId = alerta.getUsuario() != null ? alerta.getUsuario().getVillaId() : null;
+        Integer sectorId = alerta.getSectorId();
+        String sector = alerta.getSector();
+
+        resumenRepository.incrementar(
+                alerta.getFechaHora().truncatedTo(ChronoUnit.HOURS),
+                villaId != null ? villaId : SIN_VILLA,
+                sectorId != null ? sectorId : SIN_SECTOR_ID,
+                sector != null ? sector : SIN_SECTOR,
+                alerta.getTipo().name(),
+                estado.name(),
+                Boolean.TRUE.equals(alerta.getSilenciosa()),
+                delta
+        );
+    }
+}
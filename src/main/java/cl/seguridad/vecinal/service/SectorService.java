@@ -0,0 +1,111 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.SectorRepository;
+import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.Sector;
+import cl.seguridad.vecinal.modelo.Usuario;
+import cl.seguridad.vecinal.modelo.Villa;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService.Catalogo;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService.SectorGeo;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService.VillaGeo;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sectores de las villas (tabla sector). Las búsquedas nombre ↔ id se resuelven con el catálogo
+ * geográfico en memoria; la base solo se consulta al asignar un sector que el catálogo aún no conoce.
+ */
+@Service
+public class SectorService {
+
+    private final SectorRepository sectorRepository;
+    private final CatalogoGeograficoService catalogoGeografico;
+
+    public SectorService(SectorRepository sectorRepository, CatalogoGeograficoService catalogoGeografico) {
+        this.sectorRepository = sectorRepository;
+        this.catalogoGeografico = catalogoGeografico;
+    }
+
+    /**
+     * Asigna al usuario el sector de su villa con ese nombre, creándolo si no existe (los administradores
+     * lo escriben al verificar). Un usuario sin villa conserva solo el nombre: el sector pertenece a una villa.
+     */
+    @Transactional
+    public void asignar(Usuario usuario, String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            usuario.setSector(null);
+            usuario.setSectorId(null);
+            return;
+        }
+        if (usuario.getVilla() == null) {
+            usuario.setSector(nombre.trim());
+            usuario.setSectorId(null);
+            return;
+        }
+        SectorGeo sector = resolver(usuario.getVilla(), nombre);
+        usuario.setSector(sector.nombre());
+        usuario.setSectorId(sector.id());
+    }
+
+    /** La alerta queda en el sector del usuario que la crea. */
+    public void asignar(Alerta alerta, Usuario usuario) {
+        alerta.setSector(usuario.getSector());
+        alerta.setSectorId(usuario.getSectorId());
+    }
+
+    private SectorGeo resolver(Villa villa, String nombre) {
+        SectorGeo conocido = catalogoGeografico.catalogo().sector(villa.getId(), nombre);
+        if (conocido != null) {
+            return conocido;
+        }
+        String limpio = nombre.trim();
+        Sector sector = sectorRepository.findByVilla_IdAndNombre(villa.getId(), limpio)
+                .orElseGet(() -> crear(villa, limpio));
+        return new SectorGeo(sector.getId(), villa.getId(), sector.getNombre());
+    }
+
+    // Dos verificaciones simultáneas pueden crear el mismo sector: un find + save chocaría con
+    // uk_sector_villa_nombre y marcaría la transacción para rollback. El upsert no falla y la lectura
+    // con bloqueo devuelve la fila, sea la insertada aquí o la de la otra transacción.
+    private Sector crear(Villa villa, String nombre) {
+        sectorRepository.insertarSiFalta(villa.getId(), nombre);
+        Sector sector = sectorRepository.findParaAsignar(villa.getId(), nombre)
+                .orElseThrow(() -> new IllegalStateException("No se pudo crear el sector " + nombre));
+        // El INSERT nativo no pasa por el listener JPA de la entidad
+        catalogoGeografico.marcarModificado(new CatalogoGeograficoService.CatalogoModificado());
+        return sector;
+    }
+
+    // ========== FILTROS (nombre → ids) ==========
+
+    /** Ids del sector con ese nombre en la villa o, sin villa, en todas; vacío si no existe. */
+    public Set<Integer> idsPorNombre(Long villaId, String nombre) {
+        return catalogoGeografico.catalogo().sectorIds(villaId, nombre);
+    }
+
+    /** Ids de los sectores cuyo nombre contiene el texto, sin distinguir mayúsculas. */
+    public Set<Integer> idsQueContienen(String texto) {
+        return catalogoGeografico.catalogo().sectorIdsQueContienen(texto);
+    }
+
+    /** Nombres de los sectores de la villa o, sin villa, los nombres distintos de todas. */
+    public List<String> nombres(Long villaId) {
+        Catalogo catalogo = catalogoGeografico.catalogo();
+        if (villaId != null) {
+            VillaGeo villa = catalogo.villa(villaId);
+            return villa != null ? villa.nombresSectores() : List.of();
+        }
+        Map<String, String> porClave = new LinkedHashMap<>();
+        for (VillaGeo villa : catalogo.villasActivas(null)) {
+            for (SectorGeo sector : villa.sectores()) {
+                porClave.putIfAbsent(CatalogoGeograficoService.normalizar(sector.nombre()), sector.nombre());
+            }
+        }
+        return List.copyOf(porClave.values());
+    }
+}
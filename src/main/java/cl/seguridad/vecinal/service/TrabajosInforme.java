@@ -0,0 +1,230 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.service.InformeAlertasService.DatosInforme;
+import cl.seguridad.vecinal.service.InformeAlertasService.SolicitudInforme;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generación de informes como trabajos en segundo plano. Las consultas de cada informe corren en un
+ * pool propio de tamaño fijo con una cola acotada, y la espera del modelo no ocupa ningún hilo: los
+ * informes no toman hilos de Tomcat ni compiten con el resto de la API. Con la cola llena
+ * {@link #encolar} lanza {@link RejectedExecutionException}.
+ * <p>
+ * Los trabajos se indexan también por solicitud normalizada + {@link AlertaService#versionDatos()}:
+ * una solicitud igual a otra en curso o ya terminada recibe ese mismo trabajo, hasta que cambian las
+ * alertas o vence {@code app.informe.cache-minutos}. Los trabajos con error no se reutilizan.
+ */
+@Component
+public class TrabajosInforme implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrabajosInforme.class);
+
+    private static final String COLA_LLENA = "Hay demasiados informes en preparación, intente en unos minutos";
+
+    public enum EstadoTrabajo { PENDIENTE, EN_PROCESO, COMPLETADO, ERROR }
+
+    public static final class Trabajo {
+        private final String id = UUID.randomUUID().toString();
+        private final SolicitudInforme solicitud;
+        private final LocalDateTime creadoEn = LocalDateTime.now();
+        private final CompletableFuture<Map<String, Object>> resultado = new CompletableFuture<>();
+        private volatile boolean iniciado;
+        private volatile LocalDateTime terminadoEn;
+
+        private Trabajo(SolicitudInforme solicitud) {
+            this.solicitud = solicitud;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public SolicitudInforme getSolicitud() {
+            return solicitud;
+        }
+
+        public LocalDateTime getCreadoEn() {
+            return creadoEn;
+        }
+
+        public LocalDateTime getTerminadoEn() {
+            return terminadoEn;
+        }
+
+        /** Se completa con la respuesta del informe, o excepcionalmente si la generación falla. */
+        public CompletableFuture<Map<String, Object>> getResultado() {
+            return resultado;
+        }
+
+        public EstadoTrabajo getEstado() {
+            if (resultado.isCompletedExceptionally()) return EstadoTrabajo.ERROR;
+            if (resultado.isDone()) return EstadoTrabajo.COMPLETADO;
+            return iniciado ? EstadoTrabajo.EN_PROCESO : EstadoTrabajo.PENDIENTE;
+        }
+
+        /** Mensaje del error si el trabajo falló, null en otro caso. */
+        public String getError() {
+            if (!resultado.isCompletedExceptionally()) return null;
+            try {
+                resultado.join();
+                return null;
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause() != null ? e.getCause() : e;
+                return causa.getMessage();
+            }
+        }
+    }
+
+    private record ClaveInforme(SolicitudInforme solicitud, long versionDatos) {}
+
+    private final InformeAlertasService informeService;
+    private final AlertaService alertaService;
+    private final ThreadPoolExecutor ejecutor;
+    // Por id, para la consulta del estado; se retienen después de terminar para que el cliente los lea
+    private final Cache<String, Trabajo> trabajos;
+    // Por solicitud + versión de datos: trabajo en curso o resultado reutilizable
+    private final Cache<ClaveInforme, Trabajo> porSolicitud;
+    private final AtomicLong rechazados = new AtomicLong();
+
+    public TrabajosInforme(InformeAlertasService informeService, AlertaService alertaService,
+                           @Value("${app.informe.hilos:2}") int hilos,
+                           @Value("${app.informe.cola:20}") int capacidadCola,
+                           @Value("${app.informe.cache-minutos:10}") long cacheMinutos,
+                           @Value("${app.informe.retencion-minutos:30}") long retencionMinutos) {
+        this.informeService = informeService;
+        this.alertaService = alertaService;
+        this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), new CustomizableThreadFactory("informe-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.trabajos = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .expireAfterWrite(Duration.ofMinutes(retencionMinutos))
+                .build();
+        this.porSolicitud = Caffeine.newBuilder()
+                .maximumSize(200)
+                .expireAfterWrite(Duration.ofMinutes(cacheMinutos))
+                .build();
+    }
+
+    /**
+     * Devuelve el trabajo de esta solicitud: uno existente si hay uno en curso o terminado con los
+     * mismos datos, o uno nuevo en la cola.
+     *
+     * @throws RejectedExecutionException si la cola de informes está llena
+     */
+    public Trabajo encolar(SolicitudInforme solicitud) {
+        ClaveInforme clave = new ClaveInforme(solicitud, alertaService.versionDatos());
+        Trabajo nuevo = new Trabajo(solicitud);
+        Trabajo trabajo = porSolicitud.get(clave, c -> nuevo);
+        if (trabajo != nuevo) {
+            return trabajo;
+        }
+
+        trabajos.put(nuevo.getId(), nuevo);
+        try {
+            ejecutor.execute(() -> ejecutar(clave, nuevo));
+        } catch (RejectedExecutionException e) {
+            rechazados.incrementAndGet();
+            RejectedExecutionException rechazo = new RejectedExecutionException(COLA_LLENA);
+            porSolicitud.asMap().remove(clave, nuevo);
+            trabajos.invalidate(nuevo.getId());
+            nuevo.resultado.completeExceptionally(rechazo);
+            throw rechazo;
+        }
+        return nuevo;
+    }
+
+    /**
+     * Solo la etapa de base de datos, en el mismo pool. Para el informe en streaming, que no se registra
+     * como trabajo ni se reutiliza (el texto del modelo igual pasa por {@link CacheInformesIa}).
+     *
+     * @throws RejectedExecutionException si la cola de informes está llena
+     */
+    public CompletableFuture<DatosInforme> prepararDatos(SolicitudInforme solicitud) {
+        CompletableFuture<DatosInforme> datos = new CompletableFuture<>();
+        try {
+            ejecutor.execute(() -> {
+                try {
+                    datos.complete(informeService.prepararDatos(solicitud));
+                } catch (Exception e) {
+                    datos.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rechazados.incrementAndGet();
+            throw new RejectedExecutionException(COLA_LLENA);
+        }
+        return datos;
+    }
+
+    public Trabajo obtener(String id) {
+        return trabajos.getIfPresent(id);
+    }
+
+    // Saturación del pool, para el monitoreo y las pruebas de carga
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("hilos", ejecutor.getMaximumPoolSize());
+        resultado.put("activos", ejecutor.getActiveCount());
+        resultado.put("enCola", ejecutor.getQueue().size());
+        resultado.put("capacidadCola", ejecutor.getQueue().size() + ejecutor.getQueue().remainingCapacity());
+        resultado.put("completados", ejecutor.getCompletedTaskCount());
+        resultado.put("rechazados", rechazados.get());
+        resultado.put("trabajosRetenidos", trabajos.estimatedSize());
+        return resultado;
+    }
+
+    // En el pool solo corre la etapa de base de datos; el hilo queda libre mientras responde el modelo
+    private void ejecutar(ClaveInforme clave, Trabajo trabajo) {
+        trabajo.iniciado = true;
+        DatosInforme datos;
+        try {
+            datos = informeService.prepararDatos(trabajo.solicitud);
+        } catch (Exception e) {
+            fallar(clave, trabajo, e);
+            return;
+        }
+        informeService.completarConIa(datos).subscribe(
+                resultado -> {
+                    trabajo.terminadoEn = LocalDateTime.now();
+                    // Un informe de respaldo (sin IA) se entrega, pero la próxima solicitud vuelve a intentar
+                    if (InformeAlertasService.esRespuestaSinIa(resultado)) {
+                        porSolicitud.asMap().remove(clave, trabajo);
+                    }
+                    trabajo.resultado.complete(resultado);
+                },
+                error -> fallar(clave, trabajo, error));
+    }
+
+    private void fallar(ClaveInforme clave, Trabajo trabajo, Throwable error) {
+        logger.warn("Informe {} falló: {}", trabajo.getId(), error.getMessage());
+        trabajo.terminadoEn = LocalDateTime.now();
+        porSolicitud.asMap().remove(clave, trabajo);
+        trabajo.resultado.completeExceptionally(error);
+    }
+
+    @Override
+    public void destroy() {
+        ejecutor.shutdownNow();
+    }
+}
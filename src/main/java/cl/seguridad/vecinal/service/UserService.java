@@ -7,8 +7,14 @@ import cl.seguridad.vecinal.modelo.Role;
 import cl.seguridad.vecinal.modelo.Villa;
 import cl.seguridad.vecinal.modelo.dto.UserCreateRequest;
 import cl.seguridad.vecinal.modelo.dto.UserUpdateRequest;
+import cl.seguridad.vecinal.security.CacheCuentas;
+import cl.seguridad.vecinal.security.RegistroRevocaciones;
+import cl.seguridad.vecinal.security.UsuarioAutenticado;
+import cl.seguridad.vecinal.util.TextoBusqueda;
+import cl.seguridad.vecinal.util.Transacciones;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -16,7 +22,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,10 +40,31 @@ public class UserService {
     @Autowired
     private VillaRepository villaRepository;
 
+    // Cambios de cuenta que invalidan los claims de tokens ya emitidos (modo de autenticación stateless);
+    // se registran después del commit, para que un rollback no deje revocaciones de cambios que no ocurrieron
+    @Autowired
+    private RegistroRevocaciones registroRevocaciones;
+
+    // Cuentas en caché para la autenticación: toda modificación de un usuario debe invalidar su entrada
+    // (con invalidarCuenta, después del commit)
+    @Autowired
+    private CacheCuentas cacheCuentas;
+
+    // Conteos del dashboard en caché: altas, bajas y cambios de estado/rol/villa la vacían (al commit)
+    @Autowired
+    private CacheEstadisticasUsuarios cacheEstadisticas;
+
+    // El sector se asigna por nombre y se guarda también su sector_id
+    @Autowired
+    private SectorService sectorService;
+
     // ========== MÉTODOS EXISTENTES ==========
 
     public Usuario saveUser(Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        Usuario guardado = usuarioRepository.save(usuario);
+        invalidarCuenta(guardado.getEmail());
+        cacheEstadisticas.invalidar();
+        return guardado;
     }
 
     public Optional<Usuario> getUserByRut(String rut) {
@@ -104,19 +133,21 @@ public class UserService {
             usuario.setVilla(villa);
         }
 
-        usuario.setSector(request.getSector());
+        sectorService.asignar(usuario, request.getSector());
         usuario.setFechaRegistro(LocalDate.now());
         usuario.setEstadoCuenta(true);
         usuario.setVerificado(request.getRole() == Role.SUPER_ADMIN || request.getRole() == Role.ADMIN_VILLA);
 
-        return usuarioRepository.save(usuario);
+        Usuario creado = usuarioRepository.save(usuario);
+        cacheEstadisticas.invalidar();
+        return creado;
     }
 
     // ✅ Actualizar usuario (con validación de permisos)
 
 
     // ✅ Actualizar usuario (con validación de permisos y soporte para villaId)
-    public Usuario updateUser(Integer id, UserUpdateRequest request, Usuario currentUser) {
+    public Usuario updateUser(Integer id, UserUpdateRequest request, UsuarioAutenticado currentUser) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
@@ -127,6 +158,10 @@ public class UserService {
             }
         }
 
+        String emailAnterior = usuario.getEmail();
+        Role rolAnterior = usuario.getRole();
+        Long villaAnterior = usuario.getVillaId();
+
         // Verificar si el email ya existe (excepto el propio usuario)
         if (request.getEmail() != null && !request.getEmail().equals(usuario.getEmail())) {
             if (usuarioRepository.existsUsuarioByEmail(request.getEmail())) {
@@ -159,9 +194,6 @@ public class UserService {
         if (request.getLongitud() != null) {
             usuario.setLongitud(request.getLongitud());
         }
-        if (request.getSector() != null) {
-            usuario.setSector(request.getSector());
-        }
 
         // ✅ ACTUALIZAR VILLA (si se proporciona) - NUEVO
         if (request.getVillaId() != null) {
@@ -175,6 +207,11 @@ public class UserService {
             usuario.setVilla(villa);
         }
 
+        // El sector se resuelve contra la villa final (un cambio de villa lo reasigna en la nueva)
+        if (request.getSector() != null || request.getVillaId() != null) {
+            sectorService.asignar(usuario, request.getSector() != null ? request.getSector() : usuario.getSector());
+        }
+
         // ✅ SOLO SUPER_ADMIN PUEDE CAMBIAR ROLES
         if (request.getRole() != null && !request.getRole().equals(usuario.getRole())) {
             if (currentUser.getRole() != Role.SUPER_ADMIN) {
@@ -188,11 +225,19 @@ public class UserService {
             usuario.setPassword(passwordEncoder.encode(request.getPassword()));
         }
 
-        return usuarioRepository.save(usuario);
+        Usuario actualizado = usuarioRepository.save(usuario);
+        invalidarCuenta(emailAnterior, actualizado.getEmail());
+        cacheEstadisticas.invalidar();
+        // Email, rol y villa viajan en el access token: los tokens anteriores dejan de valer
+        if (!emailAnterior.equals(actualizado.getEmail()) || rolAnterior != actualizado.getRole()
+                || !Objects.equals(villaAnterior, actualizado.getVillaId())) {
+            Transacciones.despuesDelCommit(() -> registroRevocaciones.revocar(emailAnterior));
+        }
+        return actualizado;
     }
 
     // ✅ Toggle verificación (con asignación de sector)
-    public Usuario toggleVerification(Integer id, String sector, Usuario currentUser) {
+    public Usuario toggleVerification(Integer id, String sector, UsuarioAutenticado currentUser) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
@@ -207,10 +252,13 @@ public class UserService {
 
         // Si se está verificando y se proporciona sector, asignarlo
         if (usuario.isVerificado() && sector != null && !sector.trim().isEmpty()) {
-            usuario.setSector(sector.trim());
+            sectorService.asignar(usuario, sector);
         }
 
-        return usuarioRepository.save(usuario);
+        Usuario actualizado = usuarioRepository.save(usuario);
+        invalidarCuenta(actualizado.getEmail());
+        cacheEstadisticas.invalidar();
+        return actualizado;
     }
 
     // Toggle estado de cuenta
@@ -219,11 +267,16 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
         usuario.setEstadoCuenta(!usuario.isEstadoCuenta());
-        return usuarioRepository.save(usuario);
+        Usuario actualizado = usuarioRepository.save(usuario);
+        invalidarCuenta(actualizado.getEmail());
+        cacheEstadisticas.invalidar();
+        Transacciones.despuesDelCommit(() ->
+                registroRevocaciones.cuentaActualizada(actualizado.getEmail(), actualizado.isEstadoCuenta()));
+        return actualizado;
     }
 
     // ✅ Cambiar rol (solo SUPER_ADMIN)
-    public Usuario changeUserRole(Integer id, Role newRole, Usuario currentUser) {
+    public Usuario changeUserRole(Integer id, Role newRole, UsuarioAutenticado currentUser) {
         if (currentUser.getRole() != Role.SUPER_ADMIN) {
             throw new RuntimeException("Solo SUPER_ADMIN puede cambiar roles");
         }
@@ -238,7 +291,11 @@ public class UserService {
             usuario.setVerificado(true);
         }
 
-        return usuarioRepository.save(usuario);
+        Usuario actualizado = usuarioRepository.save(usuario);
+        invalidarCuenta(actualizado.getEmail());
+        cacheEstadisticas.invalidar();
+        Transacciones.despuesDelCommit(() -> registroRevocaciones.revocar(actualizado.getEmail()));
+        return actualizado;
     }
 
     // Desactivar usuario (soft delete)
@@ -247,10 +304,13 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         usuario.setEstadoCuenta(false);
         usuarioRepository.save(usuario);
+        invalidarCuenta(usuario.getEmail());
+        cacheEstadisticas.invalidar();
+        Transacciones.despuesDelCommit(() -> registroRevocaciones.cuentaActualizada(usuario.getEmail(), false));
     }
 
     // ✅ Eliminar usuario (con validación)
-    public void deleteUser(Integer id, Usuario currentUser) {
+    public void deleteUser(Integer id, UsuarioAutenticado currentUser) {
         Usuario usuario = usuarioRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
@@ -262,31 +322,67 @@ public class UserService {
         }
 
         usuarioRepository.deleteById(id);
+        invalidarCuenta(usuario.getEmail());
+        cacheEstadisticas.invalidar();
+        Transacciones.despuesDelCommit(() -> registroRevocaciones.cuentaEliminada(usuario.getEmail()));
+    }
+
+    // Después del commit: invalidar antes dejaría que una autenticación concurrente vuelva a cargar la
+    // fila sin confirmar y la retenga en la caché durante todo el TTL
+    private void invalidarCuenta(String... emails) {
+        Transacciones.despuesDelCommit(() -> {
+            for (String email : emails) {
+                cacheCuentas.invalidar(email);
+            }
+        });
     }
 
     // ✅ Búsqueda con filtro de villa
+    // Las palabras de estado (término completo) filtran por estado; el resto va al índice FULLTEXT y se
+    // combina con el filtro (ver TextoBusqueda.analizar)
+    @Transactional(readOnly = true)
     public Page<Usuario> searchUsers(String query, Pageable pageable, Long villaId) {
-        return usuarioRepository.searchByTextAndVilla(query, villaId, pageable);
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar(query);
+        // Las consultas nativas ya ordenan por fecha de registro
+        Pageable pagina = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+
+        if (busqueda.tieneTexto() && busqueda.tieneEstado()) {
+            return usuarioRepository.buscarPorTextoYEstado(busqueda.consultaTexto(), busqueda.consultaEstado(),
+                    busqueda.estadoCuenta(), busqueda.verificado(), villaId, pagina);
+        }
+        if (busqueda.tieneTexto()) {
+            return usuarioRepository.buscarPorTexto(busqueda.consultaTexto(), villaId, pagina);
+        }
+        if (busqueda.tieneEstado()) {
+            return usuarioRepository.buscarPorEstado(busqueda.consultaEstado(), busqueda.estadoCuenta(),
+                    busqueda.verificado(), villaId, pagina);
+        }
+        // Términos más cortos que el n-grama del índice no pueden coincidir
+        return Page.empty(pageable);
     }
 
-    // ✅ Estadísticas por villa
+    // ✅ Estadísticas por villa (null = todas): una sola consulta con agregación condicional, en caché
+    @Transactional(readOnly = true)
     public UserStats getUserStats(Long villaId) {
-        long total = villaId != null ? usuarioRepository.countByVillaId(villaId) : usuarioRepository.count();
-        long active = villaId != null ? usuarioRepository.countByVillaIdAndEstadoCuentaTrue(villaId)
-                : usuarioRepository.findAll().stream().filter(Usuario::isEstadoCuenta).count();
-        long verified = villaId != null ? usuarioRepository.countByVillaIdAndVerificadoTrue(villaId)
-                : usuarioRepository.findAll().stream().filter(Usuario::isVerificado).count();
-        long admins = villaId != null ?
-                usuarioRepository.countByVillaIdAndRole(villaId, Role.ADMIN_VILLA) +
-                        usuarioRepository.countByVillaIdAndRole(villaId, Role.SUPER_ADMIN)
-                : usuarioRepository.findAll().stream()
-                .filter(u -> u.getRole() == Role.ADMIN_VILLA || u.getRole() == Role.SUPER_ADMIN)
-                .count();
+        return cacheEstadisticas.obtener(villaId, this::calcularUserStats);
+    }
+
+    private UserStats calcularUserStats(Long villaId) {
+        UsuarioRepository.EstadisticasUsuarios conteos = usuarioRepository.contarEstadisticas(villaId);
+        long total = conteos.getTotal();
+        long active = valor(conteos.getActivos());
+        long verified = valor(conteos.getVerificados());
+        long admins = valor(conteos.getAdmins());
         long pending = total - verified;
 
         return new UserStats(total, active, verified, admins, pending);
     }
 
+    // SUM sobre cero filas es null
+    private static long valor(Long suma) {
+        return suma != null ? suma : 0L;
+    }
+
     // Clase para estadísticas
     public static class UserStats {
         public final long total;
@@ -304,25 +400,28 @@ public class UserService {
         }
     }
 
-    // ✅ Obtener sectores de una villa
+    // ✅ Obtener sectores de una villa (tabla sector, desde el catálogo en memoria)
     public List<String> getSectoresByVilla(Long villaId) {
-        if (villaId == null) {
-            return usuarioRepository.findDistinctSectores();
-        }
-        return usuarioRepository.findDistinctSectoresByVillaId(villaId);
+        return sectorService.nombres(villaId);
     }
 
     // Asignar sector a usuario
     public Usuario asignarSector(Integer userId, String sector) {
         Usuario usuario = usuarioRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-        usuario.setSector(sector);
-        return usuarioRepository.save(usuario);
+        sectorService.asignar(usuario, sector);
+        Usuario actualizado = usuarioRepository.save(usuario);
+        invalidarCuenta(actualizado.getEmail());
+        return actualizado;
     }
 
     // Obtener usuarios por sector con paginación
     public Page<Usuario> getUsersBySector(String sector, Pageable pageable) {
-        return usuarioRepository.findBySector(sector, pageable);
+        Set<Integer> sectorIds = sectorService.idsPorNombre(null, sector);
+        if (sectorIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return usuarioRepository.findBySectorIdIn(sectorIds, pageable);
     }
 
     // ✅ Contar usuarios por villa
@@ -331,6 +430,6 @@ public class UserService {
     }
 
     public long countVerifiedUsers() {
-        return usuarioRepository.findAll().stream().filter(Usuario::isVerificado).count();
+        return usuarioRepository.countByVerificadoTrue();
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package cl.seguridad.vecinal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utilidades geoespaciales para búsquedas por proximidad.
+ * <p>
+ * La superficie se divide en una grilla uniforme de {@link #TAMANO_CELDA_GRADOS} grados.
+ * Cada alerta guarda el identificador de su celda ({@code celda_geo}) para que las
+ * búsquedas por radio puedan filtrar primero por un índice B-tree y recién después
+ * calcular la distancia exacta sobre los candidatos.
+ */
+public final class GeoUtils {
+
+    public static final double RADIO_TIERRA_KM = 6371.0;
+
+    // 0.05° ≈ 5.5 km en latitud: un radio de 5 km cubre ~3x3 celdas
+    public static final double TAMANO_CELDA_GRADOS = 0.05;
+
+    private static final int COLUMNAS_GRILLA = (int) Math.round(360 / TAMANO_CELDA_GRADOS);
+    private static final double KM_POR_GRADO_LATITUD = Math.PI * RADIO_TIERRA_KM / 180.0;
+
+    // Sobre este número de celdas conviene usar solo el bounding box
+    public static final int MAX_CELDAS_CONSULTA = 400;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Identificador de la celda de grilla que contiene la coordenada.
+     * Debe coincidir con la fórmula usada en {@code AlertaRepository#completarCeldasGeo()}.
+     */
+    public static int celda(double latitud, double longitud) {
+        return fila(latitud) * COLUMNAS_GRILLA + columna(longitud);
+    }
+
+    /**
+     * Bounding box (en grados) que contiene el círculo de radio {@code radioKm}.
+     */
+    public static BoundingBox boundingBox(double latitud, double longitud, double radioKm) {
+        double deltaLat = radioKm / KM_POR_GRADO_LATITUD;
+        double cosLat = Math.cos(Math.toRadians(latitud));
+        // Cerca de los polos el delta de longitud se dispara; se acota a la vuelta completa
+        double deltaLng = cosLat < 1e-6 ? 180.0 : Math.min(180.0, deltaLat / cosLat);
+
+        return new BoundingBox(
+                Math.max(-90.0, latitud - deltaLat),
+                Math.min(90.0, latitud + deltaLat),
+                Math.max(-180.0, longitud - deltaLng),
+                Math.min(180.0, longitud + deltaLng)
+        );
+    }
+
+    /**
+     * Celdas de la grilla que intersectan el bounding box, o lista vacía si superan
+     * {@link #MAX_CELDAS_CONSULTA} (en ese caso se filtra solo por el bounding box).
+     */
+    public static List<Integer> celdasEnBoundingBox(BoundingBox box) {
+        int filaMin = fila(box.latMin());
+        int filaMax = fila(box.latMax());
+        int colMin = columna(box.lngMin());
+        int colMax = columna(box.lngMax());
+
+        long total = (long) (filaMax - filaMin + 1) * (colMax - colMin + 1);
+        if (total > MAX_CELDAS_CONSULTA) {
+            return List.of();
+        }
+
+        List<Integer> celdas = new ArrayList<>((int) total);
+        for (int f = filaMin; f <= filaMax; f++) {
+            for (int c = colMin; c <= colMax; c++) {
+                celdas.add(f * COLUMNAS_GRILLA + c);
+            }
+        }
+        return celdas;
+    }
+
+    /**
+     * Distancia de gran círculo (haversine) en kilómetros.
+     */
+    public static double distanciaKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static int fila(double latitud) {
+        return (int) Math.floor((latitud + 90.0) / TAMANO_CELDA_GRADOS);
+    }
+
+    private static int columna(double longitud) {
+        // longitud = 180 se asigna a la última columna para no desbordar a la fila siguiente
+        return Math.min(COLUMNAS_GRILLA - 1, (int) Math.floor((longitud + 180.0) / TAMANO_CELDA_GRADOS));
+    }
+
+    public record BoundingBox(double latMin, double latMax, double lngMin, double lngMax) {}
+}
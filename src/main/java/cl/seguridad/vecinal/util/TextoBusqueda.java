@@ -0,0 +1,147 @@
+package cl.seguridad.vecinal.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Texto de búsqueda de usuarios para el panel de administración.
+ * <p>
+ * Cada usuario guarda en {@code usuario.texto_busqueda} sus campos buscables en minúsculas y con el
+ * RUT sin puntos ni guion. La columna tiene un índice FULLTEXT con el parser ngram de MySQL, que
+ * indexa cada par de caracteres: una búsqueda de frase encuentra cualquier subcadena (incluidos
+ * prefijos) usando el índice, en vez del {@code LIKE '%q%'} que recorría la tabla completa.
+ */
+public final class TextoBusqueda {
+
+    // Largo mínimo de un término: ngram_token_size de MySQL (2 por defecto)
+    public static final int LARGO_MINIMO_TERMINO = 2;
+
+    private static final int LARGO_MAXIMO = 1000;
+    private static final Pattern PARECE_RUT = Pattern.compile("[0-9][0-9.]*-?[0-9kK]?");
+    private static final Pattern SEPARADORES = Pattern.compile("\\s+");
+
+    // Palabras de estado: solo filtran cuando son un término completo de la consulta
+    private static final Set<String> ACTIVO = Set.of("activo", "activa", "activos", "activas");
+    private static final Set<String> INACTIVO = Set.of("inactivo", "inactiva", "inactivos", "inactivas");
+    private static final Set<String> VERIFICADO = Set.of("verificado", "verificada", "verificados", "verificadas");
+    private static final Set<String> PENDIENTE = Set.of("pendiente", "pendientes");
+
+    private TextoBusqueda() {
+    }
+
+    /**
+     * Contenido de {@code texto_busqueda}. Debe coincidir con el UPDATE de la migración
+     * V4__busqueda_usuarios.sql (CONCAT_WS omite los nulos igual que aquí).
+     */
+    public static String documento(String nombre, String apellido, String email, String rut,
+                                   String direccion, String role) {
+        String texto = Stream.of(nombre, apellido, email, normalizarRut(rut), direccion, role)
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining(" "))
+                .toLowerCase(Locale.ROOT);
+        return texto.length() > LARGO_MAXIMO ? texto.substring(0, LARGO_MAXIMO) : texto;
+    }
+
+    /** "12.345.678-9" → "123456789"; así se encuentra el RUT con o sin formato. */
+    public static String normalizarRut(String rut) {
+        return rut == null ? null : rut.replace(".", "").replace("-", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Consulta para {@code MATCH ... AGAINST (... IN BOOLEAN MODE)}: cada término es una frase
+     * obligatoria ({@code +"juan" +"perez"}), así que el orden de las palabras no importa.
+     * Devuelve null si no queda ningún término del largo mínimo.
+     */
+    public static String consultaBooleana(String query) {
+        return query == null ? null : obligatorios(terminos(query));
+    }
+
+    /**
+     * Separa las palabras de estado del resto de la consulta. Solo cuenta como estado un término
+     * completo ("activos", "pendiente"): "proactiva" o "pendientesur" siguen siendo texto. Si la
+     * consulta pide un estado y su contrario ("activos inactivos") ese filtro queda en null.
+     */
+    public static Busqueda analizar(String query) {
+        if (query == null) {
+            return new Busqueda(null, null, null, null);
+        }
+        List<String> texto = new ArrayList<>();
+        List<String> estado = new ArrayList<>();
+        Set<Boolean> estadosCuenta = new HashSet<>();
+        Set<Boolean> verificados = new HashSet<>();
+        for (String termino : terminos(query)) {
+            if (ACTIVO.contains(termino)) {
+                estadosCuenta.add(true);
+            } else if (INACTIVO.contains(termino)) {
+                estadosCuenta.add(false);
+            } else if (VERIFICADO.contains(termino)) {
+                verificados.add(true);
+            } else if (PENDIENTE.contains(termino)) {
+                verificados.add(false);
+            } else {
+                texto.add(termino);
+                continue;
+            }
+            estado.add(termino);
+        }
+        return new Busqueda(obligatorios(texto),
+                estado.isEmpty() ? null : opcionales(estado),
+                estadosCuenta.size() == 1 ? estadosCuenta.iterator().next() : null,
+                verificados.size() == 1 ? verificados.iterator().next() : null);
+    }
+
+    /**
+     * Consulta separada por {@link #analizar}.
+     *
+     * @param consultaTexto  términos que no son palabras de estado, como {@link #consultaBooleana}; null si no hay
+     * @param consultaEstado las palabras de estado como frases opcionales ({@code "activos"}), para que la
+     *                       consulta también encuentre a quien las tenga en el nombre o la dirección; null si no hay
+     * @param estadoCuenta   filtro de {@code estado_cuenta}, null = sin filtro
+     * @param verificado     filtro de {@code verificado}, null = sin filtro
+     */
+    public record Busqueda(String consultaTexto, String consultaEstado, Boolean estadoCuenta, Boolean verificado) {
+
+        public boolean tieneEstado() {
+            return consultaEstado != null;
+        }
+
+        public boolean tieneTexto() {
+            return consultaTexto != null;
+        }
+    }
+
+    // Términos en minúsculas, sin comillas, con los RUT normalizados y del largo mínimo
+    private static List<String> terminos(String query) {
+        List<String> terminos = new ArrayList<>();
+        for (String termino : SEPARADORES.split(query.trim().toLowerCase(Locale.ROOT))) {
+            // Dentro de una frase los operadores booleanos son literales; solo las comillas la cortarían
+            String limpio = termino.replace("\"", "");
+            if (PARECE_RUT.matcher(limpio).matches()) {
+                limpio = normalizarRut(limpio);
+            }
+            if (limpio.length() >= LARGO_MINIMO_TERMINO) {
+                terminos.add(limpio);
+            }
+        }
+        return terminos;
+    }
+
+    private static String obligatorios(List<String> terminos) {
+        return terminos.isEmpty() ? null : terminos.stream()
+                .map(termino -> "+\"" + termino + "\"")
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String opcionales(List<String> terminos) {
+        return terminos.stream()
+                .map(termino -> "\"" + termino + "\"")
+                .collect(Collectors.joining(" "));
+    }
+}
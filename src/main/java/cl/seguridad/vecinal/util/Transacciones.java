@@ -0,0 +1,31 @@
+package cl.seguridad.vecinal.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Acciones sobre estado en memoria (cachés, índices, revocaciones) que deben reflejar solo cambios
+ * confirmados en la base.
+ */
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    /**
+     * Ejecuta la acción cuando la transacción actual confirma, o de inmediato si no hay transacción.
+     * Si la transacción termina en rollback la acción no se ejecuta.
+     */
+    public static void despuesDelCommit(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,116 @@
+-- Esquema base tal como lo dejaba ddl-auto=update antes de adoptar Flyway.
+-- En bases existentes no se ejecuta: spring.flyway.baseline-on-migrate las marca en la versión 1.
+-- En una base vacía crea las tablas para que las migraciones siguientes tengan sobre qué correr.
+
+CREATE TABLE IF NOT EXISTS ciudad (
+    ciudad_id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(100) NOT NULL,
+    region VARCHAR(100),
+    pais VARCHAR(255) NOT NULL,
+    activo BIT NOT NULL,
+    PRIMARY KEY (ciudad_id),
+    CONSTRAINT UKgq6hfkl2jwepoa130me3x7iak UNIQUE (nombre)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS comuna (
+    comuna_id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(100) NOT NULL,
+    codigo_postal VARCHAR(10),
+    activo BIT NOT NULL,
+    ciudad_id BIGINT NOT NULL,
+    PRIMARY KEY (comuna_id),
+    CONSTRAINT FKjafco82pp3x1vtasy967kf77x FOREIGN KEY (ciudad_id) REFERENCES ciudad (ciudad_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS villa (
+    villa_id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(100) NOT NULL,
+    direccion TINYTEXT,
+    codigo_postal VARCHAR(10),
+    telefono_contacto VARCHAR(15),
+    email_contacto VARCHAR(100),
+    sectores VARCHAR(500),
+    activo BIT NOT NULL,
+    fecha_creacion DATETIME(6),
+    comuna_id BIGINT NOT NULL,
+    PRIMARY KEY (villa_id),
+    CONSTRAINT FK37ov6x37qw79kjb882elbpof4 FOREIGN KEY (comuna_id) REFERENCES comuna (comuna_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS usuario (
+    usuario_id INTEGER NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(255),
+    apellido VARCHAR(255),
+    email VARCHAR(255),
+    rut VARCHAR(255),
+    password VARCHAR(255),
+    estado_cuenta BIT NOT NULL,
+    fecha_registro DATE,
+    direccion VARCHAR(255),
+    latitud FLOAT(23),
+    longitud FLOAT(23),
+    verificado BIT NOT NULL,
+    token_verificacion VARCHAR(255),
+    role ENUM ('ADMIN_VILLA','SUPER_ADMIN','VECINO'),
+    villa_id BIGINT,
+    sector VARCHAR(255),
+    PRIMARY KEY (usuario_id),
+    CONSTRAINT UK5171l57faosmj8myawaucatdw UNIQUE (email),
+    CONSTRAINT UKjx61a01wwidax9iafoa3xj22i UNIQUE (rut),
+    CONSTRAINT FKoxjp1p6sevtdcexscqar37wos FOREIGN KEY (villa_id) REFERENCES villa (villa_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS alerta (
+    alerta_id INTEGER NOT NULL AUTO_INCREMENT,
+    titulo VARCHAR(255) NOT NULL,
+    descripcion VARCHAR(1000),
+    sector VARCHAR(255) NOT NULL,
+    comuna VARCHAR(255),
+    ciudad VARCHAR(255),
+    tipo ENUM ('ACCIDENTE','EMERGENCIA','INCENDIO','MASCOTA_PERDIDA','OTRO','ROBO','RUIDO','SOSPECHOSO','VANDALISMO') NOT NULL,
+    estado ENUM ('ACTIVA','ATENDIDA','EN_PROCESO','FALSA') NOT NULL,
+    fecha_hora DATETIME(6) NOT NULL,
+    latitud FLOAT(53) NOT NULL,
+    longitud FLOAT(53) NOT NULL,
+    celda_geo INTEGER,
+    direccion VARCHAR(255),
+    imagen_url VARCHAR(255),
+    silenciosa BIT NOT NULL,
+    atendida_por INTEGER,
+    fecha_atencion DATETIME(6),
+    notas_atencion VARCHAR(1000),
+    usuario_id INTEGER NOT NULL,
+    PRIMARY KEY (alerta_id),
+    INDEX idx_alerta_celda_geo (celda_geo, latitud, longitud),
+    CONSTRAINT FKeo5kt17gon88pfecj0libgii5 FOREIGN KEY (usuario_id) REFERENCES usuario (usuario_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS alerta_resumen_hora (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hora DATETIME(6) NOT NULL,
+    villa_id BIGINT NOT NULL,
+    sector VARCHAR(255) NOT NULL,
+    tipo ENUM ('ACCIDENTE','EMERGENCIA','INCENDIO','MASCOTA_PERDIDA','OTRO','ROBO','RUIDO','SOSPECHOSO','VANDALISMO') NOT NULL,
+    estado ENUM ('ACTIVA','ATENDIDA','EN_PROCESO','FALSA') NOT NULL,
+    silenciosa BIT NOT NULL,
+    cantidad BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_alerta_resumen_bucket UNIQUE (hora, villa_id, sector, tipo, estado, silenciosa),
+    INDEX idx_alerta_resumen_villa_hora (villa_id, hora)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    jti VARCHAR(255) NOT NULL,
+    token_hash VARCHAR(255) NOT NULL,
+    usuario_id INTEGER NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    revoked_at DATETIME(6),
+    replaced_by_jti VARCHAR(255),
+    ip VARCHAR(255),
+    user_agent VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT UKtohckreilkhueuxpf5nci51o0 UNIQUE (jti),
+    CONSTRAINT FKpr5fysa08n2o6i1rxjumfl89q FOREIGN KEY (usuario_id) REFERENCES usuario (usuario_id)
+) ENGINE=InnoDB;
@@ -0,0 +1,40 @@
+-- Índices compuestos para los métodos de AlertaRepository y UsuarioRepository.
+-- Cada índice = columnas de igualdad del filtro + columna de orden/rango, para que MySQL
+-- resuelva WHERE ... ORDER BY fecha_hora DESC LIMIT n leyendo el índice sin filesort.
+-- Se crean solo si faltan: en bases existentes ddl-auto=update pudo haber creado algunos.
+-- email y rut no necesitan índice adicional: ya lo tienen por su restricción UNIQUE.
+
+DROP PROCEDURE IF EXISTS crear_indice_si_falta;
+
+DELIMITER //
+CREATE PROCEDURE crear_indice_si_falta(IN tabla VARCHAR(64), IN indice VARCHAR(64), IN columnas VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.statistics
+                   WHERE table_schema = DATABASE() AND table_name = tabla AND index_name = indice) THEN
+        SET @ddl = CONCAT('CREATE INDEX ', indice, ' ON ', tabla, ' (', columnas, ')');
+        PREPARE stmt FROM @ddl;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END //
+DELIMITER ;
+
+-- findAll / feeds por cursor (ORDER BY fecha_hora DESC, alerta_id DESC); InnoDB agrega la PK al final
+CALL crear_indice_si_falta('alerta', 'idx_alerta_fecha_hora', 'fecha_hora');
+-- findAlertasActivas, findByEstado, findDtoKeysetByEstado, countByEstado
+CALL crear_indice_si_falta('alerta', 'idx_alerta_estado_fecha', 'estado, fecha_hora');
+-- findBySector, findDtoBySector, findDtoKeysetBySector, findBySectorAndFechaHoraBetween
+CALL crear_indice_si_falta('alerta', 'idx_alerta_sector_fecha', 'sector, fecha_hora');
+-- findByUsuario_UsuarioId, findDtoByUsuarioId, findDtoKeysetByUsuarioId (también cubre la FK)
+CALL crear_indice_si_falta('alerta', 'idx_alerta_usuario_fecha', 'usuario_id, fecha_hora');
+-- findByTipo
+CALL crear_indice_si_falta('alerta', 'idx_alerta_tipo_fecha', 'tipo, fecha_hora');
+
+-- findByVillaId, findByVillaIdAndSector, findDistinctSectoresByVillaId, countByVillaId
+CALL crear_indice_si_falta('usuario', 'idx_usuario_villa_sector', 'villa_id, sector');
+-- countByVillaIdAndRole
+CALL crear_indice_si_falta('usuario', 'idx_usuario_villa_role', 'villa_id, role');
+-- findBySector, findDistinctSectores
+CALL crear_indice_si_falta('usuario', 'idx_usuario_sector', 'sector');
+
+DROP PROCEDURE crear_indice_si_falta;
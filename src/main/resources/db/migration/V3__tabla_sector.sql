@@ -0,0 +1,79 @@
+-- Sectores como tabla propia. Antes villa.sectores era texto separado por comas y usuario/alerta
+-- guardaban solo el nombre, así que filtrar o agrupar por sector comparaba strings (o hacía LIKE).
+-- usuario.sector y alerta.sector se mantienen como copia del nombre para las respuestas y para
+-- alerta_resumen_hora; filtros y agregados pasan a sector_id.
+
+CREATE TABLE IF NOT EXISTS sector (
+    sector_id INTEGER NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(100) NOT NULL,
+    villa_id BIGINT NOT NULL,
+    PRIMARY KEY (sector_id),
+    CONSTRAINT uk_sector_villa_nombre UNIQUE (villa_id, nombre),
+    CONSTRAINT fk_sector_villa FOREIGN KEY (villa_id) REFERENCES villa (villa_id)
+) ENGINE=InnoDB;
+
+-- 1. Sectores declarados en villa.sectores, en el orden en que estaban escritos
+INSERT IGNORE INTO sector (nombre, villa_id)
+SELECT TRIM(j.nombre), v.villa_id
+FROM villa v
+JOIN JSON_TABLE(CONCAT('["', REPLACE(REPLACE(v.sectores, '"', '\\"'), ',', '","'), '"]'),
+                '$[*]' COLUMNS (orden FOR ORDINALITY, nombre VARCHAR(100) PATH '$')) j
+WHERE v.sectores IS NOT NULL AND TRIM(j.nombre) <> ''
+ORDER BY v.villa_id, j.orden;
+
+-- 2. Sectores que solo existían en usuarios o alertas (texto libre asignado al verificar)
+INSERT IGNORE INTO sector (nombre, villa_id)
+SELECT DISTINCT TRIM(u.sector), u.villa_id
+FROM usuario u
+WHERE u.villa_id IS NOT NULL AND u.sector IS NOT NULL AND TRIM(u.sector) <> '';
+
+INSERT IGNORE INTO sector (nombre, villa_id)
+SELECT DISTINCT TRIM(a.sector), u.villa_id
+FROM alerta a JOIN usuario u ON u.usuario_id = a.usuario_id
+WHERE u.villa_id IS NOT NULL AND TRIM(a.sector) <> '';
+
+-- 3. Referencias por id; los índices reemplazan a los de texto de V2
+ALTER TABLE usuario
+    ADD COLUMN sector_id INTEGER,
+    ADD INDEX idx_usuario_sector_id (sector_id),
+    ADD INDEX idx_usuario_villa_sector_id (villa_id, sector_id),
+    ADD CONSTRAINT fk_usuario_sector FOREIGN KEY (sector_id) REFERENCES sector (sector_id);
+
+ALTER TABLE alerta
+    ADD COLUMN sector_id INTEGER,
+    ADD INDEX idx_alerta_sector_id_fecha (sector_id, fecha_hora),
+    ADD CONSTRAINT fk_alerta_sector FOREIGN KEY (sector_id) REFERENCES sector (sector_id);
+
+-- Usuarios y alertas sin villa quedan con sector_id NULL (el sector pertenece a una villa)
+UPDATE usuario u
+JOIN sector s ON s.villa_id = u.villa_id AND s.nombre = TRIM(u.sector)
+SET u.sector_id = s.sector_id;
+
+UPDATE alerta a
+JOIN usuario u ON u.usuario_id = a.usuario_id
+JOIN sector s ON s.villa_id = u.villa_id AND s.nombre = TRIM(a.sector)
+SET a.sector_id = s.sector_id;
+
+-- 4. Índices de texto que ya no usa ninguna consulta, y la columna CSV
+DROP PROCEDURE IF EXISTS borrar_indice_si_existe;
+
+DELIMITER //
+CREATE PROCEDURE borrar_indice_si_existe(IN tabla VARCHAR(64), IN indice VARCHAR(64))
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = tabla AND index_name = indice) THEN
+        SET @ddl = CONCAT('DROP INDEX ', indice, ' ON ', tabla);
+        PREPARE stmt FROM @ddl;
+        EXECUTE stmt;
+        DEALLOCATE PREPARE stmt;
+    END IF;
+END //
+DELIMITER ;
+
+CALL borrar_indice_si_existe('alerta', 'idx_alerta_sector_fecha');
+CALL borrar_indice_si_existe('usuario', 'idx_usuario_villa_sector');
+CALL borrar_indice_si_existe('usuario', 'idx_usuario_sector');
+
+DROP PROCEDURE borrar_indice_si_existe;
+
+ALTER TABLE villa DROP COLUMN sectores;
@@ -0,0 +1,24 @@
+-- Búsqueda de usuarios del panel de administración (/api/admin/users/search-global).
+-- Antes era LOWER(col) LIKE '%q%' sobre seis columnas: recorrido completo de usuario en cada tecla.
+-- texto_busqueda guarda los campos buscables en minúsculas con el RUT sin puntos ni guion
+-- (Usuario#actualizarTextoBusqueda lo mantiene, ver TextoBusqueda) y tiene un índice FULLTEXT
+-- con el parser ngram, que permite buscar subcadenas y prefijos usando el índice.
+--
+-- El índice DEBE crearse sin stopwords. Con la lista por defecto de InnoDB ("a", "i", "la", "de",
+-- "en", ...) el parser ngram descarta todo bigrama que contenga una stopword: "ma", "ar", "ri", "ia"
+-- de "maria" nunca llegan al índice y la búsqueda no encuentra nombres, emails ni direcciones comunes.
+-- InnoDB lee innodb_ft_enable_stopword al crear el índice y lo guarda con la tabla; si se vuelve a
+-- crear a mano (DROP/CREATE INDEX, ALTER TABLE que lo reconstruya), hacerlo en una sesión con el
+-- mismo SET.
+
+ALTER TABLE usuario ADD COLUMN texto_busqueda VARCHAR(1000);
+
+UPDATE usuario
+SET texto_busqueda = LEFT(LOWER(CONCAT_WS(' ', nombre, apellido, email,
+        REPLACE(REPLACE(TRIM(rut), '.', ''), '-', ''), direccion, role)), 1000);
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+CREATE FULLTEXT INDEX ft_usuario_texto_busqueda ON usuario (texto_busqueda) WITH PARSER ngram;
+
+SET SESSION innodb_ft_enable_stopword = ON;
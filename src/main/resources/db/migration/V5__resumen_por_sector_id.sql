@@ -0,0 +1,24 @@
+-- alerta_resumen_hora pasa a identificar el sector por sector_id, como alerta y usuario desde V3.
+-- Antes el bucket solo tenía el nombre: "Norte" de dos villas distintas compartía el filtro del
+-- dashboard y un sector renombrado partía su historia en dos claves.
+-- sector_id = 0 representa las alertas sin sector_id (usuarios sin villa); para ellas el nombre
+-- copiado en la columna sector sigue separando los buckets, igual que en AlertaRepository.contarPorSector.
+
+ALTER TABLE alerta_resumen_hora
+    ADD COLUMN sector_id INTEGER NOT NULL DEFAULT 0 AFTER villa_id,
+    DROP INDEX uk_alerta_resumen_bucket;
+
+-- Las filas existentes no tienen sector_id: se recalculan desde la tabla alerta
+-- (misma consulta que AlertaResumenHoraRepository.reconstruirDesdeAlertas)
+DELETE FROM alerta_resumen_hora;
+
+INSERT INTO alerta_resumen_hora (hora, villa_id, sector_id, sector, tipo, estado, silenciosa, cantidad)
+SELECT DATE_FORMAT(a.fecha_hora, '%Y-%m-%d %H:00:00'), COALESCE(u.villa_id, 0), COALESCE(a.sector_id, 0),
+       COALESCE(a.sector, ''), a.tipo, a.estado, a.silenciosa, COUNT(*)
+FROM alerta a LEFT JOIN usuario u ON u.usuario_id = a.usuario_id
+GROUP BY DATE_FORMAT(a.fecha_hora, '%Y-%m-%d %H:00:00'), COALESCE(u.villa_id, 0), COALESCE(a.sector_id, 0),
+         COALESCE(a.sector, ''), a.tipo, a.estado, a.silenciosa;
+
+ALTER TABLE alerta_resumen_hora
+    ADD CONSTRAINT uk_alerta_resumen_bucket UNIQUE (hora, villa_id, sector_id, sector, tipo, estado, silenciosa),
+    ADD INDEX idx_alerta_resumen_sector_hora (sector_id, hora);
@@ -0,0 +1,75 @@
+package cl.seguridad.vecinal.controller;
+
+import cl.seguridad.vecinal.dao.AlertaRepository;
+import cl.seguridad.vecinal.exception.GlobalExceptionHandler;
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.dto.PaginaCursor;
+import cl.seguridad.vecinal.modelo.mapper.AlertaMapper;
+import cl.seguridad.vecinal.service.AlertaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * GET /api/alertas/estado/{estado}: el estado inválido recibe la misma respuesta en modo offset y keyset.
+ */
+class AlertaControllerEstadoTest {
+
+    private final AlertaService alertaService = mock(AlertaService.class);
+    private final MockMvc mvc = MockMvcBuilders
+            .standaloneSetup(new AlertaController(alertaService, mock(AlertaRepository.class), mock(AlertaMapper.class)))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void estadoInvalidoEnModoOffset() throws Exception {
+        mvc.perform(get("/api/alertas/estado/cerrada"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Estado inválido"));
+    }
+
+    @Test
+    void estadoInvalidoEnModoKeyset() throws Exception {
+        mvc.perform(get("/api/alertas/estado/cerrada").param("keyset", "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("error"))
+                .andExpect(jsonPath("$.message").value("Estado inválido"));
+        mvc.perform(get("/api/alertas/estado/cerrada").param("cursor", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Estado inválido"));
+    }
+
+    @Test
+    void cursorInvalidoConservaSuMensaje() throws Exception {
+        when(alertaService.obtenerAlertasKeyset(eq(EstadoAlerta.ACTIVA), isNull(), isNull(), eq("abc"), anyInt(), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Cursor de paginación inválido"));
+
+        mvc.perform(get("/api/alertas/estado/activa").param("cursor", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor de paginación inválido"));
+    }
+
+    @Test
+    void estadoValidoEnModoKeyset() throws Exception {
+        when(alertaService.obtenerAlertasKeyset(eq(EstadoAlerta.ACTIVA), isNull(), isNull(), isNull(), anyInt(), anyBoolean()))
+                .thenReturn(new PaginaCursor<>(List.of(), null, false, null));
+
+        mvc.perform(get("/api/alertas/estado/activa").param("keyset", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+}
@@ -0,0 +1,168 @@
+package cl.seguridad.vecinal.dao;
+
+import cl.seguridad.vecinal.configuracion.ContadorSentenciasSql;
+import cl.seguridad.vecinal.modelo.*;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.modelo.dto.CursorAlerta;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los listados de alertas deben costar un número fijo de sentencias SQL, sin importar cuántas filas
+ * devuelven ni cuántos usuarios, villas, comunas y ciudades distintas aparecen (sin N+1).
+ * Cada alerta es de un usuario con su propia villa, comuna y ciudad, el peor caso para un N+1.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sentencias;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.database-platform=cl.seguridad.vecinal.dao.DialectoH2MySql",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=cl.seguridad.vecinal.configuracion.ContadorSentenciasSql"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AlertaRepositorySentenciasTest {
+
+    private static final int ALERTAS = 25;
+    private static final PageRequest PRIMERA_PAGINA = PageRequest.of(0, 20, Sort.by("fechaHora").descending());
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AlertaRepository alertaRepository;
+
+    private final List<Integer> sectorIds = new ArrayList<>();
+
+    @BeforeEach
+    void poblar() {
+        for (int i = 0; i < ALERTAS; i++) {
+            Ciudad ciudad = new Ciudad();
+            ciudad.setNombre("Ciudad " + i);
+            entityManager.persist(ciudad);
+            Comuna comuna = new Comuna();
+            comuna.setNombre("Comuna " + i);
+            comuna.setCiudad(ciudad);
+            entityManager.persist(comuna);
+            Villa villa = new Villa();
+            villa.setNombre("Villa " + i);
+            villa.setComuna(comuna);
+            entityManager.persist(villa);
+            Sector sector = new Sector(villa, "Norte");
+            entityManager.persist(sector);
+            sectorIds.add(sector.getId());
+
+            Usuario usuario = new Usuario();
+            usuario.setEmail("vecino" + i + "@ejemplo.cl");
+            usuario.setRole(Role.VECINO);
+            usuario.setVilla(villa);
+            entityManager.persist(usuario);
+
+            Alerta alerta = new Alerta();
+            alerta.setTitulo("Alerta " + i);
+            alerta.setTipo(TipoAlertaEnum.ROBO);
+            alerta.setLatitud(-41.3);
+            alerta.setLongitud(-72.9);
+            alerta.setSector("Norte");
+            alerta.setSectorId(sector.getId());
+            alerta.setUsuario(usuario);
+            entityManager.persist(alerta);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void listadosConGrafoDeEntidadesCuestanSentenciasFijas() {
+        // Página de 20 con total mayor: consulta + COUNT
+        assertThat(contarSentencias(() -> aDto(alertaRepository.findAll(PRIMERA_PAGINA).getContent())))
+                .isEqualTo(2);
+        assertThat(contarSentencias(() -> aDto(alertaRepository.findByEstado(EstadoAlerta.ACTIVA, PRIMERA_PAGINA).getContent())))
+                .isEqualTo(2);
+        assertThat(contarSentencias(() -> aDto(alertaRepository.findAlertasActivas())))
+                .isEqualTo(1);
+        assertThat(contarSentencias(() -> aDto(alertaRepository.findAlertasRecientes(LocalDateTime.now().minusDays(1)))))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void listadosConProyeccionDtoCuestanSentenciasFijas() {
+        assertThat(contarSentencias(() -> alertaRepository.findDtoBySectorIds(Set.copyOf(sectorIds), PRIMERA_PAGINA).getContent()))
+                .isEqualTo(2);
+        assertThat(contarSentencias(alertaRepository::findActivasDto))
+                .isEqualTo(1);
+        assertThat(contarSentencias(() -> alertaRepository.findRecientesDto(LocalDateTime.now().minusDays(1))))
+                .isEqualTo(1);
+        assertThat(contarSentencias(() -> alertaRepository.findDtoKeyset(
+                CursorAlerta.INICIO.fechaHora(), CursorAlerta.INICIO.alertaId(), Limit.of(20))))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void elListadoNoDependeDeLaCantidadDeFilas() {
+        int conCinco = contarSentencias(() -> aDto(alertaRepository.findAll(PageRequest.of(0, 5)).getContent()));
+        int conVeinte = contarSentencias(() -> aDto(alertaRepository.findAll(PageRequest.of(0, 20)).getContent()));
+        assertThat(conVeinte).isEqualTo(conCinco);
+    }
+
+    @Test
+    void laMuestraDelInformeLeePaginasAcotadas() {
+        LocalDateTime inicio = LocalDateTime.now().minusDays(1);
+        LocalDateTime fin = LocalDateTime.now().plusDays(1);
+        List<Alerta> primera = new ArrayList<>();
+        // El LIMIT va en la sentencia y la ubicación llega en la misma consulta
+        assertThat(contarSentencias(() -> {
+            primera.addAll(alertaRepository.findFiltradasKeyset(null, false, Set.of(0), null, null, inicio, fin,
+                    CursorAlerta.INICIO.fechaHora(), CursorAlerta.INICIO.alertaId(), Limit.of(10)));
+            return aDto(primera);
+        })).isEqualTo(1);
+        assertThat(primera).hasSize(10);
+
+        // La página siguiente sigue desde la última fila, sin repetir
+        Alerta ultima = primera.get(9);
+        List<Alerta> resto = alertaRepository.findFiltradasKeyset(null, false, Set.of(0), null, null, inicio, fin,
+                ultima.getFechaHora(), ultima.getId(), Limit.of(100));
+        assertThat(resto).hasSize(ALERTAS - 10);
+        assertThat(resto).extracting(Alerta::getId).doesNotContainAnyElementsOf(primera.stream().map(Alerta::getId).toList());
+
+        // Filtro por sector_id
+        assertThat(alertaRepository.findFiltradasKeyset(null, true, Set.of(sectorIds.get(0)), null, null, inicio, fin,
+                CursorAlerta.INICIO.fechaHora(), CursorAlerta.INICIO.alertaId(), Limit.of(10)))
+                .extracting(Alerta::getSectorId).containsExactly(sectorIds.get(0));
+    }
+
+    // Recorre las relaciones como lo hace la respuesta de la API, para que un LAZY sin cargar se note
+    private List<AlertaResponseDto> aDto(List<Alerta> alertas) {
+        assertThat(alertas).isNotEmpty();
+        return alertas.stream().map(AlertaResponseDto::new).toList();
+    }
+
+    private int contarSentencias(Supplier<? extends List<?>> listado) {
+        entityManager.clear();
+        List<?> filas;
+        int sentencias;
+        ContadorSentenciasSql.iniciar();
+        try {
+            filas = listado.get();
+        } finally {
+            sentencias = ContadorSentenciasSql.detener();
+        }
+        assertThat(filas).isNotEmpty();
+        return sentencias;
+    }
+}
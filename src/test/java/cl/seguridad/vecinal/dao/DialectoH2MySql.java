@@ -0,0 +1,21 @@
+package cl.seguridad.vecinal.dao;
+
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.sql.ast.spi.SqlAppender;
+
+/**
+ * Dialecto MySQL ajustado para H2 en modo MySQL: sin "engine=InnoDB" en el DDL y con booleanos
+ * literales true/false (MySQLDialect los escribe como 1/0, que H2 no compara con BOOLEAN).
+ */
+public class DialectoH2MySql extends MySQLDialect {
+
+    @Override
+    public String getTableTypeString() {
+        return "";
+    }
+
+    @Override
+    public void appendBooleanValueString(SqlAppender appender, boolean bool) {
+        appender.appendSql(bool ? "true" : "false");
+    }
+}
@@ -0,0 +1,70 @@
+package cl.seguridad.vecinal.modelo.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorAlertaTest {
+
+    @Test
+    void codificarYDecodificarConservanLaPosicion() {
+        CursorAlerta cursor = new CursorAlerta(LocalDateTime.of(2025, 11, 29, 13, 45, 7, 123_456_000), 4821);
+
+        assertThat(CursorAlerta.decodificar(cursor.codificar())).isEqualTo(cursor);
+    }
+
+    @Test
+    void laFechaSinSegundosTambienSeConserva() {
+        // LocalDateTime.toString omite los segundos en cero: "2025-01-01T00:00"
+        CursorAlerta cursor = new CursorAlerta(LocalDateTime.of(2025, 1, 1, 0, 0), 1);
+
+        assertThat(CursorAlerta.decodificar(cursor.codificar())).isEqualTo(cursor);
+    }
+
+    @Test
+    void elTokenEsSeguroParaUrl() {
+        String token = new CursorAlerta(LocalDateTime.of(2025, 6, 30, 23, 59, 59, 999_999_999), Integer.MAX_VALUE).codificar();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void tokenNuloOVacioEsLaPrimeraPagina() {
+        assertThat(CursorAlerta.decodificar(null)).isEqualTo(CursorAlerta.INICIO);
+        assertThat(CursorAlerta.decodificar("")).isEqualTo(CursorAlerta.INICIO);
+        assertThat(CursorAlerta.decodificar("   ")).isEqualTo(CursorAlerta.INICIO);
+    }
+
+    @Test
+    void seCreaDesdeLaUltimaAlertaDeLaPagina() {
+        AlertaResponseDto alerta = new AlertaResponseDto();
+        alerta.setAlertaId(77);
+        alerta.setFechaHora(LocalDateTime.of(2025, 3, 2, 8, 15));
+
+        assertThat(CursorAlerta.de(alerta)).isEqualTo(new CursorAlerta(LocalDateTime.of(2025, 3, 2, 8, 15), 77));
+    }
+
+    @Test
+    void rechazaTokensInvalidos() {
+        assertInvalido("no es base64!");
+        assertInvalido(base64("sin-separador"));
+        assertInvalido(base64("no-es-fecha|12"));
+        assertInvalido(base64("2025-01-01T00:00|no-es-numero"));
+        assertInvalido(base64("2025-01-01T00:00|"));
+    }
+
+    private static void assertInvalido(String token) {
+        assertThatThrownBy(() -> CursorAlerta.decodificar(token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor de paginación inválido");
+    }
+
+    private static String base64(String plano) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package cl.seguridad.vecinal.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenUtilTest {
+
+    private static final String SECRETO = "s".repeat(64);
+
+    @Test
+    void unTokenVerificadoSeSirveDesdeLaCache() {
+        JwtTokenUtil jwt = new JwtTokenUtil(SECRETO, 300, 600, 100);
+        String token = jwt.generateAccessToken("vecina@ejemplo.cl", Map.of(JwtTokenUtil.CLAIM_ROLE, "ADMIN_VILLA"));
+
+        Claims primera = jwt.verificarToken(token);
+
+        assertThat(jwt.verificarToken(token)).isSameAs(primera);
+        assertThat(primera.getSubject()).isEqualTo("vecina@ejemplo.cl");
+        assertThat(primera.get(JwtTokenUtil.CLAIM_ROLE, String.class)).isEqualTo("ADMIN_VILLA");
+    }
+
+    @Test
+    void unTokenAlteradoOFirmadoConOtraClaveSeRechaza() {
+        JwtTokenUtil jwt = new JwtTokenUtil(SECRETO, 300, 600, 100);
+        String token = jwt.generateAccessToken("vecina@ejemplo.cl", Map.of());
+        jwt.verificarToken(token);
+
+        assertThatThrownBy(() -> jwt.verificarToken(token + "x")).isInstanceOf(JwtException.class);
+        JwtTokenUtil otraClave = new JwtTokenUtil("o".repeat(64), 300, 600, 100);
+        assertThatThrownBy(() -> otraClave.verificarToken(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void unTokenVencidoNoSeSirveDesdeLaCache() throws InterruptedException {
+        JwtTokenUtil jwt = new JwtTokenUtil(SECRETO, 1, 600, 100);
+        String token = jwt.generateAccessToken("vecina@ejemplo.cl", Map.of());
+        jwt.verificarToken(token);
+
+        // exp tiene resolución de segundos: a lo más 2 s después ya venció
+        Thread.sleep(2_100);
+
+        assertThatThrownBy(() -> jwt.verificarToken(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void sinCacheVerificaCadaVez() {
+        JwtTokenUtil jwt = new JwtTokenUtil(SECRETO, 300, 600, 0);
+        String token = jwt.generateAccessToken("vecina@ejemplo.cl", Map.of());
+
+        assertThat(jwt.verificarToken(token)).isNotSameAs(jwt.verificarToken(token));
+    }
+}
@@ -0,0 +1,182 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * El agregador con arreglos primitivos y tabla de direccionamiento abierto debe dar lo mismo que
+ * agrupar con mapas, en cualquier orden de llegada.
+ */
+class AgregadorAlertasTest {
+
+    private static final LocalDate BASE = LocalDate.of(2025, 6, 15);
+
+    private record Observacion(LocalDateTime fechaHora, TipoAlertaEnum tipo, EstadoAlerta estado,
+                               boolean silenciosa, String sector, long cantidad) {}
+
+    @Test
+    void coincideConAgruparEnMapas() {
+        List<Observacion> observaciones = observaciones(new Random(42), 5_000);
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        observaciones.forEach(o -> agregador.agregar(o.fechaHora(), o.tipo(), o.estado(), o.silenciosa(),
+                o.sector(), null, null, o.cantidad()));
+
+        Map<TipoAlertaEnum, Long> porTipo = new HashMap<>();
+        Map<EstadoAlerta, Long> porEstado = new HashMap<>();
+        Map<Integer, Long> porHora = new TreeMap<>();
+        Map<LocalDate, Long> porDia = new TreeMap<>();
+        Map<DayOfWeek, Long> porDiaSemana = new HashMap<>();
+        Map<String, Long> porSector = new HashMap<>();
+        long total = 0;
+        long silenciosas = 0;
+        for (Observacion o : observaciones) {
+            total += o.cantidad();
+            silenciosas += o.silenciosa() ? o.cantidad() : 0;
+            porTipo.merge(o.tipo(), o.cantidad(), Long::sum);
+            porEstado.merge(o.estado(), o.cantidad(), Long::sum);
+            porHora.merge(o.fechaHora().getHour(), o.cantidad(), Long::sum);
+            porDia.merge(o.fechaHora().toLocalDate(), o.cantidad(), Long::sum);
+            porDiaSemana.merge(o.fechaHora().getDayOfWeek(), o.cantidad(), Long::sum);
+            porSector.merge(o.sector(), o.cantidad(), Long::sum);
+        }
+
+        assertThat(agregador.total()).isEqualTo(total);
+        assertThat(agregador.silenciosas()).isEqualTo(silenciosas);
+        assertThat(agregador.porTipo()).isEqualTo(porTipo);
+        assertThat(agregador.porEstado()).isEqualTo(porEstado);
+        assertThat(agregador.porHora()).containsExactlyEntriesOf(porHora);
+        assertThat(agregador.porDia()).containsExactlyEntriesOf(porDia);
+        for (DayOfWeek dia : DayOfWeek.values()) {
+            assertThat(agregador.porDiaSemana(dia)).isEqualTo(porDiaSemana.getOrDefault(dia, 0L));
+        }
+        assertThat(agregador.porSector()).isEqualTo(porSector);
+        assertThat(agregador.numSectores()).isEqualTo(porSector.size());
+
+        LocalDate desde = BASE.plusDays(10);
+        assertThat(agregador.porDia(desde))
+                .containsExactlyEntriesOf(((TreeMap<LocalDate, Long>) porDia).tailMap(desde, true));
+        assertThat(agregador.mediaDiaria())
+                .isCloseTo(porDia.values().stream().mapToLong(Long::longValue).average().orElse(0), within(1e-9));
+        assertThat(agregador.medianaDiaria()).isEqualTo(mediana(new ArrayList<>(porDia.values())));
+    }
+
+    @Test
+    void topSectoresOrdenaDeMayorAMenor() {
+        List<Observacion> observaciones = observaciones(new Random(7), 3_000);
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        Map<String, Long> porSector = new HashMap<>();
+        for (Observacion o : observaciones) {
+            agregador.sumarSector(o.sector(), null, null, o.cantidad());
+            porSector.merge(o.sector(), o.cantidad(), Long::sum);
+        }
+        List<Long> esperado = porSector.values().stream().sorted(Comparator.reverseOrder()).limit(10).toList();
+
+        List<Map.Entry<String, Long>> top = agregador.topSectores(10);
+
+        assertThat(top).extracting(Map.Entry::getValue).containsExactlyElementsOf(esperado);
+        top.forEach(e -> assertThat(porSector).containsEntry(e.getKey(), e.getValue()));
+        assertThat(agregador.topSectores(porSector.size() + 5)).hasSize(porSector.size());
+        assertThat(agregador.topSectores(0)).isEmpty();
+    }
+
+    @Test
+    void sectoresConElMismoHashNoSeMezclan() {
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        // "Aa" y "BB" tienen el mismo hashCode: caen en la misma posición y se resuelven por sondeo
+        agregador.sumarSector("Aa", null, null, 3);
+        agregador.sumarSector("BB", null, null, 5);
+        agregador.sumarSector("Aa", null, null, 1);
+        agregador.sumarSector("AaAa", null, null, 2);
+        agregador.sumarSector("BBBB", null, null, 7);
+        agregador.sumarSector("AaBB", null, null, 11);
+
+        assertThat(agregador.porSector()).containsOnly(Map.entry("Aa", 4L), Map.entry("BB", 5L),
+                Map.entry("AaAa", 2L), Map.entry("BBBB", 7L), Map.entry("AaBB", 11L));
+        assertThat(agregador.topSectores(2)).containsExactly(Map.entry("AaBB", 11L), Map.entry("BBBB", 7L));
+    }
+
+    @Test
+    void laClaveDeSectorDecideQueSeCuenta() {
+        AgregadorAlertas soloSector = new AgregadorAlertas();
+        soloSector.sumarSector(" ", "Villa", "Comuna", 1);
+        soloSector.sumarSector(null, "Villa", "Comuna", 1);
+        assertThat(soloSector.numSectores()).isZero();
+
+        AgregadorAlertas conVilla = new AgregadorAlertas((sector, villa, comuna) -> sector + "|" + villa);
+        conVilla.sumarSector("Norte", "A", null, 1);
+        conVilla.sumarSector("Norte", "B", null, 2);
+        assertThat(conVilla.porSector()).containsOnly(Map.entry("Norte|A", 1L), Map.entry("Norte|B", 2L));
+    }
+
+    @Test
+    void elIndiceDeDiasCreceHaciaAmbosLados() {
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        agregador.sumarDia(BASE, 1);
+        agregador.sumarDia(BASE.minusDays(1), 2);
+        agregador.sumarDia(BASE.minusDays(400), 3);
+        agregador.sumarDia(BASE.plusDays(400), 4);
+        agregador.sumarDia(BASE, 5);
+        agregador.sumarDia(null, 9);
+
+        assertThat(agregador.porDia()).containsExactly(Map.entry(BASE.minusDays(400), 3L),
+                Map.entry(BASE.minusDays(1), 2L), Map.entry(BASE, 6L), Map.entry(BASE.plusDays(400), 4L));
+        assertThat(agregador.porDia(BASE)).containsExactly(Map.entry(BASE, 6L), Map.entry(BASE.plusDays(400), 4L));
+        assertThat(agregador.porDia(BASE.plusDays(1_000))).isEmpty();
+        assertThat(agregador.porDia(BASE.minusDays(1_000))).hasSize(4);
+    }
+
+    @Test
+    void mediaYMedianaSoloConsideranDiasConAlertas() {
+        AgregadorAlertas agregador = new AgregadorAlertas();
+        assertThat(agregador.mediaDiaria()).isZero();
+        assertThat(agregador.medianaDiaria()).isZero();
+
+        agregador.sumarDia(BASE, 1);
+        agregador.sumarDia(BASE.plusDays(10), 3);
+        agregador.sumarDia(BASE.plusDays(20), 10);
+        assertThat(agregador.mediaDiaria()).isCloseTo(14 / 3.0, within(1e-9));
+        assertThat(agregador.medianaDiaria()).isEqualTo(3.0);
+
+        agregador.sumarDia(BASE.plusDays(30), 4);
+        assertThat(agregador.medianaDiaria()).isEqualTo(3.5);
+    }
+
+    // Fechas en ~90 días sin orden (el primer día visto queda al medio), 400 sectores y pesos de 1 a 5
+    private List<Observacion> observaciones(Random random, int cantidad) {
+        TipoAlertaEnum[] tipos = TipoAlertaEnum.values();
+        EstadoAlerta[] estados = EstadoAlerta.values();
+        List<Observacion> observaciones = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            LocalDateTime fecha = BASE.atStartOfDay()
+                    .plusDays(random.nextInt(91) - 45)
+                    .plusMinutes(random.nextInt(24 * 60));
+            // Sesgo hacia los primeros sectores para que el top tenga sentido
+            int sector = (int) Math.min(399, Math.abs(random.nextGaussian()) * 80);
+            observaciones.add(new Observacion(fecha, tipos[random.nextInt(tipos.length)],
+                    estados[random.nextInt(estados.length)], random.nextInt(10) == 0,
+                    "Sector " + sector, 1 + random.nextInt(5)));
+        }
+        return observaciones;
+    }
+
+    private double mediana(List<Long> valores) {
+        valores.sort(null);
+        int n = valores.size();
+        return n % 2 == 1 ? valores.get(n / 2) : (valores.get(n / 2 - 1) + valores.get(n / 2)) / 2.0;
+    }
+}
@@ -0,0 +1,131 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.AlertaRepository;
+import cl.seguridad.vecinal.dao.UsuarioRepository;
+import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.modelo.dto.CursorAlerta;
+import cl.seguridad.vecinal.modelo.dto.FiltroAlertas;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * La muestra del informe y la carga del índice espacial leen por páginas keyset acotadas: la cantidad
+ * de sentencias depende de lo que se necesita, no del tamaño del rango.
+ */
+class AlertaServiceMuestraTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 11, 30, 12, 0);
+    private static final FiltroAlertas FILTRO = new FiltroAlertas(null, null, null, null, AHORA.minusDays(60), AHORA);
+
+    private final AlertaRepository alertaRepository = mock(AlertaRepository.class);
+    private final IndiceEspacialAlertas indice = new IndiceEspacialAlertas();
+
+    @Test
+    void dejaDeLeerAlCompletarLaMuestra() {
+        AlertaService servicio = servicio(500, 5000);
+        // 50 filas por página (el doble de la muestra, mínimo 50)
+        when(pagina(CursorAlerta.INICIO, 50)).thenReturn(alertas(0, 50));
+
+        List<Alerta> muestra = servicio.muestrearAlertasRecientes(FILTRO, a -> true, 20);
+
+        assertThat(muestra).extracting(Alerta::getId).containsExactlyElementsOf(ids(0, 20));
+        verify(alertaRepository, times(1)).findFiltradasKeyset(any(), anyBoolean(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+    }
+
+    @Test
+    void sigueDesdeLaUltimaFilaCuandoElCriterioDescarta() {
+        AlertaService servicio = servicio(500, 5000);
+        List<Alerta> primera = alertas(0, 50);
+        Alerta ultima = primera.get(49);
+        when(pagina(CursorAlerta.INICIO, 50)).thenReturn(primera);
+        when(pagina(new CursorAlerta(ultima.getFechaHora(), ultima.getId()), 50)).thenReturn(alertas(50, 30));
+
+        // Uno de cada cuatro: la primera página no alcanza y la segunda (incompleta) es la última del rango
+        List<Alerta> muestra = servicio.muestrearAlertasRecientes(FILTRO, a -> a.getId() % 4 == 0, 25);
+
+        assertThat(muestra).extracting(Alerta::getId)
+                .containsExactlyElementsOf(ids(0, 80).stream().filter(id -> id % 4 == 0).toList());
+        verify(alertaRepository, times(2)).findFiltradasKeyset(any(), anyBoolean(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+    }
+
+    @Test
+    void noRevisaMasDelMaximoDeFilas() {
+        AlertaService servicio = servicio(500, 120);
+        List<Alerta> primera = alertas(0, 100);
+        Alerta ultima = primera.get(99);
+        when(pagina(CursorAlerta.INICIO, 100)).thenReturn(primera);
+        when(pagina(new CursorAlerta(ultima.getFechaHora(), ultima.getId()), 20)).thenReturn(alertas(100, 20));
+
+        // Ninguna cumple: sin tope se recorrería todo el rango
+        List<Alerta> muestra = servicio.muestrearAlertasRecientes(FILTRO, a -> false, 50);
+
+        assertThat(muestra).isEmpty();
+        verify(alertaRepository, times(2)).findFiltradasKeyset(any(), anyBoolean(), any(), any(), any(), any(), any(),
+                any(), any(), any());
+    }
+
+    @Test
+    void cargaElIndiceEspacialPorPaginas() {
+        AlertaService servicio = servicio(2, 5000);
+        List<AlertaResponseDto> primera = List.of(dto(1), dto(2));
+        when(alertaRepository.findDtoKeysetByEstado(EstadoAlerta.ACTIVA, CursorAlerta.INICIO.fechaHora(),
+                CursorAlerta.INICIO.alertaId(), Limit.of(2))).thenReturn(primera);
+        when(alertaRepository.findDtoKeysetByEstado(EstadoAlerta.ACTIVA, primera.get(1).getFechaHora(), 2, Limit.of(2)))
+                .thenReturn(List.of(dto(3)));
+
+        servicio.reconstruirIndiceEspacial();
+
+        assertThat(indice.size()).isEqualTo(3);
+    }
+
+    private AlertaService servicio(int filasPorPagina, int maxFilasMuestra) {
+        return new AlertaService(alertaRepository, mock(UsuarioRepository.class), indice,
+                mock(ResumenAlertasService.class), mock(SectorService.class), mock(CacheInformesIa.class),
+                true, filasPorPagina, maxFilasMuestra);
+    }
+
+    private List<Alerta> pagina(CursorAlerta desde, int filas) {
+        return alertaRepository.findFiltradasKeyset(isNull(), eq(false), eq(FILTRO.sectorIdsConsulta()), isNull(),
+                isNull(), eq(FILTRO.inicio()), eq(FILTRO.fin()), eq(desde.fechaHora()), eq(desde.alertaId()),
+                eq(Limit.of(filas)));
+    }
+
+    // Ids desde "desde", de la más reciente a la más antigua (un minuto entre cada una)
+    private List<Alerta> alertas(int desde, int cantidad) {
+        List<Alerta> alertas = new ArrayList<>();
+        for (int id = desde; id < desde + cantidad; id++) {
+            Alerta alerta = new Alerta();
+            alerta.setId(id);
+            alerta.setFechaHora(AHORA.minusMinutes(id));
+            alertas.add(alerta);
+        }
+        return alertas;
+    }
+
+    private List<Integer> ids(int desde, int cantidad) {
+        return alertas(desde, cantidad).stream().map(Alerta::getId).toList();
+    }
+
+    private AlertaResponseDto dto(int id) {
+        return new AlertaResponseDto(id, 1, "Ana", "Soto", null, null, -41.3 + id * 0.001, -72.9, null, "Norte",
+                null, null, null, EstadoAlerta.ACTIVA, false, AHORA.minusMinutes(id), null, null, null);
+    }
+}
@@ -0,0 +1,71 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.service.UserService.UserStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheEstadisticasUsuariosTest {
+
+    private final CacheEstadisticasUsuarios cache = new CacheEstadisticasUsuarios(60);
+    private final AtomicInteger calculos = new AtomicInteger();
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sinTransaccionInvalidaDeInmediato() {
+        obtener(1L);
+
+        cache.invalidar();
+        obtener(1L);
+
+        assertThat(calculos).hasValue(2);
+    }
+
+    @Test
+    void conTransaccionConservaLasEstadisticasHastaElCommit() {
+        obtener(1L);
+        obtener(null);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidar();
+        // Un dashboard concurrente antes del commit no debe guardar datos previos a la escritura
+        obtener(1L);
+        assertThat(calculos).hasValue(2);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        obtener(1L);
+        obtener(null);
+        assertThat(calculos).hasValue(4);
+    }
+
+    @Test
+    void conRollbackNoInvalida() {
+        obtener(1L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidar();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        obtener(1L);
+
+        assertThat(calculos).hasValue(1);
+    }
+
+    private UserStats obtener(Long villaId) {
+        return cache.obtener(villaId, villa -> {
+            calculos.incrementAndGet();
+            return new UserStats(0, 0, 0, 0, 0);
+        });
+    }
+}
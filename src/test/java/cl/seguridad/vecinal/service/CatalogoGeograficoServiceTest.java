@@ -0,0 +1,117 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.CiudadRepository;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService.CatalogoModificado;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogoGeograficoServiceTest {
+
+    private CiudadRepository ciudadRepository;
+    private CatalogoGeograficoService catalogo;
+
+    @BeforeEach
+    void crear() {
+        ciudadRepository = mock(CiudadRepository.class);
+        when(ciudadRepository.findJerarquiaCompleta()).thenReturn(List.of());
+        catalogo = new CatalogoGeograficoService(ciudadRepository, new ObjectMapper(), 600);
+    }
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sinTransaccionRecargaDeInmediato() {
+        catalogo.marcarModificado(new CatalogoModificado());
+
+        verify(ciudadRepository, times(1)).findJerarquiaCompleta();
+    }
+
+    @Test
+    void variasEscriturasEnUnaTransaccionRecarganUnaVezTrasElCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.marcarModificado(new CatalogoModificado());
+        catalogo.marcarModificado(new CatalogoModificado());
+        verify(ciudadRepository, times(0)).findJerarquiaCompleta();
+
+        confirmar();
+
+        verify(ciudadRepository, times(1)).findJerarquiaCompleta();
+    }
+
+    @Test
+    void cadaTransaccionConfirmadaRecargaAunqueOtraYaLoHaya() throws InterruptedException {
+        // A y B modifican el catálogo a la vez; A confirma primero y B después
+        CountDownLatch bModifico = new CountDownLatch(1);
+        CountDownLatch aConfirmo = new CountDownLatch(1);
+        Thread transaccionB = new Thread(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            catalogo.marcarModificado(new CatalogoModificado());
+            bModifico.countDown();
+            esperar(aConfirmo);
+            confirmar();
+        });
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.marcarModificado(new CatalogoModificado());
+        transaccionB.start();
+        esperar(bModifico);
+        confirmar();
+        verify(ciudadRepository, times(1)).findJerarquiaCompleta();
+
+        aConfirmo.countDown();
+        transaccionB.join();
+        verify(ciudadRepository, times(2)).findJerarquiaCompleta();
+    }
+
+    @Test
+    void unRollbackNoRecargaYLaSiguienteTransaccionSi() {
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.marcarModificado(new CatalogoModificado());
+        completar(TransactionSynchronization.STATUS_ROLLED_BACK);
+        verify(ciudadRepository, times(0)).findJerarquiaCompleta();
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.marcarModificado(new CatalogoModificado());
+        confirmar();
+        verify(ciudadRepository, times(1)).findJerarquiaCompleta();
+    }
+
+    // Lo que hace el gestor de transacciones al confirmar: afterCommit y luego afterCompletion
+    private static void confirmar() {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        sincronizaciones.forEach(TransactionSynchronization::afterCommit);
+        sincronizaciones.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void completar(int estado) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(estado));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,197 @@
+package cl.seguridad.vecinal.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GoogleAiServiceTest {
+
+    private static final String CIRCUITO_ABIERTO = "Modelo de IA no disponible temporalmente (circuito abierto)";
+    private static final String LIMITE = "Demasiadas solicitudes en curso al modelo de IA";
+
+    private final ProveedorFalso proveedor = new ProveedorFalso();
+
+    @Test
+    void abreElCircuitoTrasLosFallosSeguidos() {
+        GoogleAiService servicio = servicio(4, 3, 30);
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(circuito(servicio)).isEqualTo("CERRADO");
+            assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+        }
+
+        assertThat(circuito(servicio)).isEqualTo("ABIERTO");
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage(CIRCUITO_ABIERTO);
+        assertThat(proveedor.llamadas).hasValue(3);
+    }
+
+    @Test
+    void unExitoReiniciaLosFallosSeguidos() {
+        GoogleAiService servicio = servicio(4, 2, 30);
+
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+        proveedor.respuesta = Mono.just("ok");
+        assertThat(llamar(servicio)).isEqualTo("ok");
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+
+        assertThat(circuito(servicio)).isEqualTo("CERRADO");
+    }
+
+    @Test
+    void trasLaPausaDejaPasarUnaSolaLlamadaDePrueba() {
+        GoogleAiService servicio = abierto(0);
+        proveedor.respuesta = Mono.never();
+
+        Disposable prueba = servicio.generarContenido(Map.of()).subscribe();
+        assertThat(proveedor.llamadas).hasValue(2);
+        assertThat(circuito(servicio)).isEqualTo("SEMIABIERTO");
+
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage(CIRCUITO_ABIERTO);
+        assertThat(proveedor.llamadas).hasValue(2);
+        prueba.dispose();
+    }
+
+    @Test
+    void laPruebaExitosaCierraElCircuito() {
+        GoogleAiService servicio = abierto(0);
+        proveedor.respuesta = Mono.just("ok");
+
+        assertThat(llamar(servicio)).isEqualTo("ok");
+
+        assertThat(circuito(servicio)).isEqualTo("CERRADO");
+        assertThat(llamar(servicio)).isEqualTo("ok");
+    }
+
+    @Test
+    void laPruebaFallidaReabreElCircuito() throws InterruptedException {
+        GoogleAiService servicio = abierto(1);
+        Thread.sleep(1_100);
+        assertThat(circuito(servicio)).isEqualTo("SEMIABIERTO");
+
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+
+        assertThat(circuito(servicio)).isEqualTo("ABIERTO");
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage(CIRCUITO_ABIERTO);
+        assertThat(proveedor.llamadas).hasValue(2);
+    }
+
+    @Test
+    void laPruebaCanceladaSeLibera() {
+        GoogleAiService servicio = abierto(0);
+        proveedor.respuesta = Mono.never();
+        Disposable prueba = servicio.generarContenido(Map.of()).subscribe();
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage(CIRCUITO_ABIERTO);
+
+        prueba.dispose();
+
+        // Sin liberar la prueba el circuito quedaría rechazando todo para siempre
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(0);
+        proveedor.respuesta = Mono.just("ok");
+        assertThat(llamar(servicio)).isEqualTo("ok");
+        assertThat(circuito(servicio)).isEqualTo("CERRADO");
+    }
+
+    @Test
+    void laPruebaDeStreamCanceladaSeLibera() {
+        GoogleAiService servicio = abierto(0);
+        proveedor.respuesta = Mono.never();
+
+        Disposable prueba = servicio.generarContenidoStream(Map.of()).subscribe();
+        prueba.dispose();
+
+        proveedor.respuesta = Mono.just("ok");
+        assertThat(servicio.generarContenidoStream(Map.of()).collectList().block()).containsExactly("ok");
+        assertThat(circuito(servicio)).isEqualTo("CERRADO");
+    }
+
+    @Test
+    void rechazaLasLlamadasSobreElLimiteYLiberaAlTerminar() {
+        GoogleAiService servicio = servicio(2, 5, 30);
+        proveedor.respuesta = Mono.never();
+        Disposable primera = servicio.generarContenido(Map.of()).subscribe();
+        Disposable segunda = servicio.generarContenido(Map.of()).subscribe();
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(2);
+
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage(LIMITE);
+        assertThat(proveedor.llamadas).hasValue(2);
+        // El rechazo por el límite no cuenta como fallo del modelo
+        assertThat(circuito(servicio)).isEqualTo("CERRADO");
+
+        primera.dispose();
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(1);
+        proveedor.respuesta = Mono.just("ok");
+        assertThat(llamar(servicio)).isEqualTo("ok");
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(1);
+
+        segunda.dispose();
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(0);
+    }
+
+    @Test
+    void unErrorLiberaElCupo() {
+        GoogleAiService servicio = servicio(1, 5, 30);
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+
+        assertThat(servicio.estado().get("enCurso")).isEqualTo(0);
+        proveedor.respuesta = Mono.just("ok");
+        assertThat(llamar(servicio)).isEqualTo("ok");
+    }
+
+    private GoogleAiService servicio(int maxEnCurso, int fallosParaAbrir, long pausaSegundos) {
+        return new GoogleAiService(proveedor, maxEnCurso, 60, fallosParaAbrir, pausaSegundos);
+    }
+
+    // Circuito abierto tras un fallo; con pausa 0 la siguiente llamada ya es la de prueba
+    private GoogleAiService abierto(long pausaSegundos) {
+        GoogleAiService servicio = servicio(4, 1, pausaSegundos);
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+        assertThatThrownBy(() -> llamar(servicio)).hasMessage("Error del modelo");
+        assertThat(circuito(servicio)).isNotEqualTo("CERRADO");
+        return servicio;
+    }
+
+    private String llamar(GoogleAiService servicio) {
+        return servicio.generarContenido(Map.of()).block();
+    }
+
+    private String circuito(GoogleAiService servicio) {
+        return (String) servicio.estado().get("circuito");
+    }
+
+    // Cuenta las suscripciones: GoogleAiService arma la llamada siempre, pero solo se suscribe si la autoriza
+    private static final class ProveedorFalso implements ProveedorIa {
+        private final AtomicInteger llamadas = new AtomicInteger();
+        private volatile Mono<String> respuesta = Mono.just("ok");
+
+        @Override
+        public String modelo() {
+            return "falso";
+        }
+
+        @Override
+        public Mono<String> generarContenido(Map<String, Object> requestBody) {
+            Mono<String> actual = respuesta;
+            return Mono.defer(() -> {
+                llamadas.incrementAndGet();
+                return actual;
+            });
+        }
+
+        @Override
+        public Flux<String> generarContenidoStream(Map<String, Object> requestBody) {
+            return generarContenido(requestBody).flux();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+import cl.seguridad.vecinal.modelo.dto.AlertaResponseDto;
+import cl.seguridad.vecinal.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * El índice por celdas debe devolver lo mismo que recorrer todas las alertas y medir la distancia.
+ */
+class IndiceEspacialAlertasTest {
+
+    private static final double LAT = -41.3;
+    private static final double LNG = -72.9;
+    private static final LocalDateTime AHORA = LocalDateTime.of(2025, 11, 30, 12, 0);
+
+    private final IndiceEspacialAlertas indice = new IndiceEspacialAlertas();
+
+    @Test
+    void coincideConRecorrerTodasLasAlertas() {
+        Random random = new Random(3);
+        List<AlertaResponseDto> alertas = new ArrayList<>();
+        // ~0.6° alrededor del punto: decenas de celdas, algunas alertas fuera de cualquier radio probado
+        for (int id = 1; id <= 2_000; id++) {
+            alertas.add(alerta(id, LAT + (random.nextDouble() - 0.5) * 0.6, LNG + (random.nextDouble() - 0.5) * 0.6));
+        }
+        indice.reconstruir(() -> alertas);
+
+        // Radios dentro de una celda, de varias celdas y sobre MAX_CELDAS_CONSULTA (sin filtro por celda)
+        for (double radioKm : new double[]{0.5, 2, 5, 12, 150}) {
+            assertThat(ids(indice.buscarCercanas(LAT, LNG, radioKm)))
+                    .as("radio %s km", radioKm)
+                    .containsExactlyElementsOf(ids(fuerzaBruta(alertas, LAT, LNG, radioKm)));
+        }
+        assertThat(GeoUtils.celdasEnBoundingBox(GeoUtils.boundingBox(LAT, LNG, 150))).isEmpty();
+    }
+
+    @Test
+    void ordenaDeLaMasRecienteALaMasAntigua() {
+        indice.registrar(alerta(1, LAT, LNG));
+        indice.registrar(alerta(3, LAT + 0.001, LNG));
+        indice.registrar(alerta(2, LAT, LNG + 0.001));
+
+        assertThat(ids(indice.buscarCercanas(LAT, LNG, 1))).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void quitarSacaLaAlertaDeSuCelda() {
+        indice.registrar(alerta(1, LAT, LNG));
+        indice.registrar(alerta(2, LAT, LNG));
+
+        indice.quitar(1);
+        indice.quitar(99);
+
+        assertThat(ids(indice.buscarCercanas(LAT, LNG, 1))).containsExactly(2);
+        assertThat(indice.size()).isEqualTo(1);
+        indice.quitar(2);
+        assertThat(indice.buscarCercanas(LAT, LNG, 1)).isEmpty();
+        assertThat(indice.size()).isZero();
+    }
+
+    @Test
+    void registrarDeNuevoMueveLaAlertaDeCelda() {
+        indice.registrar(alerta(1, LAT, LNG));
+        // 0.2° más al norte: otra celda
+        indice.registrar(alerta(1, LAT + 0.2, LNG));
+
+        assertThat(indice.buscarCercanas(LAT, LNG, 1)).isEmpty();
+        assertThat(ids(indice.buscarCercanas(LAT + 0.2, LNG, 1))).containsExactly(1);
+        assertThat(indice.size()).isEqualTo(1);
+    }
+
+    @Test
+    void devuelveCopiasQueNoAlteranElIndice() {
+        indice.registrar(alerta(1, LAT, LNG));
+
+        AlertaResponseDto encontrada = indice.buscarCercanas(LAT, LNG, 1).get(0);
+        encontrada.setEstado(EstadoAlerta.ATENDIDA);
+        encontrada.setLatitud(0.0);
+
+        AlertaResponseDto otraVez = indice.buscarCercanas(LAT, LNG, 1).get(0);
+        assertThat(otraVez).isNotSameAs(encontrada);
+        assertThat(otraVez.getEstado()).isEqualTo(EstadoAlerta.ACTIVA);
+        assertThat(otraVez.getLatitud()).isEqualTo(LAT);
+    }
+
+    @Test
+    void laReconstruccionConservaLosCambiosHechosMientrasCarga() {
+        indice.registrar(alerta(1, LAT, LNG));
+        indice.registrar(alerta(2, LAT, LNG));
+
+        // La lectura de la base ve 1 y 2; mientras tanto se crea la 3, se cierra la 2 y la 1 cambia de lugar
+        indice.reconstruir(() -> {
+            List<AlertaResponseDto> leidas = List.of(alerta(1, LAT, LNG), alerta(2, LAT, LNG));
+            indice.registrar(alerta(3, LAT, LNG));
+            indice.quitar(2);
+            indice.registrar(alerta(1, LAT + 0.2, LNG));
+            return leidas;
+        });
+
+        assertThat(ids(indice.buscarCercanas(LAT, LNG, 1))).containsExactly(3);
+        assertThat(ids(indice.buscarCercanas(LAT + 0.2, LNG, 1))).containsExactly(1);
+        assertThat(indice.size()).isEqualTo(2);
+
+        // Terminada la reconstrucción, los cambios ya no se anotan para la siguiente
+        indice.quitar(3);
+        indice.reconstruir(List::of);
+        assertThat(indice.size()).isZero();
+    }
+
+    @Test
+    void unaCargaFallidaNoCambiaElIndice() {
+        indice.registrar(alerta(1, LAT, LNG));
+
+        assertThatThrownBy(() -> indice.reconstruir(() -> {
+            throw new IllegalStateException("Base de datos caída");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(ids(indice.buscarCercanas(LAT, LNG, 1))).containsExactly(1);
+        indice.registrar(alerta(2, LAT, LNG));
+        indice.reconstruir(() -> List.of(alerta(5, LAT, LNG)));
+        assertThat(ids(indice.buscarCercanas(LAT, LNG, 1))).containsExactly(5);
+    }
+
+    private List<AlertaResponseDto> fuerzaBruta(List<AlertaResponseDto> alertas, double lat, double lng, double radioKm) {
+        return alertas.stream()
+                .filter(a -> GeoUtils.distanciaKm(lat, lng, a.getLatitud(), a.getLongitud()) < radioKm)
+                .sorted(Comparator.comparing(AlertaResponseDto::getFechaHora).reversed())
+                .toList();
+    }
+
+    private List<Integer> ids(List<AlertaResponseDto> alertas) {
+        return alertas.stream().map(AlertaResponseDto::getAlertaId).toList();
+    }
+
+    // Cuanto mayor el id, más antigua
+    private AlertaResponseDto alerta(int id, double latitud, double longitud) {
+        return new AlertaResponseDto(id, 1, "Ana", "Soto", TipoAlertaEnum.ROBO, null, latitud, longitud, null, "Norte",
+                null, null, null, EstadoAlerta.ACTIVA, false, AHORA.minusMinutes(id), null, null, null);
+    }
+}
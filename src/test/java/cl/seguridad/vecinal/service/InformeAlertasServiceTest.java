@@ -0,0 +1,199 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.modelo.Alerta;
+import cl.seguridad.vecinal.modelo.EstadoAlerta;
+import cl.seguridad.vecinal.modelo.TipoAlertaEnum;
+import cl.seguridad.vecinal.modelo.Usuario;
+import cl.seguridad.vecinal.modelo.dto.FiltroAlertas;
+import cl.seguridad.vecinal.service.InformeAlertasService.DatosInforme;
+import cl.seguridad.vecinal.service.InformeAlertasService.SolicitudInforme;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InformeAlertasServiceTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2025, 11, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2025, 11, 30, 0, 0);
+    private static final String RESPUESTA_MODELO =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"## Informe\"}]}}]}";
+
+    private final AlertaService alertaService = mock(AlertaService.class);
+    private final SectorService sectorService = mock(SectorService.class);
+    private final ProveedorFalso proveedor = new ProveedorFalso();
+    private InformeAlertasService servicio;
+
+    @BeforeEach
+    void preparar() {
+        GoogleAiService googleAiService = new GoogleAiService(proveedor, 4, 60, 5, 30);
+        servicio = new InformeAlertasService(alertaService, googleAiService, sectorService,
+                new CacheInformesIa(10, 30));
+
+        // 12 sectores: "Sector i" con i + 1 alertas, una hora distinta cada uno
+        when(alertaService.obtenerConteos(any(), any())).thenAnswer(invocacion -> {
+            AgregadorAlertas agregador = invocacion.getArgument(1);
+            for (int i = 0; i < 12; i++) {
+                agregador.agregar(INICIO.plusDays(i).plusHours(i), TipoAlertaEnum.ROBO, EstadoAlerta.ACTIVA,
+                        false, "Sector " + i, "Los Aromos", "Maipú", i + 1);
+            }
+            return agregador;
+        });
+        when(alertaService.muestrearAlertasRecientes(any(), any(), anyInt()))
+                .thenReturn(List.of(alerta("Sector 11"), alerta("Sector 10")));
+    }
+
+    @Test
+    void parsearSolicitudNormalizaLosFiltros() {
+        Map<String, Object> cuerpo = new HashMap<>();
+        cuerpo.put("fechaInicio", "2025-11-01T00:00:00");
+        cuerpo.put("fechaFin", " 2025-11-30T00:00:00 ");
+        cuerpo.put("tipo", "robo");
+        cuerpo.put("estado", "no-existe");
+        cuerpo.put("sector", "  Centro ");
+        cuerpo.put("limite", 10_000);
+
+        SolicitudInforme solicitud = servicio.parsearSolicitud(cuerpo);
+
+        assertThat(solicitud).isEqualTo(new SolicitudInforme(INICIO, FIN, TipoAlertaEnum.ROBO, null, "centro", 500));
+        // Mismos filtros escritos de otra forma: misma clave de reutilización
+        cuerpo.put("sector", "CENTRO");
+        cuerpo.put("limite", 600);
+        assertThat(servicio.parsearSolicitud(cuerpo)).isEqualTo(solicitud);
+    }
+
+    @Test
+    void parsearSolicitudSinCuerpoUsaLosValoresPorDefecto() {
+        SolicitudInforme solicitud = servicio.parsearSolicitud(Map.of());
+
+        assertThat(solicitud).isEqualTo(new SolicitudInforme(null, null, null, null, null, 100));
+    }
+
+    @Test
+    void parsearSolicitudRechazaFechasInvalidas() {
+        assertThatThrownBy(() -> servicio.parsearSolicitud(Map.of("fechaInicio", "01-11-2025", "fechaFin", "hoy")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Formato de fecha inválido");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void generaElInformeConAlertasEnElRango() throws Exception {
+        when(sectorService.idsQueContienen("sector")).thenReturn(Set.of(1, 2));
+
+        DatosInforme datos = servicio.prepararDatos(solicitud("sector"));
+        Map<String, Object> respuesta = servicio.completarConIa(datos).block();
+
+        ArgumentCaptor<FiltroAlertas> filtro = ArgumentCaptor.forClass(FiltroAlertas.class);
+        verify(alertaService).obtenerConteos(filtro.capture(), any());
+        assertThat(filtro.getValue().sectorIds()).containsExactlyInAnyOrder(1, 2);
+        assertThat(filtro.getValue().inicio()).isEqualTo(INICIO);
+
+        assertThat(respuesta).containsEntry("status", "success")
+                .containsEntry("totalEncontradas", 78)
+                .containsEntry("totalUsadas", 2)
+                .containsEntry("informeAi", "## Informe")
+                .containsEntry("modo", "agregado");
+        Map<String, Object> agregados = (Map<String, Object>) respuesta.get("agregados");
+        List<Map.Entry<String, Long>> top = (List<Map.Entry<String, Long>>) agregados.get("porSectorTop10");
+        assertThat(top).hasSize(10);
+        assertThat(top.get(0)).isEqualTo(Map.entry("Sector 11 (Villa Los Aromos, Comuna Maipú)", 12L));
+
+        // z-score de mayor a menor, a lo más 10 sectores
+        Map<String, Object> anomalias = (Map<String, Object>) agregados.get("anomalias");
+        List<List<Object>> sectoresZ = (List<List<Object>>) anomalias.get("sectoresZscore");
+        assertThat(sectoresZ).hasSize(10);
+        assertThat(sectoresZ.get(0).get(0)).isEqualTo("Sector 11 (Villa Los Aromos, Comuna Maipú)");
+        List<Double> puntajes = sectoresZ.stream().map(par -> ((Number) par.get(1)).doubleValue()).toList();
+        assertThat(puntajes).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+        assertThat(proveedor.llamadas).hasValue(1);
+    }
+
+    @Test
+    void reutilizaElAnalisisDelMismoJsonAgregado() throws Exception {
+        servicio.completarConIa(servicio.prepararDatos(solicitud(null))).block();
+        Map<String, Object> segunda = servicio.completarConIa(servicio.prepararDatos(solicitud(null))).block();
+
+        assertThat(segunda).containsEntry("informeAi", "## Informe");
+        assertThat(proveedor.llamadas).hasValue(1);
+    }
+
+    @Test
+    void sinModeloDevuelveLosAgregados() throws Exception {
+        proveedor.respuesta = Mono.error(new RuntimeException("Error del modelo"));
+
+        Map<String, Object> respuesta = servicio.completarConIa(servicio.prepararDatos(solicitud(null))).block();
+
+        assertThat(InformeAlertasService.esRespuestaSinIa(respuesta)).isTrue();
+        assertThat(respuesta).containsEntry("totalEncontradas", 78).containsEntry("informeAi", null);
+        assertThat((String) respuesta.get("message")).contains("Error del modelo");
+    }
+
+    @Test
+    void enStreamingEnviaLosFragmentosDelModelo() throws Exception {
+        DatosInforme datos = servicio.prepararDatos(solicitud(null));
+
+        assertThat(servicio.agregados(datos)).doesNotContainKey("informeAi").containsEntry("totalEncontradas", 78);
+        assertThat(servicio.fragmentosIa(datos).collectList().block()).containsExactly("## Informe");
+        // Terminado el streaming, el texto queda en caché
+        assertThat(servicio.fragmentosIa(datos).collectList().block()).containsExactly("## Informe");
+        assertThat(proveedor.llamadas).hasValue(1);
+    }
+
+    private SolicitudInforme solicitud(String sector) {
+        return new SolicitudInforme(INICIO, FIN, null, null, sector, 100);
+    }
+
+    private Alerta alerta(String sector) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Ana");
+        Alerta alerta = new Alerta();
+        alerta.setUsuario(usuario);
+        alerta.setSector(sector);
+        alerta.setTipo(TipoAlertaEnum.ROBO);
+        alerta.setEstado(EstadoAlerta.ACTIVA);
+        alerta.setFechaHora(INICIO.plusDays(11));
+        alerta.setDescripcion("Robo de bicicleta");
+        return alerta;
+    }
+
+    private static final class ProveedorFalso implements ProveedorIa {
+        private final AtomicInteger llamadas = new AtomicInteger();
+        private volatile Mono<String> respuesta = Mono.just(RESPUESTA_MODELO);
+
+        @Override
+        public String modelo() {
+            return "falso";
+        }
+
+        @Override
+        public Mono<String> generarContenido(Map<String, Object> requestBody) {
+            Mono<String> actual = respuesta;
+            return Mono.defer(() -> {
+                llamadas.incrementAndGet();
+                return actual;
+            });
+        }
+
+        @Override
+        public Flux<String> generarContenidoStream(Map<String, Object> requestBody) {
+            return generarContenido(requestBody).flux();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.AlertaResumenHoraRepository;
+import cl.seguridad.vecinal.modelo.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Los ajustes del resumen horario y la lectura de buckets, contra H2 en modo MySQL
+ * (INSERT ... ON DUPLICATE KEY UPDATE incluido).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resumen;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.database-platform=cl.seguridad.vecinal.dao.DialectoH2MySql",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ResumenAlertasService.class)
+class ResumenAlertasServiceTest {
+
+    private static final LocalDateTime HORA = LocalDateTime.of(2025, 11, 10, 14, 0);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ResumenAlertasService resumenService;
+
+    @Autowired
+    private AlertaResumenHoraRepository resumenRepository;
+
+    private Villa villa;
+    private Sector norte;
+    private Sector norteOtraVilla;
+
+    @BeforeEach
+    void poblar() {
+        villa = villa("Los Aromos");
+        norte = sector(villa, "Norte");
+        norteOtraVilla = sector(villa("Las Acacias"), "Norte");
+    }
+
+    @Test
+    void elAltaSumaEnElBucketDeSuHora() {
+        resumenService.registrarAlta(alerta(norte, HORA.plusMinutes(5), EstadoAlerta.ACTIVA));
+        resumenService.registrarAlta(alerta(norte, HORA.plusMinutes(55), EstadoAlerta.ACTIVA));
+        resumenService.registrarAlta(alerta(norte, HORA.plusHours(1), EstadoAlerta.ACTIVA));
+
+        assertThat(buckets())
+                .extracting(AlertaResumenHora::getHora, AlertaResumenHora::getCantidad,
+                        AlertaResumenHora::getVillaId, AlertaResumenHora::getSectorId)
+                .containsExactlyInAnyOrder(
+                        tuple(HORA, 2L, villa.getId(), norte.getId()),
+                        tuple(HORA.plusHours(1), 1L, villa.getId(), norte.getId()));
+    }
+
+    @Test
+    void elCambioDeEstadoMueveElConteoEntreBuckets() {
+        Alerta alerta = alerta(norte, HORA.plusMinutes(5), EstadoAlerta.ACTIVA);
+        resumenService.registrarAlta(alerta);
+        resumenService.registrarAlta(alerta(norte, HORA.plusMinutes(10), EstadoAlerta.ACTIVA));
+
+        alerta.setEstado(EstadoAlerta.ATENDIDA);
+        resumenService.registrarCambioEstado(alerta, EstadoAlerta.ACTIVA);
+        // Mismo estado: no ajusta nada
+        resumenService.registrarCambioEstado(alerta, EstadoAlerta.ATENDIDA);
+
+        assertThat(cantidad(EstadoAlerta.ACTIVA)).isEqualTo(1);
+        assertThat(cantidad(EstadoAlerta.ATENDIDA)).isEqualTo(1);
+    }
+
+    @Test
+    void laBajaDejaElBucketEnCeroYNoSeLee() {
+        Alerta alerta = alerta(norte, HORA.plusMinutes(5), EstadoAlerta.ACTIVA);
+        resumenService.registrarAlta(alerta);
+        resumenService.registrarBaja(alerta);
+
+        assertThat(cantidad(EstadoAlerta.ACTIVA)).isZero();
+        assertThat(resumenService.obtenerBuckets(null, null, HORA, HORA.plusHours(1))).isEmpty();
+    }
+
+    @Test
+    void filtraPorSectorIdYNoPorNombre() {
+        resumenService.registrarAlta(alerta(norte, HORA, EstadoAlerta.ACTIVA));
+        resumenService.registrarAlta(alerta(norteOtraVilla, HORA, EstadoAlerta.ACTIVA));
+        resumenService.registrarAlta(alerta(norteOtraVilla, HORA, EstadoAlerta.ACTIVA));
+
+        List<AlertaResumenHora> soloNorte = resumenService.obtenerBuckets(null, Set.of(norte.getId()), HORA, HORA.plusHours(1));
+        assertThat(soloNorte).extracting(AlertaResumenHora::getCantidad).containsExactly(1L);
+        assertThat(resumenService.obtenerBuckets(null, null, HORA, HORA.plusHours(1)))
+                .extracting(AlertaResumenHora::getCantidad).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(resumenService.obtenerBuckets(villa.getId(), null, HORA, HORA.plusHours(1)))
+                .extracting(AlertaResumenHora::getSectorId).containsExactly(norte.getId());
+        // Ningún sector coincide con el nombre buscado: no hay buckets, ni siquiera los sin sector
+        resumenService.registrarAlta(alerta(null, HORA, EstadoAlerta.ACTIVA));
+        assertThat(resumenService.obtenerBuckets(null, Set.of(), HORA, HORA.plusHours(1))).isEmpty();
+    }
+
+    @Test
+    void soloLeeHorasCompletasDesdeElInicio() {
+        resumenService.registrarAlta(alerta(norte, HORA.plusMinutes(10), EstadoAlerta.ACTIVA));
+        resumenService.registrarAlta(alerta(norte, HORA.plusHours(1).plusMinutes(10), EstadoAlerta.ACTIVA));
+
+        // Desde 14:30 el bucket de las 14:00 tiene alertas anteriores al inicio: queda fuera
+        assertThat(resumenService.obtenerBuckets(null, null, HORA.plusMinutes(30), HORA.plusHours(2)))
+                .extracting(AlertaResumenHora::getHora).containsExactly(HORA.plusHours(1));
+        assertThat(resumenService.obtenerBuckets(null, null, HORA, HORA.plusHours(2))).hasSize(2);
+
+        assertThat(ResumenAlertasService.primeraHoraCompleta(HORA)).isEqualTo(HORA);
+        assertThat(ResumenAlertasService.primeraHoraCompleta(HORA.plusSeconds(1))).isEqualTo(HORA.plusHours(1));
+    }
+
+    private Villa villa(String nombre) {
+        Ciudad ciudad = new Ciudad();
+        ciudad.setNombre("Ciudad " + nombre);
+        entityManager.persist(ciudad);
+        Comuna comuna = new Comuna();
+        comuna.setNombre("Comuna " + nombre);
+        comuna.setCiudad(ciudad);
+        entityManager.persist(comuna);
+        Villa villa = new Villa();
+        villa.setNombre(nombre);
+        villa.setComuna(comuna);
+        entityManager.persist(villa);
+        return villa;
+    }
+
+    private Sector sector(Villa villa, String nombre) {
+        Sector sector = new Sector(villa, nombre);
+        entityManager.persist(sector);
+        return sector;
+    }
+
+    private Alerta alerta(Sector sector, LocalDateTime fechaHora, EstadoAlerta estado) {
+        Usuario usuario = new Usuario();
+        usuario.setVilla(sector != null ? sector.getVilla() : null);
+        Alerta alerta = new Alerta();
+        alerta.setUsuario(usuario);
+        alerta.setSectorId(sector != null ? sector.getId() : null);
+        alerta.setSector(sector != null ? sector.getNombre() : null);
+        alerta.setTipo(TipoAlertaEnum.ROBO);
+        alerta.setEstado(estado);
+        alerta.setSilenciosa(false);
+        alerta.setFechaHora(fechaHora);
+        return alerta;
+    }
+
+    private List<AlertaResumenHora> buckets() {
+        entityManager.clear();
+        return resumenRepository.findAll();
+    }
+
+    private long cantidad(EstadoAlerta estado) {
+        return buckets().stream().filter(b -> b.getEstado() == estado).mapToLong(AlertaResumenHora::getCantidad).sum();
+    }
+}
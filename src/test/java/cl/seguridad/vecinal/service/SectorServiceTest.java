@@ -0,0 +1,126 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.dao.SectorRepository;
+import cl.seguridad.vecinal.modelo.*;
+import cl.seguridad.vecinal.service.CatalogoGeograficoService.CatalogoModificado;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asignación de sectores contra H2 en modo MySQL. El catálogo en memoria no conoce ningún sector,
+ * así que cada asignación pasa por la base.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sectores;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.database-platform=cl.seguridad.vecinal.dao.DialectoH2MySql",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SectorService.class)
+class SectorServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SectorService sectorService;
+
+    @MockitoSpyBean
+    private SectorRepository sectorRepository;
+
+    @MockitoBean(answers = Answers.RETURNS_DEEP_STUBS)
+    private CatalogoGeograficoService catalogoGeografico;
+
+    private Villa villa;
+
+    @BeforeEach
+    void poblar() {
+        Ciudad ciudad = new Ciudad();
+        ciudad.setNombre("Osorno");
+        entityManager.persist(ciudad);
+        Comuna comuna = new Comuna();
+        comuna.setNombre("Osorno");
+        comuna.setCiudad(ciudad);
+        entityManager.persist(comuna);
+        villa = new Villa();
+        villa.setNombre("Los Aromos");
+        villa.setComuna(comuna);
+        entityManager.persist(villa);
+        when(catalogoGeografico.catalogo().sector(anyLong(), anyString())).thenReturn(null);
+        // Los listeners de Ciudad, Comuna y Villa ya avisaron al catálogo
+        clearInvocations(catalogoGeografico);
+    }
+
+    @Test
+    void creaElSectorQueNoExisteYLoReutiliza() {
+        Usuario primero = usuario();
+        sectorService.asignar(primero, "  Norte ");
+        Usuario segundo = usuario();
+        sectorService.asignar(segundo, "Norte");
+
+        assertThat(primero.getSector()).isEqualTo("Norte");
+        assertThat(primero.getSectorId()).isNotNull().isEqualTo(segundo.getSectorId());
+        assertThat(filas("Norte")).isEqualTo(1);
+        verify(catalogoGeografico).marcarModificado(any(CatalogoModificado.class));
+    }
+
+    @Test
+    void siOtraTransaccionLoCreoPrimeroUsaEsaFila() {
+        // Fila confirmada por otra verificación que la lectura inicial de esta transacción no vio
+        jdbcTemplate.update("INSERT INTO sector (nombre, villa_id) VALUES (?, ?)", "Norte", villa.getId());
+        Integer existente = jdbcTemplate.queryForObject("SELECT sector_id FROM sector WHERE nombre = 'Norte'", Integer.class);
+        doReturn(Optional.empty()).when(sectorRepository).findByVilla_IdAndNombre(villa.getId(), "Norte");
+
+        Usuario usuario = usuario();
+        sectorService.asignar(usuario, "Norte");
+
+        assertThat(usuario.getSectorId()).isEqualTo(existente);
+        assertThat(filas("Norte")).isEqualTo(1);
+        verify(sectorRepository, never()).save(any());
+    }
+
+    @Test
+    void sinVillaConservaSoloElNombre() {
+        Usuario usuario = new Usuario();
+        sectorService.asignar(usuario, " Norte ");
+
+        assertThat(usuario.getSector()).isEqualTo("Norte");
+        assertThat(usuario.getSectorId()).isNull();
+        assertThat(filas("Norte")).isZero();
+    }
+
+    private Usuario usuario() {
+        Usuario usuario = new Usuario();
+        usuario.setVilla(villa);
+        return usuario;
+    }
+
+    private int filas(String nombre) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sector WHERE nombre = ?", Integer.class, nombre);
+    }
+}
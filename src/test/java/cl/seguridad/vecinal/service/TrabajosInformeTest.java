@@ -0,0 +1,143 @@
+package cl.seguridad.vecinal.service;
+
+import cl.seguridad.vecinal.service.InformeAlertasService.DatosInforme;
+import cl.seguridad.vecinal.service.InformeAlertasService.SolicitudInforme;
+import cl.seguridad.vecinal.service.TrabajosInforme.EstadoTrabajo;
+import cl.seguridad.vecinal.service.TrabajosInforme.Trabajo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TrabajosInformeTest {
+
+    private final InformeAlertasService informeService = mock(InformeAlertasService.class);
+    private final AlertaService alertaService = mock(AlertaService.class);
+    private final DatosInforme datos = mock(DatosInforme.class);
+    private TrabajosInforme trabajos;
+
+    @AfterEach
+    void detener() {
+        if (trabajos != null) {
+            trabajos.destroy();
+        }
+    }
+
+    @Test
+    void reutilizaElTrabajoEnCursoDeLaMismaSolicitud() throws Exception {
+        trabajos = trabajos(2, 5);
+        when(informeService.prepararDatos(any())).thenReturn(datos);
+        when(informeService.completarConIa(datos)).thenReturn(Mono.never());
+
+        Trabajo primero = trabajos.encolar(solicitud(100));
+        Trabajo segundo = trabajos.encolar(solicitud(100));
+
+        assertThat(segundo).isSameAs(primero);
+        assertThat(trabajos.encolar(solicitud(50))).isNotSameAs(primero);
+        assertThat(trabajos.obtener(primero.getId())).isSameAs(primero);
+    }
+
+    @Test
+    void reutilizaElResultadoHastaQueCambianLasAlertas() throws Exception {
+        trabajos = trabajos(2, 5);
+        when(informeService.prepararDatos(any())).thenReturn(datos);
+        when(informeService.completarConIa(datos)).thenReturn(Mono.just(Map.of("status", "success")));
+
+        Trabajo primero = trabajos.encolar(solicitud(100));
+        assertThat(primero.getResultado().get(5, TimeUnit.SECONDS)).containsEntry("status", "success");
+        assertThat(primero.getEstado()).isEqualTo(EstadoTrabajo.COMPLETADO);
+        assertThat(trabajos.encolar(solicitud(100))).isSameAs(primero);
+
+        when(alertaService.versionDatos()).thenReturn(1L);
+        Trabajo nuevo = trabajos.encolar(solicitud(100));
+        assertThat(nuevo).isNotSameAs(primero);
+        nuevo.getResultado().get(5, TimeUnit.SECONDS);
+        verify(informeService, times(2)).prepararDatos(solicitud(100));
+    }
+
+    @Test
+    void noReutilizaLosTrabajosConError() throws Exception {
+        trabajos = trabajos(2, 5);
+        when(informeService.prepararDatos(any())).thenThrow(new IllegalStateException("Base de datos caída"));
+
+        Trabajo fallido = trabajos.encolar(solicitud(100));
+        assertThatThrownBy(() -> fallido.getResultado().get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(fallido.getEstado()).isEqualTo(EstadoTrabajo.ERROR);
+        assertThat(fallido.getError()).isEqualTo("Base de datos caída");
+        assertThat(fallido.getTerminadoEn()).isNotNull();
+        assertThat(trabajos.encolar(solicitud(100))).isNotSameAs(fallido);
+    }
+
+    @Test
+    void noReutilizaLasRespuestasSinIa() throws Exception {
+        trabajos = trabajos(2, 5);
+        when(informeService.prepararDatos(any())).thenReturn(datos);
+        when(informeService.completarConIa(datos)).thenReturn(Mono.just(Map.of("modo", "agregado-sin-ia")));
+
+        Trabajo respaldo = trabajos.encolar(solicitud(100));
+        respaldo.getResultado().get(5, TimeUnit.SECONDS);
+
+        // El respaldo se entrega, pero la siguiente solicitud vuelve a intentar con el modelo
+        assertThat(respaldo.getEstado()).isEqualTo(EstadoTrabajo.COMPLETADO);
+        assertThat(trabajos.encolar(solicitud(100))).isNotSameAs(respaldo);
+    }
+
+    @Test
+    void conLaColaLlenaRechazaSinRetenerElTrabajo() throws Exception {
+        trabajos = trabajos(1, 1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        when(informeService.prepararDatos(any())).thenAnswer(invocacion -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return datos;
+        });
+        when(informeService.completarConIa(datos)).thenReturn(Mono.just(Map.of("status", "success")));
+
+        // Uno en el hilo, uno en la cola, el tercero no cabe
+        Trabajo enProceso = trabajos.encolar(solicitud(1));
+        Trabajo enCola = trabajos.encolar(solicitud(2));
+        assertThatThrownBy(() -> trabajos.encolar(solicitud(3)))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessage("Hay demasiados informes en preparación, intente en unos minutos");
+        assertThatThrownBy(() -> trabajos.prepararDatos(solicitud(4)))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(trabajos.estadisticas()).containsEntry("rechazados", 2L).containsEntry("enCola", 1);
+
+        liberar.countDown();
+        enProceso.getResultado().get(5, TimeUnit.SECONDS);
+        enCola.getResultado().get(5, TimeUnit.SECONDS);
+
+        // El rechazado no quedó registrado: la misma solicitud se encola de nuevo
+        Trabajo reintento = trabajos.encolar(solicitud(3));
+        assertThat(reintento.getResultado().get(5, TimeUnit.SECONDS)).containsEntry("status", "success");
+    }
+
+    @Test
+    void prepararDatosCorreEnElPool() throws Exception {
+        trabajos = trabajos(1, 1);
+        when(informeService.prepararDatos(any())).thenReturn(datos);
+
+        assertThat(trabajos.prepararDatos(solicitud(100)).get(5, TimeUnit.SECONDS)).isSameAs(datos);
+    }
+
+    private TrabajosInforme trabajos(int hilos, int cola) {
+        return new TrabajosInforme(informeService, alertaService, hilos, cola, 10, 30);
+    }
+
+    private SolicitudInforme solicitud(int limite) {
+        return new SolicitudInforme(null, null, null, null, null, limite);
+    }
+}
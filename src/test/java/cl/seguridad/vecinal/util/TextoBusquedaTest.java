@@ -0,0 +1,97 @@
+package cl.seguridad.vecinal.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextoBusquedaTest {
+
+    @Test
+    void normalizarRutQuitaPuntosYGuion() {
+        assertThat(TextoBusqueda.normalizarRut("12.345.678-K")).isEqualTo("12345678k");
+        assertThat(TextoBusqueda.normalizarRut(" 12345678-9 ")).isEqualTo("123456789");
+        assertThat(TextoBusqueda.normalizarRut(null)).isNull();
+    }
+
+    @Test
+    void consultaBooleanaExigeCadaTermino() {
+        assertThat(TextoBusqueda.consultaBooleana("Juan  Pérez")).isEqualTo("+\"juan\" +\"pérez\"");
+    }
+
+    @Test
+    void consultaBooleanaNormalizaLosRut() {
+        assertThat(TextoBusqueda.consultaBooleana("12.345.678-9")).isEqualTo("+\"123456789\"");
+        // Un email con dígitos no es un RUT
+        assertThat(TextoBusqueda.consultaBooleana("juan.perez-1@mail.cl")).isEqualTo("+\"juan.perez-1@mail.cl\"");
+    }
+
+    @Test
+    void consultaBooleanaQuitaLasComillas() {
+        assertThat(TextoBusqueda.consultaBooleana("\"juan\" o\"neil")).isEqualTo("+\"juan\" +\"oneil\"");
+    }
+
+    @Test
+    void consultaBooleanaDescartaTerminosCortos() {
+        assertThat(TextoBusqueda.consultaBooleana("a juan")).isEqualTo("+\"juan\"");
+        assertThat(TextoBusqueda.consultaBooleana("a b")).isNull();
+        assertThat(TextoBusqueda.consultaBooleana("   ")).isNull();
+        assertThat(TextoBusqueda.consultaBooleana(null)).isNull();
+    }
+
+    @Test
+    void analizarSoloPalabraDeEstado() {
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar("Activos");
+
+        assertThat(busqueda.tieneTexto()).isFalse();
+        assertThat(busqueda.consultaEstado()).isEqualTo("\"activos\"");
+        assertThat(busqueda.estadoCuenta()).isTrue();
+        assertThat(busqueda.verificado()).isNull();
+    }
+
+    @Test
+    void analizarCombinaEstadoYTexto() {
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar("pendientes sur");
+
+        assertThat(busqueda.consultaTexto()).isEqualTo("+\"sur\"");
+        assertThat(busqueda.consultaEstado()).isEqualTo("\"pendientes\"");
+        assertThat(busqueda.estadoCuenta()).isNull();
+        assertThat(busqueda.verificado()).isFalse();
+    }
+
+    @Test
+    void analizarSoloConsideraEstadoElTerminoCompleto() {
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar("proactiva@mail.cl inactividad verificadora");
+
+        assertThat(busqueda.tieneEstado()).isFalse();
+        assertThat(busqueda.estadoCuenta()).isNull();
+        assertThat(busqueda.verificado()).isNull();
+        assertThat(busqueda.consultaTexto())
+                .isEqualTo("+\"proactiva@mail.cl\" +\"inactividad\" +\"verificadora\"");
+    }
+
+    @Test
+    void analizarVariosFiltros() {
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar("inactivas verificadas");
+
+        assertThat(busqueda.estadoCuenta()).isFalse();
+        assertThat(busqueda.verificado()).isTrue();
+        assertThat(busqueda.consultaEstado()).isEqualTo("\"inactivas\" \"verificadas\"");
+        assertThat(busqueda.tieneTexto()).isFalse();
+    }
+
+    @Test
+    void analizarEstadosContrariosNoFiltran() {
+        TextoBusqueda.Busqueda busqueda = TextoBusqueda.analizar("activos inactivos");
+
+        assertThat(busqueda.tieneEstado()).isTrue();
+        assertThat(busqueda.estadoCuenta()).isNull();
+        assertThat(busqueda.verificado()).isNull();
+    }
+
+    @Test
+    void analizarSinTerminosUtiles() {
+        assertThat(TextoBusqueda.analizar("x").tieneTexto()).isFalse();
+        assertThat(TextoBusqueda.analizar("x").tieneEstado()).isFalse();
+        assertThat(TextoBusqueda.analizar(null).tieneTexto()).isFalse();
+    }
+}
@@ -0,0 +1,53 @@
+package cl.seguridad.vecinal.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransaccionesTest {
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void sinTransaccionSeEjecutaDeInmediato() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+
+        Transacciones.despuesDelCommit(ejecuciones::incrementAndGet);
+
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void conTransaccionEsperaAlCommit() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+
+        Transacciones.despuesDelCommit(ejecuciones::incrementAndGet);
+        assertThat(ejecuciones).hasValue(0);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(ejecuciones).hasValue(1);
+    }
+
+    @Test
+    void conRollbackNoSeEjecuta() {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+
+        Transacciones.despuesDelCommit(ejecuciones::incrementAndGet);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(ejecuciones).hasValue(0);
+    }
+}